@@ -16,17 +16,21 @@
 
 package com.hyperaware.conference.backend;
 
-import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
-import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
-import com.google.firebase.database.ValueEventListener;
+import com.google.firebase.tasks.Tasks;
 import com.hyperaware.conference.backend.config.ResourcesConfigStrategy;
+import com.hyperaware.conference.backend.db.DatabaseClient;
+import com.hyperaware.conference.backend.db.FirebaseDatabaseClient;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
-import java.util.concurrent.CountDownLatch;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Dumps a tab-separated file containing all the feedback for all sessions.
@@ -34,7 +38,38 @@ import java.util.concurrent.CountDownLatch;
 
 public class DumpFeedback {
 
-    private final FirebaseDatabase fdb;
+    /**
+     * Orders keys the way the database does: keys that are integers first,
+     * numerically, then the rest as strings.
+     */
+    private static final Comparator<String> KEY_ORDER = new Comparator<String>() {
+        @Override
+        public int compare(String lhs, String rhs) {
+            final Long lhsInt = asInteger(lhs);
+            final Long rhsInt = asInteger(rhs);
+            if (lhsInt != null && rhsInt != null) {
+                return lhsInt.compareTo(rhsInt);
+            }
+            else if (lhsInt != null) {
+                return -1;
+            }
+            else if (rhsInt != null) {
+                return 1;
+            }
+            return lhs.compareTo(rhs);
+        }
+
+        private Long asInteger(String key) {
+            try {
+                return Long.parseLong(key);
+            }
+            catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    };
+
+    private final DatabaseClient db;
 
     public static void main(String[] args) throws Exception {
         final ResourcesConfigStrategy configStrategy = new ResourcesConfigStrategy();
@@ -53,69 +88,70 @@ public class DumpFeedback {
     }
 
     public DumpFeedback(FirebaseDatabase fdb) {
-        this.fdb = fdb;
+        this(new FirebaseDatabaseClient(fdb));
     }
 
-    public void dumpFeedback(final BufferedWriter writer) throws IOException, InterruptedException {
-        final CountDownLatch latch = new CountDownLatch(1);
-
-        final DatabaseReference sessionsRef = fdb.getReference("feedback/sessions");
-        sessionsRef.addListenerForSingleValueEvent(new FeedbackValueEventListener(writer, latch));
-
-        latch.await();
+    public DumpFeedback(DatabaseClient db) {
+        this.db = db;
     }
 
-    private class FeedbackValueEventListener implements ValueEventListener {
-        private final BufferedWriter writer;
-        private final CountDownLatch latch;
-
-        public FeedbackValueEventListener(BufferedWriter writer, CountDownLatch latch) {
-            this.writer = writer;
-            this.latch = latch;
+    public void dumpFeedback(final BufferedWriter writer) throws IOException, InterruptedException {
+        final Object sessions;
+        try {
+            sessions = Tasks.await(db.readValue("feedback/sessions"));
         }
-
-        @Override
-        public void onDataChange(final DataSnapshot data) {
-            try {
-                writeFeedbackTsv(data);
-            }
-            catch (IOException e) {
-                e.printStackTrace();
-            }
-            latch.countDown();
+        catch (ExecutionException e) {
+            e.getCause().printStackTrace();
+            return;
         }
+        writeFeedbackTsv(writer, sessions);
+    }
 
-        @Override
-        public void onCancelled(final DatabaseError error) {
-            //noinspection ThrowableResultOfMethodCallIgnored
-            error.toException().printStackTrace();
-            latch.countDown();
+    private static void writeFeedbackTsv(final BufferedWriter writer, final Object sessions) throws IOException {
+        writer.write("session_id\tuser_id\n");
+        for (final Map.Entry<String, Object> session : children(sessions)) {
+            writeSessionRow(writer, session);
         }
+    }
 
-        private void writeFeedbackTsv(final DataSnapshot data) throws IOException {
-            writer.write("session_id\tuser_id\n");
-            for (final DataSnapshot session : data.getChildren()) {
-                writeSessionRow(session);
+    private static void writeSessionRow(final BufferedWriter writer, final Map.Entry<String, Object> session)
+        throws IOException {
+        final String session_id = session.getKey();
+        for (final Map.Entry<String, Object> session_user : children(session.getValue())) {
+            writer.write(session_id);
+            final String user_id = session_user.getKey();
+            writer.write('\t');
+            writer.write(user_id);
+            for (final Map.Entry<String, Object> rating : children(session_user.getValue())) {
+                writer.write('\t');
+                final Object value = rating.getValue();
+                if (value != null) {
+                    writer.write(value.toString());
+                }
             }
+            writer.write('\n');
         }
+    }
 
-        private void writeSessionRow(final DataSnapshot session) throws IOException {
-            final String session_id = session.getKey();
-            for (final DataSnapshot session_user : session.getChildren()) {
-                writer.write(session_id);
-                final String user_id = session_user.getKey();
-                writer.write('\t');
-                writer.write(user_id);
-                for (DataSnapshot rating : session_user.getChildren()) {
-                    writer.write('\t');
-                    final Object value = rating.getValue();
-                    if (value != null) {
-                        writer.write(value.toString());
-                    }
+    /**
+     * @return the children of a plain value read from the database, in the
+     *     order the database would list them
+     */
+    @SuppressWarnings("unchecked")
+    private static List<Map.Entry<String, Object>> children(final Object value) {
+        final TreeMap<String, Object> children = new TreeMap<>(KEY_ORDER);
+        if (value instanceof Map) {
+            children.putAll((Map<String, Object>) value);
+        }
+        else if (value instanceof List) {
+            final List<Object> list = (List<Object>) value;
+            for (int i = 0; i < list.size(); i++) {
+                if (list.get(i) != null) {
+                    children.put(String.valueOf(i), list.get(i));
                 }
-                writer.write('\n');
             }
         }
+        return new ArrayList<>(children.entrySet());
     }
 
 }
@@ -0,0 +1,295 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.backend;
+
+import com.hyperaware.conference.model.AgendaItem;
+import com.hyperaware.conference.model.AttendeeItem;
+import com.hyperaware.conference.model.CompanyItem;
+import com.hyperaware.conference.model.SpeakerItem;
+
+import java.text.Collator;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the indexes Populate writes under /indexes alongside the
+ * sections, so that clients can look up with a key what they would
+ * otherwise have to work out by scanning a whole section.  Each index is
+ * built from converted section items, as plain maps and lists ready to be
+ * written.
+ */
+
+public final class Indexes {
+
+    public static final String SPEAKER_SESSIONS_PATH = "indexes/speaker_sessions";
+    public static final String AGENDA_DAYS_PATH = "indexes/agenda_days";
+    public static final String TIMELINE_PATH = "indexes/timeline";
+    public static final String SORT_KEYS_PATH = "indexes/sort_keys";
+    public static final String SEARCH_PATH = "indexes/search";
+
+    /**
+     * Orders sessions by start time, then by id so the order is stable.
+     */
+    public static final Comparator<AgendaItem> START_TIME_COMPARATOR = new Comparator<AgendaItem>() {
+        @Override
+        public int compare(AgendaItem lhs, AgendaItem rhs) {
+            final long l = lhs.getEpochStartTime();
+            final long r = rhs.getEpochStartTime();
+            if (l != r) {
+                return l < r ? -1 : 1;
+            }
+            return lhs.getId().compareTo(rhs.getId());
+        }
+    };
+
+    /**
+     * Orders sessions by start time, then by end time, so that sessions
+     * sharing a time slot are next to each other.
+     */
+    public static final Comparator<AgendaItem> TIME_SLOT_COMPARATOR = new Comparator<AgendaItem>() {
+        @Override
+        public int compare(AgendaItem lhs, AgendaItem rhs) {
+            final long l = lhs.getEpochEndTime();
+            final long r = rhs.getEpochEndTime();
+            if (lhs.getEpochStartTime() != rhs.getEpochStartTime() || l == r) {
+                return START_TIME_COMPARATOR.compare(lhs, rhs);
+            }
+            return l < r ? -1 : 1;
+        }
+    };
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private Indexes() {
+    }
+
+    /**
+     * @return for each speaker id, the ids of that speaker's sessions in
+     *     order of start time
+     */
+    public static Map<String, List<String>> speakerSessions(Collection<AgendaItem> agendaItems) {
+        final List<AgendaItem> sorted = new ArrayList<>(agendaItems);
+        Collections.sort(sorted, START_TIME_COMPARATOR);
+
+        final HashMap<String, List<String>> index = new HashMap<>();
+        for (final AgendaItem item : sorted) {
+            for (final String speakerId : item.getSpeakerIds()) {
+                List<String> sessionIds = index.get(speakerId);
+                if (sessionIds == null) {
+                    sessionIds = new ArrayList<>();
+                    index.put(speakerId, sessionIds);
+                }
+                sessionIds.add(item.getId());
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Organizes the agenda the way it's displayed: by day in the event's
+     * time zone, then by time slot, then session.  Days are keyed by date
+     * as yyyy-MM-dd, so they sort in order and each can be loaded on its
+     * own.  Each day has:
+     *
+     * date: the start of the day, in epoch seconds
+     * slots: the day's time slots in order, each with its start and end
+     *     in epoch seconds, and the ids of its sessions
+     */
+    public static Map<String, Map<String, Object>> agendaDays(Collection<AgendaItem> agendaItems, TimeZone tz) {
+        final List<AgendaItem> sorted = new ArrayList<>(agendaItems);
+        Collections.sort(sorted, TIME_SLOT_COMPARATOR);
+
+        final SimpleDateFormat dayFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+        dayFormat.setTimeZone(tz);
+        final Calendar cal = Calendar.getInstance(tz, Locale.US);
+
+        final HashMap<String, Map<String, Object>> index = new HashMap<>();
+        List<Map<String, Object>> slots = null;
+        List<String> sessionIds = null;
+        String currentDay = null;
+        long currentStart = 0, currentEnd = 0;
+        for (final AgendaItem item : sorted) {
+            final long start = item.getEpochStartTime();
+            final long end = item.getEpochEndTime();
+            cal.setTimeInMillis(TimeUnit.SECONDS.toMillis(start));
+            final String day = dayFormat.format(cal.getTime());
+            if (!day.equals(currentDay)) {
+                currentDay = day;
+                cal.set(Calendar.HOUR_OF_DAY, 0);
+                cal.set(Calendar.MINUTE, 0);
+                cal.set(Calendar.SECOND, 0);
+                cal.set(Calendar.MILLISECOND, 0);
+                slots = new ArrayList<>();
+                final HashMap<String, Object> dayIndex = new HashMap<>();
+                dayIndex.put("date", TimeUnit.MILLISECONDS.toSeconds(cal.getTimeInMillis()));
+                dayIndex.put("slots", slots);
+                index.put(day, dayIndex);
+                sessionIds = null;
+            }
+
+            if (sessionIds == null || start != currentStart || end != currentEnd) {
+                currentStart = start;
+                currentEnd = end;
+                sessionIds = new ArrayList<>();
+                final HashMap<String, Object> slot = new HashMap<>();
+                slot.put("start", start);
+                slot.put("end", end);
+                slot.put("sessions", sessionIds);
+                slots.add(slot);
+            }
+            sessionIds.add(item.getId());
+        }
+        return index;
+    }
+
+    /**
+     * Precomputes what's happening now and what's up next at every point
+     * in the schedule.  Every session start and end is a boundary, keyed by
+     * its time in epoch seconds, and holds:
+     *
+     * time: the boundary, in epoch seconds
+     * now: ids of the sessions in progress from the boundary until the next
+     * next: ids of the first sessions to start after the boundary
+     * next_time: when those sessions start, in epoch seconds
+     *
+     * The keys are integers, so the database orders them numerically and a
+     * client can find the boundary in effect with endAt(now) and
+     * limitToLast(1).
+     */
+    public static Map<String, Map<String, Object>> timeline(Collection<AgendaItem> agendaItems) {
+        final List<AgendaItem> sorted = new ArrayList<>(agendaItems);
+        Collections.sort(sorted, START_TIME_COMPARATOR);
+
+        final TreeMap<Long, List<String>> idsByStart = new TreeMap<>();
+        final TreeSet<Long> boundaries = new TreeSet<>();
+        for (final AgendaItem item : sorted) {
+            List<String> ids = idsByStart.get(item.getEpochStartTime());
+            if (ids == null) {
+                ids = new ArrayList<>();
+                idsByStart.put(item.getEpochStartTime(), ids);
+            }
+            ids.add(item.getId());
+            boundaries.add(item.getEpochStartTime());
+            boundaries.add(item.getEpochEndTime());
+        }
+
+        final HashMap<String, Map<String, Object>> index = new HashMap<>();
+        final List<AgendaItem> active = new ArrayList<>();
+        int nextItem = 0;
+        for (final long time : boundaries) {
+            while (nextItem < sorted.size() && sorted.get(nextItem).getEpochStartTime() <= time) {
+                active.add(sorted.get(nextItem++));
+            }
+            final List<String> now = new ArrayList<>();
+            for (final Iterator<AgendaItem> it = active.iterator(); it.hasNext(); ) {
+                final AgendaItem item = it.next();
+                if (item.getEpochEndTime() <= time) {
+                    it.remove();
+                }
+                else {
+                    now.add(item.getId());
+                }
+            }
+
+            final HashMap<String, Object> boundary = new HashMap<>();
+            boundary.put("time", time);
+            boundary.put("now", now);
+            final Map.Entry<Long, List<String>> next = idsByStart.higherEntry(time);
+            if (next != null) {
+                boundary.put("next", next.getValue());
+                boundary.put("next_time", next.getKey());
+            }
+            index.put(String.valueOf(time), boundary);
+        }
+        return index;
+    }
+
+    /**
+     * Sort keys for speakers, by id, in the order they're listed.  Keys
+     * are positions, so a client can read them ordered with orderByValue.
+     */
+    public static Map<String, Long> speakerSortKeys(Collection<SpeakerItem> speakerItems) {
+        final HashMap<String, Long> index = new HashMap<>(speakerItems.size());
+        for (final SpeakerItem item : speakerItems) {
+            index.put(item.getId(), (long) item.getPosition());
+        }
+        return index;
+    }
+
+    /**
+     * Sort keys for companies, by id, in the order they're listed.  Keys
+     * are positions, so a client can read them ordered with orderByValue.
+     */
+    public static Map<String, Long> companySortKeys(Collection<CompanyItem> companyItems) {
+        final HashMap<String, Long> index = new HashMap<>(companyItems.size());
+        for (final CompanyItem item : companyItems) {
+            index.put(item.getId(), (long) item.getPosition());
+        }
+        return index;
+    }
+
+    /**
+     * Sort keys for attendees, by id, in name order.  Keys are made with
+     * {@link #nameSortKey(Collator, String)}.
+     */
+    public static Map<String, String> attendeeSortKeys(Collection<AttendeeItem> attendeeItems) {
+        final Collator collator = newNameCollator();
+        final HashMap<String, String> index = new HashMap<>(attendeeItems.size());
+        for (final AttendeeItem item : attendeeItems) {
+            index.put(item.getId(), nameSortKey(collator, item.getName()));
+        }
+        return index;
+    }
+
+    /**
+     * Collates names ignoring case and accents.  Collators aren't thread
+     * safe, so each caller needs its own.
+     */
+    public static Collator newNameCollator() {
+        final Collator collator = Collator.getInstance(Locale.US);
+        collator.setStrength(Collator.PRIMARY);
+        return collator;
+    }
+
+    /**
+     * Encodes the collation key of a name as lowercase hex, which the
+     * database orders the same way the collator does.  Names that collate
+     * equal get the same key, and the database then orders them by id.
+     */
+    public static String nameSortKey(Collator collator, String name) {
+        final byte[] bytes = collator.getCollationKey(name).toByteArray();
+        final StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (final byte b : bytes) {
+            sb.append(HEX_DIGITS[(b >> 4) & 0xf]).append(HEX_DIGITS[b & 0xf]);
+        }
+        return sb.toString();
+    }
+
+}
@@ -17,19 +17,37 @@
 package com.hyperaware.conference.backend;
 
 import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.utilities.encoding.CustomClassMapper;
+import com.google.firebase.tasks.OnCompleteListener;
 import com.google.firebase.tasks.Task;
 import com.google.firebase.tasks.Tasks;
 import com.hyperaware.conference.backend.config.ResourcesConfigStrategy;
+import com.hyperaware.conference.backend.db.DatabaseClient;
+import com.hyperaware.conference.backend.db.FirebaseDatabaseClient;
 import com.hyperaware.conference.eventmobi.EventmobiApi;
 import com.hyperaware.conference.eventmobi.EventmobiConfig;
 import com.hyperaware.conference.eventmobi.http.HttpEventmobiApi;
 import com.hyperaware.conference.eventmobi.model.EmAgendaItem;
+import com.hyperaware.conference.eventmobi.model.EmAgendaSectionResponse;
 import com.hyperaware.conference.eventmobi.model.EmAttendeeItem;
+import com.hyperaware.conference.eventmobi.model.EmAttendeesSectionResponse;
+import com.hyperaware.conference.eventmobi.model.EmCompaniesSectionResponse;
 import com.hyperaware.conference.eventmobi.model.EmCompanyItem;
 import com.hyperaware.conference.eventmobi.model.EmEvent;
 import com.hyperaware.conference.eventmobi.model.EmMapItem;
+import com.hyperaware.conference.eventmobi.model.EmMapsSectionResponse;
 import com.hyperaware.conference.eventmobi.model.EmSection;
 import com.hyperaware.conference.eventmobi.model.EmSpeakerItem;
+import com.hyperaware.conference.eventmobi.model.EmSpeakersSectionResponse;
+import com.hyperaware.conference.eventmobi.parser.ItemSink;
+import com.hyperaware.conference.mechanics.AsyncFetchers;
+import com.hyperaware.conference.mechanics.DigestStore;
+import com.hyperaware.conference.mechanics.FetchException;
+import com.hyperaware.conference.mechanics.FetchListener;
+import com.hyperaware.conference.mechanics.Fetcher;
+import com.hyperaware.conference.mechanics.LatencyHistogram;
+import com.hyperaware.conference.mechanics.MetricsRegistry;
+import com.hyperaware.conference.mechanics.ParseException;
 import com.hyperaware.conference.model.AgendaItem;
 import com.hyperaware.conference.model.AttendeeItem;
 import com.hyperaware.conference.model.CompanyItem;
@@ -39,17 +57,53 @@ import com.hyperaware.conference.model.MapItem;
 import com.hyperaware.conference.model.Section;
 import com.hyperaware.conference.model.SpeakerItem;
 
+import java.io.IOException;
+import java.text.Collator;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Populate {
 
-    private final FirebaseDatabase fdb;
+    /**
+     * Bump when an index is added or the way one is built changes, so that
+     * sections are indexed again even if their content hasn't changed.
+     */
+    static final int INDEX_VERSION = 1;
+
+    // Appended to a section's digest key for the key of its index stamp
+    private static final String INDEX_STAMP_SUFFIX = ".indexes";
+
+    private static final String[] METRIC_STAGES = {
+        FetchListener.STAGE_QUEUE,
+        FetchListener.STAGE_CONNECT,
+        FetchListener.STAGE_FIRST_BYTE,
+        FetchListener.STAGE_DOWNLOAD,
+        FetchListener.STAGE_PARSE,
+        FetchListener.STAGE_SINK,
+        FetchListener.STAGE_TOTAL,
+    };
+
+    private final DatabaseClient db;
     private final EventmobiConfig eventmobiConfig;
     private final EventmobiApi api;
-    private final ArrayList<Task<Void>> allWrites = new ArrayList<>();
+    private final PopulateOptions options;
+    private final MetricsRegistry metrics;
+    private final WriteScheduler writes;
+    // Set once the event has been populated, for sections that need it
+    // before their own copy has been parsed
+    private volatile String eventId;
+    private volatile TimeZone eventTimeZone;
 
     public static void main(String[] args) throws Exception {
         final ResourcesConfigStrategy configStrategy = new ResourcesConfigStrategy();
@@ -61,47 +115,205 @@ public class Populate {
         System.out.println("Eventmobi API key: " + eventmobiConfig.getApiKey());
         System.out.println("Eventmobi event name: " + eventmobiConfig.getEventName());
 
-        final Populate populate = new Populate(fdb, eventmobiConfig);
-        populate.run();
+        final MetricsRegistry metrics = new MetricsRegistry();
+        final PopulateOptions options = PopulateOptions.fromSystemProperties();
+        options.setDigestStore(configStrategy.getDigestStore());
+        try (EventmobiApi api = configStrategy.createEventmobiApi(metrics)) {
+            new Populate(fdb, eventmobiConfig, api, options, metrics).run();
+        }
 
         // Necessary to force Firebase thread to quit
         System.exit(0);
     }
 
     public Populate(FirebaseDatabase fdb, EventmobiConfig eventmobiConfig) {
-        this.fdb = fdb;
+        this(fdb, eventmobiConfig, new HttpEventmobiApi(eventmobiConfig), new PopulateOptions());
+    }
+
+    public Populate(FirebaseDatabase fdb, EventmobiConfig eventmobiConfig, EventmobiApi api, PopulateOptions options) {
+        this(fdb, eventmobiConfig, api, options, null);
+    }
+
+    public Populate(
+        FirebaseDatabase fdb,
+        EventmobiConfig eventmobiConfig,
+        EventmobiApi api,
+        PopulateOptions options,
+        MetricsRegistry metrics) {
+        this(new FirebaseDatabaseClient(fdb), eventmobiConfig, api, options, metrics);
+    }
+
+    /**
+     * @param db where the event data is written
+     * @param metrics if not null, the registry the api reports fetch
+     *     measurements into, which is printed per section after the run
+     */
+    public Populate(
+        DatabaseClient db,
+        EventmobiConfig eventmobiConfig,
+        EventmobiApi api,
+        PopulateOptions options,
+        MetricsRegistry metrics) {
+        this.db = db;
         this.eventmobiConfig = eventmobiConfig;
-        this.api = new HttpEventmobiApi(eventmobiConfig);
+        this.api = api;
+        this.options = options;
+        this.metrics = metrics;
+        this.writes = new WriteScheduler(options.getMaxInFlightWrites());
     }
 
     public void run() throws Exception {
+        final long start = System.nanoTime();
         populate();
         System.out.println("Waiting for writes to complete");
-        Tasks.await(Tasks.whenAll(allWrites));
+        writes.awaitAll();
+        printTiming("Populate", "total", start);
+        if (metrics != null) {
+            printMetrics(metrics);
+        }
+        System.out.println("Writes: " + writes.getLatency());
+
+        final SortedMap<String, Exception> failures = writes.getFailures();
+        if (!failures.isEmpty()) {
+            for (final Map.Entry<String, Exception> entry : failures.entrySet()) {
+                System.out.println("Write failed: " + entry.getKey() + ": " + entry.getValue());
+            }
+            throw new ExecutionException(
+                failures.size() + " writes failed", failures.get(failures.firstKey()));
+        }
         System.out.println("DONE");
     }
 
+    /**
+     * Prints where the time went for each section's fetch, in ms summed
+     * over all attempts, along with bytes over the wire and after
+     * decompression.
+     */
+    private static void printMetrics(MetricsRegistry metrics) {
+        final StringBuilder header = new StringBuilder(String.format("%-10s %4s", "fetch", "n"));
+        for (final String stage : METRIC_STAGES) {
+            header.append(String.format(" %10s", stage));
+        }
+        header.append(String.format(" %10s %10s %6s", "wire", "body", "errors"));
+        System.out.println(header);
+
+        for (final String fetch : metrics.getFetchNames()) {
+            final LatencyHistogram total = metrics.getHistogram(fetch, FetchListener.STAGE_TOTAL);
+            final StringBuilder line = new StringBuilder(
+                String.format("%-10s %4d", fetch, total != null ? total.getCount() : 0));
+            for (final String stage : METRIC_STAGES) {
+                final LatencyHistogram histogram = metrics.getHistogram(fetch, stage);
+                final long millis = histogram != null ? TimeUnit.NANOSECONDS.toMillis(histogram.getTotalNanos()) : 0;
+                line.append(String.format(" %10d", millis));
+            }
+            line.append(String.format(" %10d %10d %6d",
+                metrics.getBytes(fetch, FetchListener.BYTES_WIRE),
+                metrics.getBytes(fetch, FetchListener.BYTES_BODY),
+                metrics.getErrors(fetch)));
+            System.out.println(line);
+        }
+    }
+
     private void populate() throws Exception {
+        // The event must come first since it tells the api where to find
+        // the sections.  After that, each section is independent.
         populateEvent();
-        populateAgenda();
-        populateSpeakers();
-        populateAttendees();
-        populateMaps();
-        populateCompanies();
+
+        final List<Pipeline> pipelines = new ArrayList<>();
+        pipelines.add(new Pipeline() {
+            @Override
+            protected void run() throws Exception {
+                populateAgenda();
+            }
+        });
+        pipelines.add(new Pipeline() {
+            @Override
+            protected void run() throws Exception {
+                populateSpeakers();
+            }
+        });
+        pipelines.add(new Pipeline() {
+            @Override
+            protected void run() throws Exception {
+                populateAttendees();
+            }
+        });
+        pipelines.add(new Pipeline() {
+            @Override
+            protected void run() throws Exception {
+                populateMaps();
+            }
+        });
+        pipelines.add(new Pipeline() {
+            @Override
+            protected void run() throws Exception {
+                populateCompanies();
+            }
+        });
+
+        final ExecutorService executor =
+            AsyncFetchers.newBoundedExecutor(options.getParallelism(), "populate");
+        try {
+            AsyncFetchers.fetchAll(pipelines, executor);
+        }
+        catch (PipelineException e) {
+            throw (Exception) e.getCause();
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Populates one section, as a Fetcher so that the pipelines can be run
+     * with AsyncFetchers.fetchAll, which cancels the others if one fails.
+     */
+    private abstract static class Pipeline implements Fetcher<Void> {
+        @Override
+        public Void fetch() throws FetchException {
+            try {
+                run();
+                return null;
+            }
+            catch (FetchException e) {
+                throw e;
+            }
+            catch (Exception e) {
+                throw new PipelineException(e);
+            }
+        }
+
+        protected abstract void run() throws Exception;
+    }
+
+    /**
+     * Carries whatever a pipeline threw out of fetchAll, to be rethrown as
+     * it was.
+     */
+    private static class PipelineException extends FetchException {
+        private static final long serialVersionUID = 1L;
+
+        public PipelineException(Exception cause) {
+            super(cause);
+        }
     }
 
     private void populateEvent() throws Exception {
         System.out.println("Populating Event");
+        final long start = System.nanoTime();
         final EmEvent em_event = api.getEventFetcher().fetch().getResponse();
+        printTiming("Event", "fetch", start);
 
         final Event event = new Event();
         event.setId(assertNotEmpty(em_event.getId()));
+        eventId = event.getId();
         event.setName(assertNotEmpty(em_event.getName()));
         event.setFullName(assertNotEmpty(em_event.getFullName()));
         event.setLocationName(nullIfEmpty(em_event.getLocationName()));
         event.setLocationAddress(nullIfEmpty(em_event.getLocationAddress()));
         event.setWebsite(nullIfEmpty(em_event.getWebsite()));
         event.setTimezoneName(assertNotEmpty(em_event.getTimezoneName()));
+        eventTimeZone = TimeZone.getTimeZone(event.getTimezoneName());
         event.setDescription(assertNotEmpty(em_event.getDescription()));
 
         final List<EmSection> em_sections = em_event.getSections();
@@ -115,14 +327,30 @@ public class Populate {
         }
         event.setSections(sections);
 
-        final Task<Void> task = fdb.getReference("event").setValue(event);
-        allWrites.add(task);
+        final WriteGroup group = new WriteGroup("Event", null);
+        group.set("event", event);
+        group.done();
         System.out.println("Number of sections: " + sections.size());
     }
 
     private void populateAgenda() throws Exception {
         System.out.println("Populating Agenda");
-        final EmSection<EmAgendaItem> em_agenda = api.getAgendaSectionFetcher().fetch().getSection();
+        final long start = System.nanoTime();
+        // Agenda days and the timeline are in the event's time zone
+        final String indexStamp = checkIndexStamp("agenda", INDEX_VERSION + " " + eventTimeZone.getID());
+        final EmAgendaSectionResponse response = api.getAgendaSectionFetcher().fetch();
+        printTiming("Agenda", "fetch", start);
+        if (response == null) {
+            System.out.println("Agenda: unchanged, skipping");
+            return;
+        }
+        final Task<Object> previous = readPrevious("sections/agenda");
+        final Task<Object> previousSpeakerSessions = readPrevious(Indexes.SPEAKER_SESSIONS_PATH);
+        final Task<Object> previousAgendaDays = readPrevious(Indexes.AGENDA_DAYS_PATH);
+        final Task<Object> previousTimeline = readPrevious(Indexes.TIMELINE_PATH);
+        final Task<Object> previousSearch = readPrevious(Indexes.SEARCH_PATH + "/sessions");
+        final EmSection<EmAgendaItem> em_agenda = response.getSection();
+        final long convertStart = System.nanoTime();
 
         final Section<AgendaItem> agenda = new Section<>();
         copyBaseSection(em_agenda, agenda);
@@ -143,14 +371,43 @@ public class Populate {
         }
         agenda.setItems(items);
 
-        final Task<Void> task = fdb.getReference("sections/agenda").setValue(agenda);
-        allWrites.add(task);
+        printTiming("Agenda", "convert", convertStart);
+
+        final long indexStart = System.nanoTime();
+        final Map<String, List<String>> speakerSessions = Indexes.speakerSessions(items.values());
+        final Map<String, Map<String, Object>> agendaDays = Indexes.agendaDays(items.values(), eventTimeZone);
+        final Map<String, Map<String, Object>> timeline = Indexes.timeline(items.values());
+        final SearchIndex search = new SearchIndex();
+        for (final AgendaItem item : items.values()) {
+            search.add(item.getId(), item.getTopic());
+        }
+        printTiming("Agenda", "index", indexStart);
+
+        final WriteGroup group = new WriteGroup("Agenda", "agenda", indexStamp);
+        writeDiffed(group, "sections/agenda", agenda, previous, 2);
+        writeDiffed(group, Indexes.SPEAKER_SESSIONS_PATH, speakerSessions, previousSpeakerSessions, 1);
+        writeDiffed(group, Indexes.AGENDA_DAYS_PATH, agendaDays, previousAgendaDays, 1);
+        writeDiffed(group, Indexes.TIMELINE_PATH, timeline, previousTimeline, 1);
+        writeDiffed(group, Indexes.SEARCH_PATH + "/sessions", search.getShards(), previousSearch, 2);
+        group.done(response.getContentDigest());
         System.out.println("Number of agenda items: " + items.size());
     }
 
     private void populateSpeakers() throws Exception {
         System.out.println("Populating Speakers");
-        final EmSection<EmSpeakerItem> em_speakers = api.getSpeakersSectionFetcher().fetch().getSection();
+        final long start = System.nanoTime();
+        final String indexStamp = checkIndexStamp("speakers", String.valueOf(INDEX_VERSION));
+        final EmSpeakersSectionResponse response = api.getSpeakersSectionFetcher().fetch();
+        printTiming("Speakers", "fetch", start);
+        if (response == null) {
+            System.out.println("Speakers: unchanged, skipping");
+            return;
+        }
+        final Task<Object> previous = readPrevious("sections/speakers");
+        final Task<Object> previousSortKeys = readPrevious(Indexes.SORT_KEYS_PATH + "/speakers");
+        final Task<Object> previousSearch = readPrevious(Indexes.SEARCH_PATH + "/speakers");
+        final EmSection<EmSpeakerItem> em_speakers = response.getSection();
+        final long convertStart = System.nanoTime();
         assertNotEmpty(em_speakers.getEventId());
 
         final Section<SpeakerItem> speakers = new Section<>();
@@ -186,56 +443,295 @@ public class Populate {
         }
         speakers.setItems(items);
 
-        final Task<Void> task = fdb.getReference("sections/speakers").setValue(speakers);
-        allWrites.add(task);
+        printTiming("Speakers", "convert", convertStart);
+
+        final long indexStart = System.nanoTime();
+        final Map<String, Long> sortKeys = Indexes.speakerSortKeys(items.values());
+        final SearchIndex search = new SearchIndex();
+        for (final SpeakerItem item : items.values()) {
+            search.add(item.getId(), item.getName(), item.getCompanyName(), item.getTitle());
+        }
+        printTiming("Speakers", "index", indexStart);
+
+        final WriteGroup group = new WriteGroup("Speakers", "speakers", indexStamp);
+        writeDiffed(group, "sections/speakers", speakers, previous, 2);
+        writeDiffed(group, Indexes.SORT_KEYS_PATH + "/speakers", sortKeys, previousSortKeys, 1);
+        writeDiffed(group, Indexes.SEARCH_PATH + "/speakers", search.getShards(), previousSearch, 2);
+        group.done(response.getContentDigest());
         System.out.println("Number of speakers: " + items.size());
     }
 
     private void populateAttendees() throws Exception {
+        final String indexStamp = checkIndexStamp("attendees", String.valueOf(INDEX_VERSION));
+        if (options.getAttendeeChunkSize() > 0) {
+            populateAttendeesInChunks(options.getAttendeeChunkSize(), indexStamp);
+            return;
+        }
+
         System.out.println("Populating Attendees");
-        final EmSection<EmAttendeeItem> em_attendees = api.getAttendeesSectionFetcher().fetch().getSection();
-        assertNotEmpty(em_attendees.getEventId());
+        final long start = System.nanoTime();
+
+        // Attendees are converted as they are parsed so that the full list of
+        // Eventmobi items is never held in memory alongside the converted map.
+        // Image URLs need the event id, which isn't known until the section
+        // has been completely parsed, so those are resolved afterward.
+        final HashMap<String, AttendeeItem> items = new HashMap<>();
+        final ItemSink<EmAttendeeItem> sink = new ItemSink<EmAttendeeItem>() {
+            @Override
+            public void accept(EmAttendeeItem em_item) {
+                final AttendeeItem item = convertAttendee(em_item);
+                items.put(item.getId(), item);
+            }
+        };
+
+        final EmAttendeesSectionResponse response = api.getAttendeesSectionFetcher(sink).fetch();
+        printTiming("Attendees", "fetch and convert", start);
+        if (response == null) {
+            System.out.println("Attendees: unchanged, skipping");
+            return;
+        }
+        final Task<Object> previous = readPrevious("sections/attendees");
+        final Task<Object> previousSortKeys = readPrevious(Indexes.SORT_KEYS_PATH + "/attendees");
+        final Task<Object> previousSearch = readPrevious(Indexes.SEARCH_PATH + "/attendees");
+        final EmSection<EmAttendeeItem> em_attendees = response.getSection();
+        final String eventId = assertNotEmpty(em_attendees.getEventId());
+
+        for (final AttendeeItem item : items.values()) {
+            resolveAttendeeImages(item, eventId);
+        }
 
         final Section<AttendeeItem> attendees = new Section<>();
         copyBaseSection(em_attendees, attendees);
+        attendees.setItems(items);
 
-        final HashMap<String, AttendeeItem> items = new HashMap<>(em_attendees.getItems().size());
-        for (EmAttendeeItem em_item : em_attendees.getItems()) {
-            final AttendeeItem item = new AttendeeItem();
-            item.setId(assertNotEmpty(em_item.getId()));
-            item.setName(assertNotEmpty(em_item.getName()));
-            item.setCompanyName(nullIfEmpty(em_item.getCompanyName()));
-            item.setTitle(nullIfEmpty(em_item.getTitle()));
+        final long indexStart = System.nanoTime();
+        final Map<String, String> sortKeys = Indexes.attendeeSortKeys(items.values());
+        final SearchIndex search = new SearchIndex();
+        for (final AttendeeItem item : items.values()) {
+            search.add(item.getId(), item.getName(), item.getCompanyName(), item.getTitle());
+        }
+        printTiming("Attendees", "index", indexStart);
 
-            String image50 = nullIfEmpty(em_item.getImage50());
-            if (image50 != null) {
-                image50 = eventmobiConfig.getPersonImageUrl(em_attendees.getEventId(), image50);
+        final WriteGroup group = new WriteGroup("Attendees", "attendees", indexStamp);
+        writeDiffed(group, "sections/attendees", attendees, previous, 2);
+        writeDiffed(group, Indexes.SORT_KEYS_PATH + "/attendees", sortKeys, previousSortKeys, 1);
+        writeDiffed(group, Indexes.SEARCH_PATH + "/attendees", search.getShards(), previousSearch, 2);
+        group.done(response.getContentDigest());
+        System.out.println("Number of attendees: " + items.size());
+    }
+
+    /**
+     * Populates attendees without ever holding more than a few chunks of
+     * them in memory.  Each attendee is converted as it's parsed, and every
+     * chunkSize of them are written to sections/attendees/items with one
+     * updateChildren.  Since the write scheduler blocks once its limit of
+     * writes is in flight, parsing waits for the database to catch up,
+     * which keeps peak heap at a few chunks however many attendees there
+     * are.
+     *
+     * Chunks replace the attendees they contain and leave the rest alone,
+     * so clients never see the list emptied.  Once every chunk has been
+     * written, attendees that were in the database but aren't in the
+     * section anymore are removed.  Their ids come from the previous
+     * attendee sort keys, which has a key for every attendee.  Until that
+     * index has been written once, they come from reading the items
+     * themselves.  Without populate.incremental, nothing previous is read,
+     * so the items are cleared before the first chunk instead.  If the run
+     * fails part way, the digest isn't committed and the next run writes
+     * everything again.  Unchanged content is only known to be unchanged
+     * once it has all streamed by, so the attendees are written again
+     * regardless, and only the rest of the section is skipped.
+     *
+     * The sort keys and search index for the attendees are built as they
+     * stream by and written at the end, so those (and the previous sort
+     * keys) are held for the whole section.  They're a small fraction of
+     * the attendees themselves, but they do grow with the number of
+     * attendees.
+     */
+    private void populateAttendeesInChunks(final int chunkSize, final String indexStamp) throws Exception {
+        System.out.println("Populating Attendees in chunks of " + chunkSize);
+        final long start = System.nanoTime();
+        final WriteGroup group = new WriteGroup("Attendees", "attendees", indexStamp);
+        // The event id is needed for image URLs before the section's own
+        // copy of it has been parsed
+        final String eventId = this.eventId;
+
+        final AttendeeChunkSink sink = new AttendeeChunkSink(group, eventId, chunkSize, !options.isIncremental());
+        final EmAttendeesSectionResponse response = api.getAttendeesSectionFetcher(sink).fetch();
+        printTiming("Attendees", "fetch and convert", start);
+        if (response == null) {
+            // The attendees have already streamed by and most are written,
+            // so finish writing them, in case the items were cleared first
+            System.out.println("Attendees: unchanged, skipping indexes");
+            sink.flush();
+            group.done();
+            return;
+        }
+        final Task<Object> previousSortKeys = readPrevious(Indexes.SORT_KEYS_PATH + "/attendees");
+        final Task<Object> previousSearch = readPrevious(Indexes.SEARCH_PATH + "/attendees");
+        sink.flush();
+
+        final EmSection<EmAttendeeItem> em_attendees = response.getSection();
+        if (!eventId.equals(em_attendees.getEventId())) {
+            throw new IllegalArgumentException(
+                "Attendees are for event " + em_attendees.getEventId() + ", not " + eventId);
+        }
+        final HashMap<String, Object> base = new HashMap<>();
+        base.put("id", assertNotEmpty(em_attendees.getId()));
+        base.put("name", assertNotEmpty(em_attendees.getName()));
+        base.put("type", assertNotEmpty(em_attendees.getType()));
+        group.update("sections/attendees", "sections/attendees", base);
+        if (previousSortKeys != null) {
+            removeStaleAttendees(group, previousSortKeys, sink.sortKeys.keySet());
+        }
+        writeDiffed(group, Indexes.SORT_KEYS_PATH + "/attendees", sink.sortKeys, previousSortKeys, 1);
+        writeDiffed(group, Indexes.SEARCH_PATH + "/attendees", sink.search.getShards(), previousSearch, 2);
+        group.done(response.getContentDigest());
+        // Keyed by id, so attendees seen again by a retried fetch count once
+        System.out.println("Number of attendees: " + sink.sortKeys.size());
+    }
+
+    /**
+     * Removes the attendees that were written before this run but aren't
+     * in the section anymore.
+     *
+     * @param previousSortKeys the read of the attendee sort keys from
+     *     before this run
+     * @param ids the ids of the attendees in the section
+     */
+    private void removeStaleAttendees(WriteGroup group, Task<Object> previousSortKeys, Set<String> ids)
+        throws InterruptedException, ExecutionException {
+        Object previous = Tasks.await(previousSortKeys);
+        if (previous == null) {
+            // Read after this run's chunks were written, so the current
+            // attendees are in there too, and they're ignored below
+            previous = Tasks.await(db.readValue(AttendeeChunkSink.ITEMS_PATH));
+        }
+
+        final HashMap<String, Object> stale = new HashMap<>();
+        if (previous instanceof Map) {
+            for (final Object id : ((Map<?, ?>) previous).keySet()) {
+                if (!ids.contains(id.toString())) {
+                    stale.put(id.toString(), null);
+                }
             }
-            item.setImage50(image50);
+        }
+        else if (previous instanceof List) {
+            // The database returns maps with mostly numeric keys as lists
+            final List<?> list = (List<?>) previous;
+            for (int i = 0; i < list.size(); i++) {
+                if (list.get(i) != null && !ids.contains(String.valueOf(i))) {
+                    stale.put(String.valueOf(i), null);
+                }
+            }
+        }
+        if (!stale.isEmpty()) {
+            System.out.println("Attendees: removing " + stale.size() + " attendees no longer in the section");
+            update(group, AttendeeChunkSink.ITEMS_PATH, stale);
+        }
+    }
 
-            String image100 = nullIfEmpty(em_item.getImage100());
-            if (image100 != null) {
-                image100 = eventmobiConfig.getPersonImageUrl(em_attendees.getEventId(), image100);
+    /**
+     * Converts attendees as they're parsed and writes them a chunk at a
+     * time.  Only the attendees' sort keys and search index are kept for
+     * the whole section.
+     */
+    private class AttendeeChunkSink implements ItemSink<EmAttendeeItem> {
+        private static final String ITEMS_PATH = "sections/attendees/items";
+
+        private final WriteGroup group;
+        private final String eventId;
+        private final int chunkSize;
+        private final Collator collator = Indexes.newNameCollator();
+        private final HashMap<String, String> sortKeys = new HashMap<>();
+        private final SearchIndex search = new SearchIndex();
+        private HashMap<String, Object> chunk;
+        private boolean clearFirst;
+        private int chunks;
+
+        /**
+         * @param clearFirst whether to clear the existing items before the
+         *     first chunk, when stale ones can't be removed afterward
+         */
+        public AttendeeChunkSink(WriteGroup group, String eventId, int chunkSize, boolean clearFirst) {
+            this.group = group;
+            this.eventId = eventId;
+            this.chunkSize = chunkSize;
+            this.clearFirst = clearFirst;
+            this.chunk = new HashMap<>(chunkSize);
+        }
+
+        @Override
+        public void accept(EmAttendeeItem em_item) throws ParseException {
+            final AttendeeItem item = convertAttendee(em_item);
+            resolveAttendeeImages(item, eventId);
+            chunk.put(item.getId(), item);
+            sortKeys.put(item.getId(), Indexes.nameSortKey(collator, item.getName()));
+            search.add(item.getId(), item.getName(), item.getCompanyName(), item.getTitle());
+            if (chunk.size() == chunkSize) {
+                flush();
             }
-            item.setImage100(image100);
+        }
 
-            item.setAbout(nullIfEmpty(em_item.getAbout()));
-            item.setWebsite(nullIfEmpty(em_item.getWebsite()));
-            item.setFacebook(nullIfEmpty(em_item.getFacebook()));
-            item.setTwitter(nullIfEmpty(em_item.getTwitter()));
-            item.setLinkedin(nullIfEmpty(em_item.getLinkedin()));
-            items.put(item.getId(), item);
+        /**
+         * Starts writing the attendees converted so far.  Blocks while the
+         * maximum number of writes are in flight.
+         */
+        public void flush() throws ParseException {
+            try {
+                if (clearFirst) {
+                    group.set(ITEMS_PATH, null);
+                    clearFirst = false;
+                }
+                if (!chunk.isEmpty()) {
+                    group.update(ITEMS_PATH + "#chunk" + chunks++, ITEMS_PATH, chunk);
+                    chunk = new HashMap<>(chunkSize);
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ParseException("Interrupted waiting to write attendees", e);
+            }
         }
-        attendees.setItems(items);
+    }
 
-        final Task<Void> task = fdb.getReference("sections/attendees").setValue(attendees);
-        allWrites.add(task);
-        System.out.println("Number of attendees: " + items.size());
+    private static AttendeeItem convertAttendee(EmAttendeeItem em_item) {
+        final AttendeeItem item = new AttendeeItem();
+        item.setId(assertNotEmpty(em_item.getId()));
+        item.setName(assertNotEmpty(em_item.getName()));
+        item.setCompanyName(nullIfEmpty(em_item.getCompanyName()));
+        item.setTitle(nullIfEmpty(em_item.getTitle()));
+        item.setImage50(nullIfEmpty(em_item.getImage50()));
+        item.setImage100(nullIfEmpty(em_item.getImage100()));
+        item.setAbout(nullIfEmpty(em_item.getAbout()));
+        item.setWebsite(nullIfEmpty(em_item.getWebsite()));
+        item.setFacebook(nullIfEmpty(em_item.getFacebook()));
+        item.setTwitter(nullIfEmpty(em_item.getTwitter()));
+        item.setLinkedin(nullIfEmpty(em_item.getLinkedin()));
+        return item;
+    }
+
+    private void resolveAttendeeImages(AttendeeItem item, String eventId) {
+        if (item.getImage50() != null) {
+            item.setImage50(eventmobiConfig.getPersonImageUrl(eventId, item.getImage50()));
+        }
+        if (item.getImage100() != null) {
+            item.setImage100(eventmobiConfig.getPersonImageUrl(eventId, item.getImage100()));
+        }
     }
 
     private void populateMaps() throws Exception {
         System.out.println("Populating Maps");
-        final EmSection<EmMapItem> em_maps = api.getMapsSectionFetcher().fetch().getSection();
+        final long start = System.nanoTime();
+        final EmMapsSectionResponse response = api.getMapsSectionFetcher().fetch();
+        printTiming("Maps", "fetch", start);
+        if (response == null) {
+            System.out.println("Maps: unchanged, skipping");
+            return;
+        }
+        final Task<Object> previous = readPrevious("sections/maps");
+        final EmSection<EmMapItem> em_maps = response.getSection();
+        final long convertStart = System.nanoTime();
         assertNotEmpty(em_maps.getEventId());
 
         final Section<MapItem> maps = new Section<>();
@@ -259,14 +755,28 @@ public class Populate {
         }
         maps.setItems(items);
 
-        final Task<Void> task = fdb.getReference("sections/maps").setValue(maps);
-        allWrites.add(task);
+        printTiming("Maps", "convert", convertStart);
+
+        final WriteGroup group = new WriteGroup("Maps", "maps");
+        writeDiffed(group, "sections/maps", maps, previous, 2);
+        group.done(response.getContentDigest());
         System.out.println("Number of maps: " + items.size());
     }
 
     private void populateCompanies() throws Exception {
         System.out.println("Populating Companies");
-        final EmSection<EmCompanyItem> em_companies = api.getCompaniesSectionFetcher().fetch().getSection();
+        final long start = System.nanoTime();
+        final String indexStamp = checkIndexStamp("companies", String.valueOf(INDEX_VERSION));
+        final EmCompaniesSectionResponse response = api.getCompaniesSectionFetcher().fetch();
+        printTiming("Companies", "fetch", start);
+        if (response == null) {
+            System.out.println("Companies: unchanged, skipping");
+            return;
+        }
+        final Task<Object> previous = readPrevious("sections/companies");
+        final Task<Object> previousSortKeys = readPrevious(Indexes.SORT_KEYS_PATH + "/companies");
+        final EmSection<EmCompanyItem> em_companies = response.getSection();
+        final long convertStart = System.nanoTime();
 
         final Section<CompanyItem> companies = new Section<>();
         companies.setId(em_companies.getId());
@@ -323,11 +833,257 @@ public class Populate {
         }
         companies.setItems(items);
 
-        final Task<Void> task = fdb.getReference("sections/companies").setValue(companies);
-        allWrites.add(task);
+        printTiming("Companies", "convert", convertStart);
+
+        final Map<String, Long> sortKeys = Indexes.companySortKeys(items.values());
+
+        final WriteGroup group = new WriteGroup("Companies", "companies", indexStamp);
+        writeDiffed(group, "sections/companies", companies, previous, 2);
+        writeDiffed(group, Indexes.SORT_KEYS_PATH + "/companies", sortKeys, previousSortKeys, 1);
+        group.done(response.getContentDigest());
         System.out.println("Number of companies: " + items.size());
     }
 
+    /**
+     * Starts reading what's currently at the given path, if sections are
+     * being written incrementally.
+     *
+     * @return the read, or null if sections are written whole
+     */
+    private Task<Object> readPrevious(final String path) {
+        if (!options.isIncremental()) {
+            return null;
+        }
+        return db.readValue(path);
+    }
+
+    /**
+     * Writes a value, changing only the children that differ from what was
+     * previously at the path.  Without a previous value to compare
+     * against, the value is written whole.
+     *
+     * @param previous the read of the previous value, from readPrevious
+     * @param depth how far to descend into children before replacing a
+     *     child whole, e.g. 2 for the items of a section
+     */
+    private void writeDiffed(
+        final WriteGroup group,
+        final String path,
+        final Object value,
+        final Task<Object> previous,
+        final int depth) throws InterruptedException {
+
+        final String name = group.name;
+        if (previous == null) {
+            group.set(path, value);
+            return;
+        }
+
+        final long start = System.nanoTime();
+        final Object previousValue;
+        try {
+            previousValue = Tasks.await(previous);
+        }
+        catch (ExecutionException e) {
+            System.out.println(name + ": can't read previous " + path + ", writing everything: " + e.getCause());
+            group.set(path, value);
+            return;
+        }
+        printTiming(name, "read previous " + path, start);
+
+        final Map<String, Object> updates =
+            ValueDiff.diff(previousValue, CustomClassMapper.convertToPlainJavaTypes(value), depth);
+        if (updates.containsKey("")) {
+            group.set(path, value);
+        }
+        else if (updates.isEmpty()) {
+            System.out.println(name + ": no changes to " + path);
+        }
+        else {
+            System.out.println(name + ": " + updates.size() + " children of " + path + " changed");
+            update(group, path, updates);
+        }
+    }
+
+    /**
+     * Applies the updates to the children of the path, in batches of
+     * updateChildren calls.
+     */
+    private void update(final WriteGroup group, final String path, final Map<String, Object> updates)
+        throws InterruptedException {
+        final int batchSize = options.getUpdateBatchSize();
+        final List<Map<String, Object>> batches = new ArrayList<>();
+        HashMap<String, Object> batch = null;
+        for (final Map.Entry<String, Object> entry : updates.entrySet()) {
+            if (batch == null || batch.size() == batchSize) {
+                batch = new HashMap<>(Math.min(batchSize, updates.size()));
+                batches.add(batch);
+            }
+            batch.put(entry.getKey(), entry.getValue());
+        }
+
+        for (int i = 0; i < batches.size(); i++) {
+            group.update(path + "#" + i, path, batches.get(i));
+        }
+    }
+
+    /**
+     * Tracks the writes that together update one section and the indexes
+     * derived from it, and commits the section's digest once they've all
+     * succeeded, so that a section is never skipped as unchanged while
+     * any of its writes are missing.  Call done() with the digest of the
+     * fetched section after the last one is submitted.  Each write blocks
+     * while the maximum number of writes are in flight.
+     */
+    private class WriteGroup {
+        private final String name;
+        private final String digestKey;
+        private final String indexStamp;
+        private volatile String digest;
+        private final long start = System.nanoTime();
+        // Starts at one for the caller, until it calls done()
+        private final AtomicInteger pending = new AtomicInteger(1);
+        private final AtomicInteger submitted = new AtomicInteger();
+        private final AtomicBoolean failed = new AtomicBoolean();
+
+        /**
+         * @param digestKey the key to commit the digest under, or null for
+         *     none
+         */
+        public WriteGroup(String name, String digestKey) {
+            this(name, digestKey, null);
+        }
+
+        /**
+         * @param indexStamp committed along with the digest, from
+         *     checkIndexStamp(), or null for none
+         */
+        public WriteGroup(String name, String digestKey, String indexStamp) {
+            this.name = name;
+            this.digestKey = digestKey;
+            this.indexStamp = indexStamp;
+        }
+
+        /**
+         * Starts a setValue at the path.  A null value removes it.
+         */
+        public void set(final String path, final Object value) throws InterruptedException {
+            submit(path, new WriteScheduler.Write() {
+                @Override
+                public Task<Void> start() {
+                    return db.setValue(path, value);
+                }
+            });
+        }
+
+        /**
+         * Starts an updateChildren at the path.
+         *
+         * @param failurePath reported if this write fails
+         */
+        public void update(final String failurePath, final String path, final Map<String, Object> children)
+            throws InterruptedException {
+            submit(failurePath, new WriteScheduler.Write() {
+                @Override
+                public Task<Void> start() {
+                    return db.updateChildren(path, children);
+                }
+            });
+        }
+
+        private void submit(final String failurePath, final WriteScheduler.Write write) throws InterruptedException {
+            pending.incrementAndGet();
+            submitted.incrementAndGet();
+            try {
+                writes.submit(failurePath, write, new OnCompleteListener<Void>() {
+                    @Override
+                    public void onComplete(Task<Void> task) {
+                        if (!task.isSuccessful()) {
+                            failed.set(true);
+                        }
+                        finishOne();
+                    }
+                });
+            }
+            catch (InterruptedException | RuntimeException e) {
+                failed.set(true);
+                finishOne();
+                throw e;
+            }
+        }
+
+        public void done() {
+            done(null);
+        }
+
+        /**
+         * @param digest the digest to commit once every write has
+         *     succeeded, or null for none
+         */
+        public void done(String digest) {
+            this.digest = digest;
+            finishOne();
+        }
+
+        private void finishOne() {
+            if (pending.decrementAndGet() == 0) {
+                printTiming(name, submitted.get() + " writes", start);
+                if (!failed.get()) {
+                    commitDigest(name, digestKey, digest, indexStamp);
+                }
+            }
+        }
+    }
+
+    /**
+     * Digests only cover a section's content, but its indexes also depend on
+     * how they're built, and the agenda's on the event's time zone.  Those
+     * are described by a stamp, committed along with the section's digest.
+     * If the stamp last committed isn't this one, the section's digest is
+     * forgotten, so the section is fetched and indexed again even if its
+     * content is unchanged.  That includes the first run with indexes
+     * against a digest committed before there were any.
+     *
+     * @return the stamp, for the section's WriteGroup
+     */
+    private String checkIndexStamp(final String digestKey, final String stamp) {
+        final DigestStore digests = options.getDigestStore();
+        if (digests != null && !stamp.equals(digests.getCommitted(digestKey + INDEX_STAMP_SUFFIX))) {
+            try {
+                digests.forget(digestKey);
+            }
+            catch (IOException e) {
+                System.out.println(digestKey + ": failed to save digests: " + e);
+            }
+        }
+        return stamp;
+    }
+
+    /**
+     * Commits the digest of fetched content once it has been written, so
+     * the same content will be skipped next time, and the stamp of the
+     * indexes written from it.
+     */
+    private void commitDigest(final String name, final String digestKey, final String digest, final String indexStamp) {
+        final DigestStore digests = options.getDigestStore();
+        if (digestKey != null && digest != null && digests != null) {
+            try {
+                if (indexStamp != null) {
+                    digests.commit(digestKey + INDEX_STAMP_SUFFIX, indexStamp);
+                }
+                digests.commit(digestKey, digest);
+            }
+            catch (IOException e) {
+                System.out.println(name + ": failed to save digest: " + e);
+            }
+        }
+    }
+
+    private static void printTiming(String name, String stage, long startNanos) {
+        final long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        System.out.println(name + ": " + stage + " took " + millis + " ms");
+    }
+
     private static void copyBaseSection(EmSection<?> em_section, Section<?> section) {
         section.setId(assertNotEmpty(em_section.getId()));
         section.setName(assertNotEmpty(em_section.getName()));
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.backend;
+
+import com.hyperaware.conference.backend.config.MyEventmobiConfig;
+import com.hyperaware.conference.backend.db.InMemoryDatabaseClient;
+import com.hyperaware.conference.eventmobi.EventDataLoader;
+import com.hyperaware.conference.eventmobi.EventmobiConfig;
+import com.hyperaware.conference.eventmobi.file.FileEventmobiApi;
+import com.hyperaware.conference.eventmobi.file.SyntheticEventGenerator;
+import com.hyperaware.conference.mechanics.MetricsRegistry;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Not a unit test.  Runs Populate end to end against generated events of
+ * increasing size, reading them from disk with FileEventmobiApi and
+ * writing to an InMemoryDatabaseClient that simulates database latency,
+ * so results don't depend on a network or a Firebase project.  For each
+ * scale, these stages are measured:
+ *
+ * generate: writing the synthetic event to disk
+ * load: reading the whole event into memory with EventDataLoader, for
+ *     comparison with populate, which streams it
+ * populate: the first populate, into an empty database
+ * repopulate: populating the same data again, which diffs everything
+ *     against the database and writes nothing (unless
+ *     populate.incremental is false)
+ *
+ * For each, it reports items and input bytes per second, and the peak
+ * heap in use.  Peak heap includes garbage not yet collected, so it's an
+ * upper bound; run with a fixed -Xmx to see whether a scale fits.
+ *
+ * Scales are multiples of the base event size in SyntheticEventGenerator,
+ * given as arguments (default 1 10 100).  Populate options come from the
+ * usual system properties, and these:
+ *
+ * benchmark.latency_millis: simulated database round trip (default 20)
+ * benchmark.jitter_millis: random extra latency, up to this (default 20)
+ */
+
+public class PopulateBenchmark {
+
+    public static final String LATENCY_MILLIS_PROP = "benchmark.latency_millis";
+    public static final String JITTER_MILLIS_PROP = "benchmark.jitter_millis";
+
+    private final List<String> results = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        final List<Double> scales = new ArrayList<>();
+        for (final String arg : args) {
+            scales.add(Double.parseDouble(arg));
+        }
+        if (scales.isEmpty()) {
+            scales.add(1.0);
+            scales.add(10.0);
+            scales.add(100.0);
+        }
+
+        final PopulateBenchmark benchmark = new PopulateBenchmark();
+        for (final double scale : scales) {
+            benchmark.run(scale);
+        }
+        benchmark.printResults();
+    }
+
+    private void run(double scale) throws Exception {
+        final SyntheticEventGenerator generator = SyntheticEventGenerator.scaled(scale);
+        System.out.println("Scale " + scale + ": " + generator);
+
+        final File dir = File.createTempFile("populate-benchmark", "");
+        dir.delete();
+        final InMemoryDatabaseClient db = new InMemoryDatabaseClient(
+            Long.getLong(LATENCY_MILLIS_PROP, 20), Long.getLong(JITTER_MILLIS_PROP, 20), 0);
+        try {
+            resetPeakHeap();
+            long start = System.nanoTime();
+            generator.generate(dir);
+            final long bytes = FileUtils.sizeOfDirectory(dir);
+            record(scale, "generate", generator.getItemCount(), bytes, start);
+
+            resetPeakHeap();
+            start = System.nanoTime();
+            load(dir);
+            record(scale, "load", generator.getItemCount(), bytes, start);
+
+            resetPeakHeap();
+            start = System.nanoTime();
+            populate(dir, db);
+            record(scale, "populate", generator.getItemCount(), bytes, start);
+
+            resetPeakHeap();
+            start = System.nanoTime();
+            populate(dir, db);
+            record(scale, "repopulate", generator.getItemCount(), bytes, start);
+        }
+        finally {
+            db.shutdown();
+            FileUtils.deleteQuietly(dir);
+        }
+    }
+
+    private static void load(File dir) throws Exception {
+        final ForkJoinPool pool = new ForkJoinPool();
+        try (FileEventmobiApi api = new FileEventmobiApi(dir)) {
+            new EventDataLoader(api, pool).load();
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void populate(File dir, InMemoryDatabaseClient db) throws Exception {
+        final EventmobiConfig config = new MyEventmobiConfig("benchmark", "benchmark");
+        final MetricsRegistry metrics = new MetricsRegistry();
+        try (FileEventmobiApi api = new FileEventmobiApi(dir, metrics)) {
+            new Populate(db, config, api, PopulateOptions.fromSystemProperties(), metrics).run();
+        }
+    }
+
+    private void record(double scale, String stage, int items, long bytes, long startNanos) {
+        final long nanos = System.nanoTime() - startNanos;
+        final double seconds = nanos / 1e9;
+        results.add(String.format("%8s %-10s %9d %9d %10.0f %8.1f %8d",
+            scale,
+            stage,
+            TimeUnit.NANOSECONDS.toMillis(nanos),
+            items,
+            items / seconds,
+            bytes / seconds / (1024 * 1024),
+            getPeakHeap() / (1024 * 1024)));
+    }
+
+    private void printResults() {
+        System.out.println(String.format("%8s %-10s %9s %9s %10s %8s %8s",
+            "scale", "stage", "ms", "items", "items/s", "MB/s", "peak MB"));
+        for (final String result : results) {
+            System.out.println(result);
+        }
+    }
+
+    /**
+     * Collects what garbage it can, then starts tracking peak heap from
+     * there.
+     */
+    private static void resetPeakHeap() {
+        System.gc();
+        for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * @return the sum of the peak usage of each heap pool since the last
+     *     reset.  Pools peak at different times, so this overestimates.
+     */
+    private static long getPeakHeap() {
+        long peak = 0;
+        for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+}
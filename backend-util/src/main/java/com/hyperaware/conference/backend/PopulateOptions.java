@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.backend;
+
+import com.hyperaware.conference.mechanics.DigestStore;
+
+/**
+ * Tunables for a Populate run.  Defaults are suitable for a typical event;
+ * each can be overridden with a system property of the same name when
+ * running from the command line.
+ */
+
+public class PopulateOptions {
+
+    public static final String PARALLELISM_PROP = "populate.parallelism";
+
+    public static final String MAX_IN_FLIGHT_WRITES_PROP = "populate.max_in_flight_writes";
+    public static final String INCREMENTAL_PROP = "populate.incremental";
+    public static final String UPDATE_BATCH_SIZE_PROP = "populate.update_batch_size";
+    public static final String ATTENDEE_CHUNK_SIZE_PROP = "populate.attendee_chunk_size";
+
+    /** One thread for each of the section pipelines. */
+    public static final int DEFAULT_PARALLELISM = 5;
+
+    /** Enough for every section pipeline to have a write outstanding. */
+    public static final int DEFAULT_MAX_IN_FLIGHT_WRITES = 8;
+
+    /** Children changed per updateChildren call. */
+    public static final int DEFAULT_UPDATE_BATCH_SIZE = 500;
+
+    private int parallelism = DEFAULT_PARALLELISM;
+    private int maxInFlightWrites = DEFAULT_MAX_IN_FLIGHT_WRITES;
+    // Whether sections are diffed against what's already in the database,
+    // writing only what changed, or written whole
+    private boolean incremental = true;
+    private int updateBatchSize = DEFAULT_UPDATE_BATCH_SIZE;
+    // If more than 0, attendees are streamed into the database this many
+    // at a time instead of being written as one section.  Their sort keys
+    // and search index are still held whole, so memory still grows with
+    // the number of attendees, just much more slowly.
+    private int attendeeChunkSize;
+    // Where digests of handled sections are committed, or null to always
+    // handle every section.  Must be the store the api's fetchers use.
+    private DigestStore digestStore;
+
+    public static PopulateOptions fromSystemProperties() {
+        final PopulateOptions options = new PopulateOptions();
+        options.setParallelism(Integer.getInteger(PARALLELISM_PROP, DEFAULT_PARALLELISM));
+        options.setMaxInFlightWrites(Integer.getInteger(MAX_IN_FLIGHT_WRITES_PROP, DEFAULT_MAX_IN_FLIGHT_WRITES));
+        options.setIncremental(Boolean.parseBoolean(System.getProperty(INCREMENTAL_PROP, "true")));
+        options.setUpdateBatchSize(Integer.getInteger(UPDATE_BATCH_SIZE_PROP, DEFAULT_UPDATE_BATCH_SIZE));
+        options.setAttendeeChunkSize(Integer.getInteger(ATTENDEE_CHUNK_SIZE_PROP, 0));
+        return options;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+    }
+
+    public int getMaxInFlightWrites() {
+        return maxInFlightWrites;
+    }
+
+    public void setMaxInFlightWrites(int maxInFlightWrites) {
+        if (maxInFlightWrites < 1) {
+            throw new IllegalArgumentException("maxInFlightWrites must be at least 1");
+        }
+        this.maxInFlightWrites = maxInFlightWrites;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    public int getUpdateBatchSize() {
+        return updateBatchSize;
+    }
+
+    public void setUpdateBatchSize(int updateBatchSize) {
+        if (updateBatchSize < 1) {
+            throw new IllegalArgumentException("updateBatchSize must be at least 1");
+        }
+        this.updateBatchSize = updateBatchSize;
+    }
+
+    public int getAttendeeChunkSize() {
+        return attendeeChunkSize;
+    }
+
+    public void setAttendeeChunkSize(int attendeeChunkSize) {
+        if (attendeeChunkSize < 0) {
+            throw new IllegalArgumentException("attendeeChunkSize must not be negative");
+        }
+        this.attendeeChunkSize = attendeeChunkSize;
+    }
+
+    public DigestStore getDigestStore() {
+        return digestStore;
+    }
+
+    public void setDigestStore(DigestStore digestStore) {
+        this.digestStore = digestStore;
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.backend;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Builds a prefix search index over the items of one section.  Text is
+ * normalized to lowercase words without accents, and each word maps to the
+ * ids of the items that contain it.  Words are sharded by their first
+ * character, so the index is written as:
+ *
+ * shard/word/id: true
+ *
+ * A client searches for a prefix by reading the shard for its first
+ * character with orderByKey().startAt(prefix), ending at the prefix
+ * followed by U+F8FF, which sorts after any character in a word.
+ * For a query of several words, it looks up each word and keeps the ids
+ * common to all of them.
+ */
+public class SearchIndex {
+
+    // Much longer than any word worth searching for, and well within the
+    // database's limit on key length
+    private static final int MAX_WORD_LENGTH = 64;
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final HashMap<String, Map<String, Map<String, Boolean>>> shards = new HashMap<>();
+
+    /**
+     * Indexes an item under every word in the given text.  Null text is
+     * ignored.
+     */
+    public void add(String id, String... texts) {
+        for (final String text : texts) {
+            if (text == null) {
+                continue;
+            }
+            for (final String word : words(text)) {
+                final String shard = word.substring(0, word.offsetByCodePoints(0, 1));
+                Map<String, Map<String, Boolean>> words = shards.get(shard);
+                if (words == null) {
+                    words = new HashMap<>();
+                    shards.put(shard, words);
+                }
+                Map<String, Boolean> ids = words.get(word);
+                if (ids == null) {
+                    ids = new HashMap<>();
+                    words.put(word, ids);
+                }
+                ids.put(id, Boolean.TRUE);
+            }
+        }
+    }
+
+    public Map<String, Map<String, Map<String, Boolean>>> getShards() {
+        return shards;
+    }
+
+    /**
+     * Splits text into normalized words: lowercase letters and digits with
+     * accents removed.  Clients should normalize queries the same way.
+     */
+    public static List<String> words(String text) {
+        final String folded = COMBINING_MARKS
+            .matcher(Normalizer.normalize(text, Normalizer.Form.NFD))
+            .replaceAll("")
+            .toLowerCase(Locale.US);
+        final ArrayList<String> words = new ArrayList<>();
+        for (final String word : NON_WORD.split(folded)) {
+            if (word.codePointCount(0, word.length()) > MAX_WORD_LENGTH) {
+                words.add(word.substring(0, word.offsetByCodePoints(0, MAX_WORD_LENGTH)));
+            }
+            else if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+}
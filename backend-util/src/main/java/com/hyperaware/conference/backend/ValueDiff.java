@@ -0,0 +1,129 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.backend;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Computes the multi-path updates that turn one database value into
+ * another, for use with updateChildren.  Both values must be plain Java
+ * types, as read from a DataSnapshot or produced by Firebase's
+ * CustomClassMapper.
+ *
+ * Values are compared the way the database stores them: null, empty maps
+ * and empty lists are all just absent, and numbers are equal if they have
+ * the same value, whatever their type.
+ */
+
+public final class ValueDiff {
+
+    private ValueDiff() {
+    }
+
+    /**
+     * @param depth how many levels of children to descend into before
+     *     replacing a child whole, e.g. 2 to update the individual items
+     *     of a section, but replace any item that changed
+     * @return updates keyed by path relative to the value, with null for
+     *     children to remove; empty if nothing changed.  If the value
+     *     can't be updated child by child, e.g. because there was nothing
+     *     there before, the only update is the whole value at path "".
+     */
+    public static Map<String, Object> diff(final Object previous, final Object current, final int depth) {
+        final HashMap<String, Object> updates = new HashMap<>();
+        diff("", normalize(previous), normalize(current), depth, updates);
+        return updates;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void diff(
+        final String prefix,
+        final Object previous,
+        final Object current,
+        final int depth,
+        final Map<String, Object> updates) {
+
+        final Map<String, Object> prevMap = previous instanceof Map ? (Map<String, Object>) previous : null;
+        final Map<String, Object> curMap = current instanceof Map ? (Map<String, Object>) current : null;
+        if (prevMap == null || curMap == null) {
+            // Not two maps to descend into, so the path itself is replaced.
+            // Below the top, the prefix ends with the separator for its
+            // children, which isn't part of its own path.
+            updates.put(prefix.isEmpty() ? prefix : prefix.substring(0, prefix.length() - 1), current);
+            return;
+        }
+
+        final Set<String> keys = new HashSet<>(prevMap.keySet());
+        keys.addAll(curMap.keySet());
+        for (final String key : keys) {
+            final Object prevChild = prevMap.get(key);
+            final Object curChild = curMap.get(key);
+            if (prevChild == null ? curChild == null : prevChild.equals(curChild)) {
+                continue;
+            }
+            final String path = prefix + key;
+            if (depth > 1) {
+                diff(path + "/", prevChild, curChild, depth - 1, updates);
+            }
+            else {
+                updates.put(path, curChild);
+            }
+        }
+    }
+
+    /**
+     * @return the value the way the database would store it, so that
+     *     equals() says whether two values would be stored the same
+     */
+    @SuppressWarnings("unchecked")
+    public static Object normalize(final Object value) {
+        if (value instanceof Map) {
+            final Map<String, Object> map = (Map<String, Object>) value;
+            final HashMap<String, Object> normalized = new HashMap<>(map.size());
+            for (final Map.Entry<String, Object> entry : map.entrySet()) {
+                final Object child = normalize(entry.getValue());
+                if (child != null) {
+                    normalized.put(entry.getKey(), child);
+                }
+            }
+            return normalized.isEmpty() ? null : normalized;
+        }
+        else if (value instanceof List) {
+            final List<Object> list = (List<Object>) value;
+            final ArrayList<Object> normalized = new ArrayList<>(list.size());
+            for (final Object element : list) {
+                normalized.add(normalize(element));
+            }
+            return normalized.isEmpty() ? null : normalized;
+        }
+        else if (value instanceof Number) {
+            final Number number = (Number) value;
+            final double d = number.doubleValue();
+            if (d == Math.rint(d) && !Double.isInfinite(d) && Math.abs(d) < (double) Long.MAX_VALUE) {
+                return number.longValue();
+            }
+            return d;
+        }
+        return value;
+    }
+
+}
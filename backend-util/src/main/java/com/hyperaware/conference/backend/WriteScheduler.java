@@ -0,0 +1,128 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.backend;
+
+import com.google.firebase.tasks.OnCompleteListener;
+import com.google.firebase.tasks.Task;
+import com.hyperaware.conference.mechanics.LatencyHistogram;
+
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Starts database writes with a cap on how many may be in flight at once.
+ * Once the cap is reached, submit() blocks until an earlier write
+ * completes, so a producer can't get ahead of the database by more than
+ * that many writes, however many it makes.
+ *
+ * The latency of every write is recorded, and failures are kept by path,
+ * so a run can report exactly what didn't get written.
+ */
+
+public class WriteScheduler {
+
+    /**
+     * A write that hasn't started yet.
+     */
+    public interface Write {
+        Task<Void> start();
+    }
+
+    private final int maxInFlight;
+    private final Semaphore permits;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final ConcurrentSkipListMap<String, Exception> failures = new ConcurrentSkipListMap<>();
+
+    public WriteScheduler(int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1");
+        }
+        this.maxInFlight = maxInFlight;
+        this.permits = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * Starts the write once there's room for it.
+     *
+     * @param path where the write goes, used to report failures
+     * @param listener if not null, called when the write completes, after
+     *     its latency and any failure have been recorded
+     */
+    public void submit(final String path, final Write write, final OnCompleteListener<Void> listener)
+        throws InterruptedException {
+        permits.acquire();
+        final long start = System.nanoTime();
+        final Task<Void> task;
+        try {
+            task = write.start();
+        }
+        catch (RuntimeException e) {
+            permits.release();
+            failures.put(path, e);
+            throw e;
+        }
+
+        task.addOnCompleteListener(new OnCompleteListener<Void>() {
+            @Override
+            public void onComplete(Task<Void> task) {
+                try {
+                    latency.record(System.nanoTime() - start);
+                    if (!task.isSuccessful()) {
+                        failures.put(path, task.getException());
+                    }
+                    if (listener != null) {
+                        listener.onComplete(task);
+                    }
+                }
+                finally {
+                    permits.release();
+                }
+            }
+        });
+    }
+
+    /**
+     * Waits for every write submitted so far to complete.  Don't submit
+     * more while waiting.
+     */
+    public void awaitAll() throws InterruptedException {
+        permits.acquire(maxInFlight);
+        permits.release(maxInFlight);
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public int getInFlight() {
+        return maxInFlight - permits.availablePermits();
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * @return the exception each failed write completed with, by path
+     */
+    public SortedMap<String, Exception> getFailures() {
+        return Collections.unmodifiableSortedMap(failures);
+    }
+
+}
@@ -17,12 +17,18 @@
 package com.hyperaware.conference.backend.config;
 
 import com.google.firebase.database.FirebaseDatabase;
+import com.hyperaware.conference.eventmobi.EventmobiApi;
 import com.hyperaware.conference.eventmobi.EventmobiConfig;
+import com.hyperaware.conference.mechanics.DigestStore;
+import com.hyperaware.conference.mechanics.FetchListener;
 
 public interface ConfigStrategy {
 
     void configure() throws ConfigException;
     FirebaseDatabase getFirebaseDatabase();
     EventmobiConfig getEventmobiConfig();
+    EventmobiApi createEventmobiApi();
+    EventmobiApi createEventmobiApi(FetchListener listener);
+    DigestStore getDigestStore();
 
 }
@@ -19,11 +19,26 @@ package com.hyperaware.conference.backend.config;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.FirebaseOptions;
 import com.google.firebase.database.FirebaseDatabase;
+import com.hyperaware.conference.eventmobi.CachingEventmobiApi;
+import com.hyperaware.conference.eventmobi.EventmobiApi;
 import com.hyperaware.conference.eventmobi.EventmobiConfig;
+import com.hyperaware.conference.eventmobi.ResilientEventmobiApi;
+import com.hyperaware.conference.eventmobi.file.CaptureDirectory;
+import com.hyperaware.conference.eventmobi.file.FileEventmobiApi;
+import com.hyperaware.conference.eventmobi.http.HttpEventmobiApi;
+import com.hyperaware.conference.eventmobi.http.HttpEventmobiApiOptions;
+import com.hyperaware.conference.eventmobi.http.HttpResponseCache;
+import com.hyperaware.conference.eventmobi.http.HttpTransport;
+import com.hyperaware.conference.mechanics.AsyncFetchers;
+import com.hyperaware.conference.mechanics.DigestStore;
+import com.hyperaware.conference.mechanics.FetchListener;
+import com.hyperaware.conference.mechanics.FetchPolicy;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Properties;
+import java.util.concurrent.Executor;
 
 public class ResourcesConfigStrategy implements ConfigStrategy {
 
@@ -37,9 +52,46 @@ public class ResourcesConfigStrategy implements ConfigStrategy {
     private static final String EVENTMOBI_PROPERTIES_RESOURCE = RESOURCE_DIR + "/eventmobi.properties";
     private static final String EVENTMOBI_API_KEY_PROP = "api_key";
     private static final String EVENTMOBI_EVENT_NAME_PROP = "event_name";
+    // Optional: directory for caching Eventmobi responses between runs
+    private static final String EVENTMOBI_RESPONSE_CACHE_DIR_PROP = "response_cache_dir";
+    // Optional: HTTP connection settings, see HttpTransport for defaults
+    private static final String EVENTMOBI_CONNECT_TIMEOUT_MILLIS_PROP = "connect_timeout_millis";
+    private static final String EVENTMOBI_READ_TIMEOUT_MILLIS_PROP = "read_timeout_millis";
+    private static final String EVENTMOBI_QUEUE_TIMEOUT_MILLIS_PROP = "queue_timeout_millis";
+    private static final String EVENTMOBI_MAX_CONNECTIONS_PER_HOST_PROP = "max_connections_per_host";
+    // Optional: retry, circuit breaker and hedging settings, see FetchPolicy for defaults
+    private static final String EVENTMOBI_FETCH_MAX_ATTEMPTS_PROP = "fetch_max_attempts";
+    private static final String EVENTMOBI_FETCH_BACKOFF_MILLIS_PROP = "fetch_backoff_millis";
+    private static final String EVENTMOBI_FETCH_MAX_BACKOFF_MILLIS_PROP = "fetch_max_backoff_millis";
+    private static final String EVENTMOBI_FETCH_HEDGE_AFTER_MILLIS_PROP = "fetch_hedge_after_millis";
+    private static final String EVENTMOBI_CIRCUIT_FAILURE_THRESHOLD_PROP = "circuit_failure_threshold";
+    private static final String EVENTMOBI_CIRCUIT_OPEN_MILLIS_PROP = "circuit_open_millis";
+    // Optional: how long fetched sections are shared between populate runs.
+    // Concurrent fetches are always coalesced, even when these are 0.
+    private static final String EVENTMOBI_FETCH_CACHE_TTL_MILLIS_PROP = "fetch_cache_ttl_millis";
+    private static final String EVENTMOBI_FETCH_CACHE_STALE_MILLIS_PROP = "fetch_cache_stale_millis";
+    // Optional: record every response into a new capture directory under this one
+    private static final String EVENTMOBI_CAPTURE_DIR_PROP = "capture_dir";
+    // Optional: replay responses from this capture (or the latest capture under it)
+    // instead of contacting Eventmobi
+    private static final String EVENTMOBI_REPLAY_DIR_PROP = "replay_dir";
+    // Optional: file that remembers digests of sections already populated,
+    // so that unchanged sections are skipped
+    private static final String EVENTMOBI_DIGEST_FILE_PROP = "digest_file";
+    // Optional: number of threads that start downloading every section as
+    // soon as the event has been fetched (0, the default, disables this)
+    private static final String EVENTMOBI_PREFETCH_THREADS_PROP = "prefetch_threads";
 
     private String databaseUrl;
     private EventmobiConfig eventmobiConfig;
+    private HttpResponseCache responseCache;
+    private HttpTransport transport;
+    private final FetchPolicy fetchPolicy = new FetchPolicy();
+    private CachingEventmobiApi.Flights flights;
+    private File captureBaseDir;
+    private File replayDir;
+    private DigestStore digestStore;
+    private Executor prefetchExecutor;
 
     @Override
     public void configure() throws ConfigException {
@@ -124,12 +176,72 @@ public class ResourcesConfigStrategy implements ConfigStrategy {
             }
 
             eventmobiConfig = new MyEventmobiConfig(api_key, event_name);
+
+            value = props.get(EVENTMOBI_RESPONSE_CACHE_DIR_PROP);
+            if (value != null) {
+                responseCache = new HttpResponseCache(new File(value.toString()));
+            }
+
+            transport = new HttpTransport(
+                getIntProp(props, EVENTMOBI_CONNECT_TIMEOUT_MILLIS_PROP, HttpTransport.DEFAULT_CONNECT_TIMEOUT_MILLIS),
+                getIntProp(props, EVENTMOBI_READ_TIMEOUT_MILLIS_PROP, HttpTransport.DEFAULT_READ_TIMEOUT_MILLIS),
+                getIntProp(props, EVENTMOBI_QUEUE_TIMEOUT_MILLIS_PROP, HttpTransport.DEFAULT_QUEUE_TIMEOUT_MILLIS),
+                getIntProp(props, EVENTMOBI_MAX_CONNECTIONS_PER_HOST_PROP, HttpTransport.DEFAULT_MAX_CONNECTIONS_PER_HOST));
+
+            fetchPolicy.setMaxAttempts(
+                getIntProp(props, EVENTMOBI_FETCH_MAX_ATTEMPTS_PROP, FetchPolicy.DEFAULT_MAX_ATTEMPTS));
+            fetchPolicy.setBackoffMillis(
+                getIntProp(props, EVENTMOBI_FETCH_BACKOFF_MILLIS_PROP, (int) FetchPolicy.DEFAULT_BACKOFF_MILLIS));
+            fetchPolicy.setMaxBackoffMillis(
+                getIntProp(props, EVENTMOBI_FETCH_MAX_BACKOFF_MILLIS_PROP, (int) FetchPolicy.DEFAULT_MAX_BACKOFF_MILLIS));
+            fetchPolicy.setHedgeAfterMillis(getIntProp(props, EVENTMOBI_FETCH_HEDGE_AFTER_MILLIS_PROP, 0));
+            fetchPolicy.setFailureThreshold(
+                getIntProp(props, EVENTMOBI_CIRCUIT_FAILURE_THRESHOLD_PROP, FetchPolicy.DEFAULT_FAILURE_THRESHOLD));
+            fetchPolicy.setOpenMillis(
+                getIntProp(props, EVENTMOBI_CIRCUIT_OPEN_MILLIS_PROP, (int) FetchPolicy.DEFAULT_OPEN_MILLIS));
+
+            final int cacheTtlMillis = getIntProp(props, EVENTMOBI_FETCH_CACHE_TTL_MILLIS_PROP, 0);
+            final int cacheStaleMillis = getIntProp(props, EVENTMOBI_FETCH_CACHE_STALE_MILLIS_PROP, 0);
+            flights = new CachingEventmobiApi.Flights(
+                cacheTtlMillis,
+                cacheStaleMillis,
+                cacheStaleMillis > 0 ? AsyncFetchers.newBoundedExecutor(2, "eventmobi-revalidate") : null);
+
+            value = props.get(EVENTMOBI_CAPTURE_DIR_PROP);
+            if (value != null) {
+                captureBaseDir = new File(value.toString());
+            }
+            value = props.get(EVENTMOBI_REPLAY_DIR_PROP);
+            if (value != null) {
+                replayDir = CaptureDirectory.resolve(new File(value.toString()));
+            }
+            value = props.get(EVENTMOBI_DIGEST_FILE_PROP);
+            if (value != null) {
+                digestStore = new DigestStore(new File(value.toString()));
+            }
+            final int prefetchThreads = getIntProp(props, EVENTMOBI_PREFETCH_THREADS_PROP, 0);
+            if (prefetchThreads > 0) {
+                prefetchExecutor = AsyncFetchers.newBoundedExecutor(prefetchThreads, "eventmobi-prefetch");
+            }
         }
-        catch (IOException e) {
+        catch (IOException | IllegalArgumentException e) {
             throw new ConfigException(e);
         }
     }
 
+    private static int getIntProp(final Properties props, final String name, final int def) throws ConfigException {
+        final Object value = props.get(name);
+        if (value == null) {
+            return def;
+        }
+        try {
+            return Integer.parseInt(value.toString().trim());
+        }
+        catch (NumberFormatException e) {
+            throw new ConfigException("Property " + name + " is not an integer: " + value);
+        }
+    }
+
     @Override
     public FirebaseDatabase getFirebaseDatabase() {
         return FirebaseDatabase.getInstance();
@@ -140,4 +252,57 @@ public class ResourcesConfigStrategy implements ConfigStrategy {
         return eventmobiConfig;
     }
 
+    /**
+     * @return null when replaying, since replayed captures are not checked
+     *     for changes
+     */
+    @Override
+    public DigestStore getDigestStore() {
+        return replayDir != null ? null : digestStore;
+    }
+
+    @Override
+    public EventmobiApi createEventmobiApi() {
+        return createEventmobiApi(null);
+    }
+
+    @Override
+    public EventmobiApi createEventmobiApi(FetchListener listener) {
+        if (replayDir != null) {
+            return new FileEventmobiApi(replayDir, listener);
+        }
+
+        if (captureBaseDir != null) {
+            // Each api records into its own capture.  Fetches aren't shared
+            // with other apis, or the capture would be missing whatever was
+            // shared.
+            final File captureDir;
+            try {
+                captureDir = CaptureDirectory.create(captureBaseDir, eventmobiConfig.getEventName());
+            }
+            catch (IOException e) {
+                throw new IllegalStateException("Can't create capture directory", e);
+            }
+            final HttpEventmobiApiOptions options = newApiOptions(listener);
+            options.setCaptureDir(captureDir);
+            final HttpEventmobiApi api = new HttpEventmobiApi(eventmobiConfig, options);
+            return new ResilientEventmobiApi(api, fetchPolicy);
+        }
+
+        // The fetch policy and flights outlive each api so circuit breakers
+        // remember failures, and fetches are shared, across populate runs
+        final HttpEventmobiApi api = new HttpEventmobiApi(eventmobiConfig, newApiOptions(listener));
+        return new CachingEventmobiApi(new ResilientEventmobiApi(api, fetchPolicy), flights);
+    }
+
+    private HttpEventmobiApiOptions newApiOptions(FetchListener listener) {
+        final HttpEventmobiApiOptions options = new HttpEventmobiApiOptions();
+        options.setTransport(transport);
+        options.setCache(responseCache);
+        options.setListener(listener);
+        options.setDigestStore(digestStore);
+        options.setPrefetchExecutor(prefetchExecutor);
+        return options;
+    }
+
 }
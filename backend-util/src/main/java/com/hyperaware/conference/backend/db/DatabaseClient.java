@@ -0,0 +1,46 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.backend.db;
+
+import com.google.firebase.tasks.Task;
+
+import java.util.Map;
+
+/**
+ * The database operations the backend tools need, so they can run
+ * against something other than a live Firebase project.  Paths are
+ * slash-separated and relative to the root of the database.  Values are
+ * anything Firebase can serialize, and are read back as plain Java types:
+ * maps, lists, strings, booleans, longs and doubles.
+ */
+
+public interface DatabaseClient {
+
+    Task<Void> setValue(String path, Object value);
+
+    /**
+     * @param children values keyed by path relative to the given path,
+     *     with null to remove a child
+     */
+    Task<Void> updateChildren(String path, Map<String, Object> children);
+
+    /**
+     * @return the value at the path, or null if there's nothing there
+     */
+    Task<Object> readValue(String path);
+
+}
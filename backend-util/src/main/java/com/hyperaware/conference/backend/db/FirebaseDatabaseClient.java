@@ -0,0 +1,67 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.backend.db;
+
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ValueEventListener;
+import com.google.firebase.tasks.Task;
+import com.google.firebase.tasks.TaskCompletionSource;
+
+import java.util.Map;
+
+public class FirebaseDatabaseClient implements DatabaseClient {
+
+    private final FirebaseDatabase fdb;
+
+    public FirebaseDatabaseClient(FirebaseDatabase fdb) {
+        this.fdb = fdb;
+    }
+
+    @Override
+    public Task<Void> setValue(String path, Object value) {
+        return fdb.getReference(path).setValue(value);
+    }
+
+    @Override
+    public Task<Void> updateChildren(String path, Map<String, Object> children) {
+        return fdb.getReference(path).updateChildren(children);
+    }
+
+    @Override
+    public Task<Object> readValue(String path) {
+        final TaskCompletionSource<Object> source = new TaskCompletionSource<>();
+        fdb.getReference(path).addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(DataSnapshot data) {
+                source.setResult(data.getValue());
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {
+                source.setException(error.toException());
+            }
+        });
+        return source.getTask();
+    }
+
+    public String toString() {
+        return fdb.getReference().toString();
+    }
+
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.backend.db;
+
+import com.google.firebase.database.utilities.encoding.CustomClassMapper;
+import com.google.firebase.tasks.Task;
+import com.google.firebase.tasks.TaskCompletionSource;
+import com.hyperaware.conference.backend.ValueDiff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A DatabaseClient that keeps everything in memory, for benchmarking and
+ * testing without a Firebase project or a network.
+ *
+ * Like the Firebase client, it converts values to plain types on the
+ * calling thread and applies writes immediately in the order they're
+ * made, but completes each task only after a simulated round trip: the
+ * base latency plus a random jitter of up to jitterMillis.  The jitter is
+ * drawn from a seeded Random so runs are repeatable.
+ */
+
+public class InMemoryDatabaseClient implements DatabaseClient {
+
+    private final long latencyMillis;
+    private final long jitterMillis;
+    private final Random random;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicLong writeCount = new AtomicLong();
+    private final AtomicLong readCount = new AtomicLong();
+
+    // Guarded by this.  Maps are HashMaps and lists are ArrayLists, so
+    // they can be modified in place.
+    private Object root;
+
+    /**
+     * Completes every task immediately.
+     */
+    public InMemoryDatabaseClient() {
+        this(0, 0, 0);
+    }
+
+    public InMemoryDatabaseClient(long latencyMillis, long jitterMillis, long seed) {
+        if (latencyMillis < 0 || jitterMillis < 0) {
+            throw new IllegalArgumentException("latency and jitter must not be negative");
+        }
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+        this.random = new Random(seed);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread thread = new Thread(r, "in-memory-database");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    @Override
+    public Task<Void> setValue(String path, Object value) {
+        final Object plain = ValueDiff.normalize(CustomClassMapper.convertToPlainJavaTypes(value));
+        synchronized (this) {
+            root = put(root, segments(path), 0, plain);
+        }
+        writeCount.incrementAndGet();
+        return completeLater(null);
+    }
+
+    @Override
+    public Task<Void> updateChildren(String path, Map<String, Object> children) {
+        final HashMap<List<String>, Object> plain = new HashMap<>(children.size());
+        for (final Map.Entry<String, Object> entry : children.entrySet()) {
+            final Object value = entry.getValue();
+            plain.put(
+                segments(path + "/" + entry.getKey()),
+                value != null ? ValueDiff.normalize(CustomClassMapper.convertToPlainJavaTypes(value)) : null);
+        }
+        synchronized (this) {
+            for (final Map.Entry<List<String>, Object> entry : plain.entrySet()) {
+                root = put(root, entry.getKey(), 0, entry.getValue());
+            }
+        }
+        writeCount.incrementAndGet();
+        return completeLater(null);
+    }
+
+    @Override
+    public Task<Object> readValue(String path) {
+        readCount.incrementAndGet();
+        return completeLater(getValue(path));
+    }
+
+    /**
+     * @return a copy of the value at the path right now, or null if
+     *     there's nothing there
+     */
+    public synchronized Object getValue(String path) {
+        Object node = root;
+        for (final String segment : segments(path)) {
+            node = node instanceof Map ? ((Map<?, ?>) node).get(segment) : null;
+        }
+        return copy(node);
+    }
+
+    public long getWriteCount() {
+        return writeCount.get();
+    }
+
+    public long getReadCount() {
+        return readCount.get();
+    }
+
+    /**
+     * Stops the thread that completes tasks.  Tasks not yet completed never
+     * will be.
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private <T> Task<T> completeLater(final T result) {
+        final TaskCompletionSource<T> source = new TaskCompletionSource<>();
+        final long delay = latencyMillis + nextJitter();
+        if (delay == 0) {
+            source.setResult(result);
+        }
+        else {
+            scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    source.setResult(result);
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+        return source.getTask();
+    }
+
+    private long nextJitter() {
+        if (jitterMillis == 0) {
+            return 0;
+        }
+        synchronized (random) {
+            return (long) (random.nextDouble() * jitterMillis);
+        }
+    }
+
+    private static List<String> segments(String path) {
+        final ArrayList<String> segments = new ArrayList<>(Arrays.asList(path.split("/")));
+        segments.removeAll(Arrays.asList(""));
+        return segments;
+    }
+
+    /**
+     * @return the node with the value put at the path below it, or null if
+     *     that leaves the node empty
+     */
+    @SuppressWarnings("unchecked")
+    private static Object put(Object node, List<String> segments, int index, Object value) {
+        if (index == segments.size()) {
+            return value;
+        }
+        final HashMap<String, Object> map;
+        if (node instanceof HashMap) {
+            map = (HashMap<String, Object>) node;
+        }
+        else if (node instanceof List) {
+            // The database stores lists as maps keyed by index
+            map = new HashMap<>();
+            final List<Object> list = (List<Object>) node;
+            for (int i = 0; i < list.size(); i++) {
+                if (list.get(i) != null) {
+                    map.put(String.valueOf(i), list.get(i));
+                }
+            }
+        }
+        else {
+            map = new HashMap<>();
+        }
+
+        final String key = segments.get(index);
+        final Object child = put(map.get(key), segments, index + 1, value);
+        if (child == null) {
+            map.remove(key);
+        }
+        else {
+            map.put(key, child);
+        }
+        return map.isEmpty() ? null : map;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object copy(Object node) {
+        if (node instanceof Map) {
+            final Map<String, Object> map = (Map<String, Object>) node;
+            final HashMap<String, Object> copy = new HashMap<>(map.size());
+            for (final Map.Entry<String, Object> entry : map.entrySet()) {
+                copy.put(entry.getKey(), copy(entry.getValue()));
+            }
+            return copy;
+        }
+        else if (node instanceof List) {
+            final List<Object> list = (List<Object>) node;
+            final ArrayList<Object> copy = new ArrayList<>(list.size());
+            for (final Object element : list) {
+                copy.add(copy(element));
+            }
+            return copy;
+        }
+        return node;
+    }
+
+}
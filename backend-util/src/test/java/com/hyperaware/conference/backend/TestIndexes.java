@@ -0,0 +1,160 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.backend;
+
+import com.hyperaware.conference.model.AgendaItem;
+import com.hyperaware.conference.model.AttendeeItem;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestIndexes {
+
+    private static final TimeZone LA = TimeZone.getTimeZone("America/Los_Angeles");
+
+    private static AgendaItem session(String id, long start, long end, String... speakerIds) {
+        final AgendaItem item = new AgendaItem();
+        item.setId(id);
+        item.setEpochStartTime(start);
+        item.setEpochEndTime(end);
+        item.setSpeakerIds(Arrays.asList(speakerIds));
+        return item;
+    }
+
+    private static AttendeeItem attendee(String id, String name) {
+        final AttendeeItem item = new AttendeeItem();
+        item.setId(id);
+        item.setName(name);
+        return item;
+    }
+
+    /**
+     * @return epoch seconds of the time in Los Angeles on the day in
+     *     November 2016
+     */
+    private static long la(int day, int hour, int minute) {
+        final Calendar cal = Calendar.getInstance(LA, Locale.US);
+        cal.clear();
+        cal.set(2016, Calendar.NOVEMBER, day, hour, minute);
+        return TimeUnit.MILLISECONDS.toSeconds(cal.getTimeInMillis());
+    }
+
+    @Test
+    public void testSpeakerSessions() {
+        final Map<String, List<String>> index = Indexes.speakerSessions(Arrays.asList(
+            session("late", 3000, 4000, "s1"),
+            session("early", 1000, 2000, "s1", "s2"),
+            session("none", 1000, 2000)));
+        assertEquals(2, index.size());
+        assertEquals(Arrays.asList("early", "late"), index.get("s1"));
+        assertEquals(Collections.singletonList("early"), index.get("s2"));
+    }
+
+    @Test
+    public void testAgendaDays() {
+        final Map<String, Map<String, Object>> index = Indexes.agendaDays(Arrays.asList(
+            session("longer", la(8, 9, 0), la(8, 10, 0)),
+            session("b", la(8, 9, 0), la(8, 9, 30)),
+            session("a", la(8, 9, 0), la(8, 9, 30)),
+            // Already the next day in UTC, but not in the event's time zone
+            session("night", la(8, 23, 30), la(9, 0, 30)),
+            session("next", la(9, 10, 0), la(9, 11, 0))), LA);
+
+        assertEquals(2, index.size());
+        final Map<String, Object> first = index.get("2016-11-08");
+        assertEquals(la(8, 0, 0), first.get("date"));
+        final List<?> slots = (List<?>) first.get("slots");
+        assertEquals(3, slots.size());
+        assertSlot(slots.get(0), la(8, 9, 0), la(8, 9, 30), "a", "b");
+        assertSlot(slots.get(1), la(8, 9, 0), la(8, 10, 0), "longer");
+        assertSlot(slots.get(2), la(8, 23, 30), la(9, 0, 30), "night");
+
+        final Map<String, Object> second = index.get("2016-11-09");
+        assertEquals(la(9, 0, 0), second.get("date"));
+        assertEquals(1, ((List<?>) second.get("slots")).size());
+    }
+
+    private static void assertSlot(Object slot, long start, long end, String... sessionIds) {
+        final Map<?, ?> map = (Map<?, ?>) slot;
+        assertEquals(start, map.get("start"));
+        assertEquals(end, map.get("end"));
+        assertEquals(Arrays.asList(sessionIds), map.get("sessions"));
+    }
+
+    @Test
+    public void testTimeline() {
+        final Map<String, Map<String, Object>> index = Indexes.timeline(Arrays.asList(
+            session("c", 3000, 4000),
+            session("a", 1000, 2000),
+            session("b", 1500, 2500)));
+
+        assertEquals(6, index.size());
+        assertBoundary(index.get("1000"), 1000, Arrays.asList("a"), Arrays.asList("b"), 1500L);
+        assertBoundary(index.get("1500"), 1500, Arrays.asList("a", "b"), Arrays.asList("c"), 3000L);
+        // A session ending at a boundary isn't in progress there
+        assertBoundary(index.get("2000"), 2000, Arrays.asList("b"), Arrays.asList("c"), 3000L);
+        assertBoundary(index.get("2500"), 2500, Collections.<String>emptyList(), Arrays.asList("c"), 3000L);
+        assertBoundary(index.get("3000"), 3000, Arrays.asList("c"), null, null);
+        assertBoundary(index.get("4000"), 4000, Collections.<String>emptyList(), null, null);
+    }
+
+    private static void assertBoundary(
+        Map<String, Object> boundary, long time, List<String> now, List<String> next, Long nextTime) {
+        assertEquals(time, boundary.get("time"));
+        assertEquals(now, boundary.get("now"));
+        assertEquals(next, boundary.get("next"));
+        assertEquals(nextTime, boundary.get("next_time"));
+    }
+
+    @Test
+    public void testAttendeeSortKeys() {
+        final Map<String, String> keys = Indexes.attendeeSortKeys(Arrays.asList(
+            attendee("1", "\u00c9mile"),
+            attendee("2", "emile"),
+            attendee("3", "Bob"),
+            attendee("4", "amy")));
+
+        // Case and accents are ignored
+        assertEquals(keys.get("1"), keys.get("2"));
+        assertTrue(keys.get("4").compareTo(keys.get("3")) < 0);
+        assertTrue(keys.get("3").compareTo(keys.get("2")) < 0);
+        for (final String key : keys.values()) {
+            assertTrue(key, key.matches("[0-9a-f]+"));
+        }
+    }
+
+    @Test
+    public void testNameSortKeyPrefixesSortFirst() {
+        final String ann = Indexes.nameSortKey(Indexes.newNameCollator(), "Ann");
+        final String anne = Indexes.nameSortKey(Indexes.newNameCollator(), "Anne");
+        assertTrue(ann.compareTo(anne) < 0);
+        assertFalse(ann.equals(anne));
+    }
+
+}
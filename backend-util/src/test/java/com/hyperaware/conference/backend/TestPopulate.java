@@ -0,0 +1,263 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.backend;
+
+import com.google.firebase.tasks.Task;
+import com.google.firebase.tasks.Tasks;
+import com.hyperaware.conference.backend.config.MyEventmobiConfig;
+import com.hyperaware.conference.backend.db.DatabaseClient;
+import com.hyperaware.conference.backend.db.InMemoryDatabaseClient;
+import com.hyperaware.conference.eventmobi.file.FileEventmobiApi;
+import com.hyperaware.conference.eventmobi.file.SyntheticEventGenerator;
+import com.hyperaware.conference.mechanics.DigestStore;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs Populate end to end, from generated event files into an in-memory
+ * database.
+ */
+public class TestPopulate {
+
+    private static final String[] SECTIONS = { "agenda", "speakers", "attendees", "maps", "companies" };
+    private static final String ATTENDEE_ITEMS = "sections/attendees/items";
+    private static final String ATTENDEE_SORT_KEYS = Indexes.SORT_KEYS_PATH + "/attendees";
+
+    private File dir;
+    private InMemoryDatabaseClient db;
+    private DigestStore digests;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = File.createTempFile("populate", "");
+        dir.delete();
+        generate(30);
+        db = new InMemoryDatabaseClient();
+        digests = new DigestStore();
+    }
+
+    @After
+    public void tearDown() {
+        db.shutdown();
+        FileUtils.deleteQuietly(dir);
+    }
+
+    private void generate(int attendees) throws Exception {
+        new SyntheticEventGenerator(12, 8, attendees, 4, 1, 1).generate(dir);
+    }
+
+    private void populate(DatabaseClient client, PopulateOptions options) throws Exception {
+        options.setDigestStore(digests);
+        try (FileEventmobiApi api = new FileEventmobiApi(dir, null, digests)) {
+            new Populate(client, new MyEventmobiConfig("key", "event"), api, options, null).run();
+        }
+    }
+
+    private int size(String path) {
+        final Object value = db.getValue(path);
+        return value != null ? ((Map<?, ?>) value).size() : 0;
+    }
+
+    @Test
+    public void testPopulate() throws Exception {
+        populate(db, new PopulateOptions());
+
+        assertEquals(SyntheticEventGenerator.EVENT_ID, ((Map<?, ?>) db.getValue("event")).get("id"));
+        assertEquals(12, size("sections/agenda/items"));
+        assertEquals(8, size("sections/speakers/items"));
+        assertEquals(30, size(ATTENDEE_ITEMS));
+        assertEquals(4, size("sections/companies/items"));
+        assertEquals(30, size(ATTENDEE_SORT_KEYS));
+        assertTrue(size(Indexes.AGENDA_DAYS_PATH) > 0);
+        assertTrue(size(Indexes.TIMELINE_PATH) > 0);
+        assertTrue(size(Indexes.SEARCH_PATH + "/sessions") > 0);
+
+        for (final String section : SECTIONS) {
+            assertNotNull(section, digests.getCommitted(section));
+        }
+        assertEquals(
+            Populate.INDEX_VERSION + " " + SyntheticEventGenerator.TIMEZONE_NAME,
+            digests.getCommitted("agenda.indexes"));
+    }
+
+    @Test
+    public void testRepopulateUnchangedSkipsSections() throws Exception {
+        populate(db, new PopulateOptions());
+        final long writes = db.getWriteCount();
+        final long reads = db.getReadCount();
+
+        populate(db, new PopulateOptions());
+        // Only the event, which is always written
+        assertEquals(writes + 1, db.getWriteCount());
+        assertEquals(reads, db.getReadCount());
+    }
+
+    @Test
+    public void testRepopulateUnchangedWritesNothing() throws Exception {
+        digests = null;
+        populate(db, new PopulateOptions());
+        final long writes = db.getWriteCount();
+
+        // Without digests, everything is diffed against the database
+        populate(db, new PopulateOptions());
+        assertEquals(writes + 1, db.getWriteCount());
+    }
+
+    @Test
+    public void testFailedWriteDoesNotCommitDigest() throws Exception {
+        final FaultyDatabaseClient faulty = new FaultyDatabaseClient(db, Indexes.SEARCH_PATH + "/speakers");
+        try {
+            populate(faulty, new PopulateOptions());
+            fail();
+        }
+        catch (ExecutionException expected) {
+        }
+        assertNull(digests.getCommitted("speakers"));
+        assertNotNull(digests.getCommitted("agenda"));
+        assertNull(db.getValue(Indexes.SEARCH_PATH + "/speakers"));
+
+        // So the speakers aren't skipped next time
+        populate(db, new PopulateOptions());
+        assertNotNull(digests.getCommitted("speakers"));
+        assertNotNull(db.getValue(Indexes.SEARCH_PATH + "/speakers"));
+    }
+
+    @Test
+    public void testIndexesRebuiltForDigestsWithoutThem() throws Exception {
+        populate(db, new PopulateOptions());
+
+        // As left by a version that didn't build indexes
+        db.setValue("indexes", null);
+        for (final String section : SECTIONS) {
+            digests.forget(section + ".indexes");
+        }
+
+        populate(db, new PopulateOptions());
+        assertTrue(size(Indexes.AGENDA_DAYS_PATH) > 0);
+        assertTrue(size(Indexes.TIMELINE_PATH) > 0);
+        assertEquals(30, size(ATTENDEE_SORT_KEYS));
+        assertEquals(8, size(Indexes.SORT_KEYS_PATH + "/speakers"));
+        assertEquals(4, size(Indexes.SORT_KEYS_PATH + "/companies"));
+    }
+
+    @Test
+    public void testChunkedAttendees() throws Exception {
+        final FaultyDatabaseClient client = new FaultyDatabaseClient(db, null);
+        final PopulateOptions options = new PopulateOptions();
+        options.setAttendeeChunkSize(7);
+        populate(client, options);
+        assertEquals(30, size(ATTENDEE_ITEMS));
+        assertEquals(30, size(ATTENDEE_SORT_KEYS));
+        assertEquals("Attendees", ((Map<?, ?>) db.getValue("sections/attendees")).get("name"));
+
+        generate(20);
+        populate(client, options);
+        assertEquals(20, size(ATTENDEE_ITEMS));
+        assertEquals(
+            ((Map<?, ?>) db.getValue(ATTENDEE_SORT_KEYS)).keySet(),
+            ((Map<?, ?>) db.getValue(ATTENDEE_ITEMS)).keySet());
+        // Stale attendees were removed, not the whole list
+        assertTrue(client.cleared.toString(), client.cleared.isEmpty());
+    }
+
+    @Test
+    public void testChunkedAttendeesUnchanged() throws Exception {
+        final PopulateOptions options = new PopulateOptions();
+        options.setAttendeeChunkSize(7);
+        options.setIncremental(false);
+        populate(db, options);
+
+        // Cleared and streamed again before they're known to be unchanged
+        populate(db, options);
+        assertEquals(30, size(ATTENDEE_ITEMS));
+        assertEquals(30, size(ATTENDEE_SORT_KEYS));
+    }
+
+    @Test
+    public void testChunkedAttendeesWithoutSortKeys() throws Exception {
+        final PopulateOptions options = new PopulateOptions();
+        options.setAttendeeChunkSize(7);
+        populate(db, options);
+
+        // As left by a version that didn't write sort keys
+        db.setValue(ATTENDEE_SORT_KEYS, null);
+        generate(20);
+        populate(db, options);
+        assertEquals(20, size(ATTENDEE_ITEMS));
+        assertEquals(20, size(ATTENDEE_SORT_KEYS));
+    }
+
+    /**
+     * Fails every write under a path, and records paths set to null.
+     */
+    private static class FaultyDatabaseClient implements DatabaseClient {
+        private final DatabaseClient db;
+        private final String failPath;
+        private final List<String> cleared = new ArrayList<>();
+
+        public FaultyDatabaseClient(DatabaseClient db, String failPath) {
+            this.db = db;
+            this.failPath = failPath;
+        }
+
+        private boolean fails(String path) {
+            return failPath != null && (path + "/").startsWith(failPath + "/");
+        }
+
+        @Override
+        public Task<Void> setValue(String path, Object value) {
+            if (fails(path)) {
+                return Tasks.forException(new Exception("Permission denied"));
+            }
+            if (value == null) {
+                synchronized (cleared) {
+                    cleared.add(path);
+                }
+            }
+            return db.setValue(path, value);
+        }
+
+        @Override
+        public Task<Void> updateChildren(String path, Map<String, Object> children) {
+            if (fails(path)) {
+                return Tasks.forException(new Exception("Permission denied"));
+            }
+            return db.updateChildren(path, children);
+        }
+
+        @Override
+        public Task<Object> readValue(String path) {
+            return db.readValue(path);
+        }
+    }
+
+}
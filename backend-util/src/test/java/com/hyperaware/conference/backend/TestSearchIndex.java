@@ -0,0 +1,63 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.backend;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class TestSearchIndex {
+
+    @Test
+    public void testWords() {
+        assertEquals(
+            Arrays.asList("cafe", "deja", "vu", "2016"),
+            SearchIndex.words("Caf\u00e9  D\u00c9J\u00c0-vu, 2016!"));
+        assertEquals(Collections.emptyList(), SearchIndex.words(" -- "));
+
+        final StringBuilder longWord = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            longWord.append('a');
+        }
+        assertEquals(64, SearchIndex.words(longWord.toString()).get(0).length());
+    }
+
+    @Test
+    public void testShardsByFirstCharacter() {
+        final SearchIndex index = new SearchIndex();
+        index.add("1", "Ann Smith", null, "Engineer");
+        index.add("2", "Andrew \u00c9mile");
+        index.add("3", null, "smith & co");
+
+        final Map<String, Map<String, Map<String, Boolean>>> shards = index.getShards();
+        assertEquals(Collections.singleton("1"), shards.get("a").get("ann").keySet());
+        assertEquals(Collections.singleton("2"), shards.get("a").get("andrew").keySet());
+        assertEquals(Collections.singleton("2"), shards.get("e").get("emile").keySet());
+        assertEquals(Collections.singleton("1"), shards.get("e").get("engineer").keySet());
+        assertEquals(2, shards.get("s").get("smith").size());
+        assertEquals(Collections.singleton("3"), shards.get("c").get("co").keySet());
+        assertFalse(shards.containsKey("&"));
+        assertNull(shards.get("s").get("smit"));
+    }
+
+}
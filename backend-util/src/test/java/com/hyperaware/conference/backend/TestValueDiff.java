@@ -0,0 +1,125 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.backend;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestValueDiff {
+
+    private static Map<String, Object> item(String name, Object position) {
+        final HashMap<String, Object> item = new HashMap<>();
+        item.put("name", name);
+        item.put("position", position);
+        return item;
+    }
+
+    private static Map<String, Object> section(Map<String, Object> a, Map<String, Object> b) {
+        final HashMap<String, Object> items = new HashMap<>();
+        if (a != null) {
+            items.put("a", a);
+        }
+        if (b != null) {
+            items.put("b", b);
+        }
+        final HashMap<String, Object> section = new HashMap<>();
+        section.put("name", "Section");
+        section.put("items", items);
+        return section;
+    }
+
+    @Test
+    public void testUnchanged() {
+        // Numbers compare by value, whatever their type
+        assertTrue(ValueDiff.diff(section(item("A", 1), item("B", 2)), section(item("A", 1L), item("B", 2.0)), 2)
+            .isEmpty());
+    }
+
+    @Test
+    public void testChangedItemReplacedWhole() {
+        final Map<String, Object> updates =
+            ValueDiff.diff(section(item("A", 1), item("B", 2)), section(item("A", 1), item("B2", 2)), 2);
+        assertEquals(Collections.singletonMap("items/b", (Object) item("B2", 2L)), updates);
+    }
+
+    @Test
+    public void testChangedLeafHasNoTrailingSlash() {
+        final Map<String, Object> updates =
+            ValueDiff.diff(section(item("A", 1), null), section(item("A2", 1), null), 3);
+        assertEquals(Collections.singletonMap("items/a/name", (Object) "A2"), updates);
+
+        // Also when the leaf is directly under the value
+        final HashMap<String, Object> renamed = new HashMap<>(section(item("A", 1), null));
+        renamed.put("name", "Renamed");
+        assertEquals(
+            Collections.singletonMap("name", (Object) "Renamed"),
+            ValueDiff.diff(section(item("A", 1), null), renamed, 3));
+    }
+
+    @Test
+    public void testAddedAndRemovedItems() {
+        final Map<String, Object> updates =
+            ValueDiff.diff(section(item("A", 1), null), section(null, item("B", 2)), 2);
+        assertEquals(2, updates.size());
+        assertTrue(updates.containsKey("items/a"));
+        assertNull(updates.get("items/a"));
+        assertEquals(item("B", 2L), updates.get("items/b"));
+    }
+
+    @Test
+    public void testNothingPreviousReplacesWhole() {
+        final Map<String, Object> current = section(item("A", 1), null);
+        final Map<String, Object> updates = ValueDiff.diff(null, current, 2);
+        assertEquals(1, updates.size());
+        assertTrue(updates.containsKey(""));
+    }
+
+    @Test
+    public void testListAndMapReplacedWhole() {
+        // The database reads maps with small integer keys back as lists
+        final HashMap<String, Object> previous = new HashMap<>();
+        previous.put("ids", new ArrayList<Object>(Arrays.asList("x", "y")));
+        final HashMap<String, Object> ids = new HashMap<>();
+        ids.put("0", "x");
+        ids.put("5", "z");
+        final HashMap<String, Object> current = new HashMap<>();
+        current.put("ids", ids);
+
+        final Map<String, Object> updates = ValueDiff.diff(previous, current, 3);
+        assertEquals(Collections.singletonMap("ids", (Object) ids), updates);
+    }
+
+    @Test
+    public void testNormalize() {
+        assertNull(ValueDiff.normalize(new HashMap<String, Object>()));
+        assertNull(ValueDiff.normalize(new ArrayList<Object>()));
+        assertNull(ValueDiff.normalize(Collections.singletonMap("empty", (Object) new HashMap<String, Object>())));
+        assertEquals(3L, ValueDiff.normalize(3));
+        assertEquals(3L, ValueDiff.normalize(3.0f));
+        assertEquals(2.5, ValueDiff.normalize(2.5f));
+    }
+
+}
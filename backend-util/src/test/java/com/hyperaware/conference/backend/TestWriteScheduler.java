@@ -0,0 +1,135 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.backend;
+
+import com.google.firebase.tasks.OnCompleteListener;
+import com.google.firebase.tasks.Task;
+import com.google.firebase.tasks.TaskCompletionSource;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestWriteScheduler {
+
+    private static WriteScheduler.Write pending(final TaskCompletionSource<Void> source) {
+        return new WriteScheduler.Write() {
+            @Override
+            public Task<Void> start() {
+                return source.getTask();
+            }
+        };
+    }
+
+    @Test
+    public void testBlocksAtMaxInFlight() throws Exception {
+        final WriteScheduler scheduler = new WriteScheduler(2);
+        final TaskCompletionSource<Void> first = new TaskCompletionSource<>();
+        final TaskCompletionSource<Void> second = new TaskCompletionSource<>();
+        final TaskCompletionSource<Void> third = new TaskCompletionSource<>();
+        scheduler.submit("first", pending(first), null);
+        scheduler.submit("second", pending(second), null);
+        assertEquals(2, scheduler.getInFlight());
+
+        final CountDownLatch started = new CountDownLatch(1);
+        final Thread producer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    scheduler.submit("third", new WriteScheduler.Write() {
+                        @Override
+                        public Task<Void> start() {
+                            started.countDown();
+                            return third.getTask();
+                        }
+                    }, null);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        producer.start();
+        assertFalse(started.await(200, TimeUnit.MILLISECONDS));
+
+        first.setResult(null);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        producer.join();
+
+        second.setResult(null);
+        third.setResult(null);
+        scheduler.awaitAll();
+        assertEquals(0, scheduler.getInFlight());
+        assertEquals(3, scheduler.getLatency().getCount());
+        assertTrue(scheduler.getFailures().isEmpty());
+    }
+
+    @Test
+    public void testFailuresKeptByPath() throws Exception {
+        final WriteScheduler scheduler = new WriteScheduler(4);
+        final TaskCompletionSource<Void> ok = new TaskCompletionSource<>();
+        final TaskCompletionSource<Void> failing = new TaskCompletionSource<>();
+        final AtomicBoolean listenerSawFailure = new AtomicBoolean();
+        scheduler.submit("ok", pending(ok), null);
+        scheduler.submit("failing", pending(failing), new OnCompleteListener<Void>() {
+            @Override
+            public void onComplete(Task<Void> task) {
+                listenerSawFailure.set(!task.isSuccessful());
+            }
+        });
+
+        final Exception e = new Exception("denied");
+        ok.setResult(null);
+        failing.setException(e);
+        scheduler.awaitAll();
+
+        assertTrue(listenerSawFailure.get());
+        assertEquals(1, scheduler.getFailures().size());
+        assertSame(e, scheduler.getFailures().get("failing"));
+    }
+
+    @Test
+    public void testWriteThatFailsToStart() throws Exception {
+        final WriteScheduler scheduler = new WriteScheduler(1);
+        final IllegalStateException e = new IllegalStateException("no connection");
+        try {
+            scheduler.submit("broken", new WriteScheduler.Write() {
+                @Override
+                public Task<Void> start() {
+                    throw e;
+                }
+            }, null);
+            fail();
+        }
+        catch (IllegalStateException expected) {
+        }
+
+        // Its permit was given back
+        assertEquals(0, scheduler.getInFlight());
+        assertSame(e, scheduler.getFailures().get("broken"));
+        scheduler.awaitAll();
+    }
+
+}
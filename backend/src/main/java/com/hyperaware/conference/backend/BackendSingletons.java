@@ -17,11 +17,13 @@
 package com.hyperaware.conference.backend;
 
 import com.google.firebase.database.FirebaseDatabase;
+import com.hyperaware.conference.backend.config.ConfigStrategy;
 import com.hyperaware.conference.eventmobi.EventmobiConfig;
 
 public class BackendSingletons {
 
     public static FirebaseDatabase fdb;
     public static EventmobiConfig eventmobiConfig;
+    public static ConfigStrategy configStrategy;
 
 }
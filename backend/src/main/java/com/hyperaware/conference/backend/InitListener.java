@@ -42,6 +42,7 @@ public class InitListener implements ServletContextListener {
 
         BackendSingletons.fdb = configStrategy.getFirebaseDatabase();
         BackendSingletons.eventmobiConfig = configStrategy.getEventmobiConfig();
+        BackendSingletons.configStrategy = configStrategy;
 
         context.log("Firebase database: " + BackendSingletons.fdb.getReference());
         context.log("Eventmobi API key: " + BackendSingletons.eventmobiConfig.getApiKey());
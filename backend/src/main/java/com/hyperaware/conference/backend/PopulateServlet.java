@@ -16,6 +16,9 @@
 
 package com.hyperaware.conference.backend;
 
+import com.hyperaware.conference.eventmobi.EventmobiApi;
+import com.hyperaware.conference.mechanics.MetricsRegistry;
+
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
@@ -35,8 +38,17 @@ public class PopulateServlet extends HttpServlet {
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException, ServletException {
         final ServletContext context = getServletContext();
         context.log("Populating event data in Firebase");
-        try {
-            new Populate(BackendSingletons.fdb, BackendSingletons.eventmobiConfig).run();
+        final MetricsRegistry metrics = new MetricsRegistry();
+        try (EventmobiApi api = BackendSingletons.configStrategy.createEventmobiApi(metrics)) {
+            final PopulateOptions options = new PopulateOptions();
+            options.setDigestStore(BackendSingletons.configStrategy.getDigestStore());
+            new Populate(
+                BackendSingletons.fdb,
+                BackendSingletons.eventmobiConfig,
+                api,
+                options,
+                metrics
+            ).run();
         }
         catch (Exception e) {
             context.log("Error during populate", e);
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.mechanics;
+
+import java.util.concurrent.Future;
+
+/**
+ * Non-blocking counterpart to Fetcher.  The returned Future yields the
+ * fetched object, or fails with an ExecutionException whose cause is the
+ * FetchException (or other error) that occurred.  Use AsyncFetchers.await
+ * to get the result back with Fetcher semantics.
+ *
+ * @param <T> the type to fetch
+ */
+
+public interface AsyncFetcher<T> {
+
+    Future<T> fetchAsync();
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.mechanics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Helpers for running Fetchers concurrently and collecting their results.
+ */
+
+public final class AsyncFetchers {
+
+    private AsyncFetchers() {
+    }
+
+    /**
+     * Creates an executor that runs at most the given number of fetches
+     * at once.  Its threads are daemons, so an executor that is never
+     * shut down won't keep the JVM alive.
+     */
+    public static ExecutorService newBoundedExecutor(final int parallelism, final String name) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        return Executors.newFixedThreadPool(parallelism, new DaemonThreadFactory(name));
+    }
+
+    public static <T> AsyncFetcher<T> async(final Fetcher<T> fetcher, final Executor executor) {
+        return new ExecutorAsyncFetcher<>(fetcher, executor);
+    }
+
+    /**
+     * Blocks until the future completes, then returns its result, or
+     * throws a FetchException describing why it failed.
+     */
+    public static <T> T await(final Future<T> future) throws FetchException {
+        try {
+            return future.get();
+        }
+        catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof FetchException) {
+                throw (FetchException) cause;
+            }
+            throw new FetchException(cause);
+        }
+        catch (final CancellationException e) {
+            throw new FetchException("Fetch was cancelled", e);
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FetchException("Interrupted while waiting for fetch", e);
+        }
+    }
+
+    /**
+     * Waits for all of the futures, returning their results in the same
+     * order.  If any of them fails, the rest are cancelled and the first
+     * failure (in list order) is thrown.
+     */
+    public static <T> List<T> awaitAll(final List<? extends Future<? extends T>> futures) throws FetchException {
+        final ArrayList<T> results = new ArrayList<>(futures.size());
+        try {
+            for (final Future<? extends T> future : futures) {
+                results.add(await(future));
+            }
+        }
+        catch (final FetchException e) {
+            for (final Future<? extends T> future : futures) {
+                future.cancel(true);
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    /**
+     * Invokes all of the fetchers on the executor and waits for all of them
+     * to complete.  Concurrency is bounded by the executor.
+     */
+    public static <T> List<T> fetchAll(final List<? extends Fetcher<? extends T>> fetchers, final Executor executor)
+        throws FetchException {
+        final ArrayList<Future<? extends T>> futures = new ArrayList<>(fetchers.size());
+        for (final Fetcher<? extends T> fetcher : fetchers) {
+            futures.add(startFetch(fetcher, executor));
+        }
+        return awaitAll(futures);
+    }
+
+    private static <T> Future<T> startFetch(final Fetcher<T> fetcher, final Executor executor) {
+        return new ExecutorAsyncFetcher<>(fetcher, executor).fetchAsync();
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        public DaemonThreadFactory(final String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.mechanics;
+
+/**
+ * Fetcher decorator that consults a CircuitBreaker before each fetch and
+ * reports the outcome back to it.  The same breaker should be shared by
+ * every fetcher of the same endpoint.
+ *
+ * A failure the RetryPredicate says would only repeat, such as a response
+ * that can't be parsed, still means the endpoint answered, so it counts as
+ * a success to the breaker.
+ */
+
+public class CircuitBreakerFetcher<T> implements Fetcher<T> {
+
+    private final Fetcher<T> fetcher;
+    private final CircuitBreaker breaker;
+    private final RetryPredicate retryPredicate;
+
+    public CircuitBreakerFetcher(Fetcher<T> fetcher, CircuitBreaker breaker) {
+        this(fetcher, breaker, FetchPolicy.DEFAULT_RETRY_PREDICATE);
+    }
+
+    public CircuitBreakerFetcher(Fetcher<T> fetcher, CircuitBreaker breaker, RetryPredicate retryPredicate) {
+        this.fetcher = fetcher;
+        this.breaker = breaker;
+        this.retryPredicate = retryPredicate;
+    }
+
+    @Override
+    public T fetch() throws FetchException {
+        if (!breaker.tryAcquire()) {
+            throw new CircuitOpenException("Circuit open for " + breaker.getName());
+        }
+
+        final T result;
+        try {
+            result = fetcher.fetch();
+        }
+        catch (FetchException e) {
+            if (retryPredicate.isRetryable(e)) {
+                breaker.onFailure();
+            }
+            else {
+                breaker.onSuccess();
+            }
+            throw e;
+        }
+        catch (RuntimeException e) {
+            breaker.onFailure();
+            throw e;
+        }
+        breaker.onSuccess();
+        return result;
+    }
+
+}
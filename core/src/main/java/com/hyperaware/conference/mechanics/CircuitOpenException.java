@@ -14,20 +14,16 @@
  * limitations under the License.
  */
 
-package com.hyperaware.conference.eventmobi.parser.gson;
+package com.hyperaware.conference.mechanics;
 
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonDeserializer;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonParseException;
-
-import java.lang.reflect.Type;
+/**
+ * Thrown instead of fetching when a CircuitBreaker is refusing requests.
+ */
 
-public class BooleanDeserializer implements JsonDeserializer<Boolean> {
+public class CircuitOpenException extends FetchException {
 
-    @Override
-    public Boolean deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
-        return "1".equals(json.getAsString());
+    public CircuitOpenException(String detailMessage) {
+        super(detailMessage);
     }
 
 }
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.mechanics;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A Streamer decorator that transparently decompresses gzip and zlib
+ * (HTTP "deflate") content.  The encoding is detected from the first bytes
+ * of the stream rather than from headers, so it works the same for bytes
+ * replayed from a cache, and content that isn't compressed passes through
+ * untouched.
+ *
+ * A decoder stops at the end of the compressed data and never reads the
+ * underlying stream to its end, so once the decoded content has been read
+ * to its end, the rest of the underlying stream is read and thrown away.
+ * Decorators beneath this one that only act on a complete stream, such as
+ * HttpResponseCache and RecordingStreamer, then see it end.  A stream
+ * closed before then is just closed, so abandoning a fetch doesn't
+ * download the rest of it.
+ */
+
+public class DecompressingStreamer implements Streamer {
+
+    private final Streamer streamer;
+
+    public DecompressingStreamer(final Streamer streamer) {
+        this.streamer = streamer;
+    }
+
+    @Override
+    public InputStream stream() throws IOException {
+        final InputStream raw = new BufferedInputStream(streamer.stream());
+
+        raw.mark(2);
+        final int b0 = raw.read();
+        final int b1 = raw.read();
+        raw.reset();
+
+        final InputStream decoded;
+        if (b0 == 0x1f && b1 == 0x8b) {
+            decoded = new DrainingInputStream(new GZIPInputStream(raw), raw);
+        }
+        else if (isZlibHeader(b0, b1)) {
+            decoded = new DrainingInputStream(new InflaterInputStream(raw), raw);
+        }
+        else {
+            decoded = raw;
+        }
+        return decoded;
+    }
+
+    /**
+     * A zlib stream starts with a CMF byte (deflate, window size in the high
+     * nibble) and a FLG byte that makes the pair a multiple of 31.  JSON text
+     * can never begin this way.
+     */
+    private static boolean isZlibHeader(final int cmf, final int flg) {
+        return cmf >= 0 && flg >= 0 && (cmf & 0x0f) == 8 && (cmf >> 4) <= 7 && ((cmf << 8) | flg) % 31 == 0;
+    }
+
+    /**
+     * Reads the raw stream to its end once the decoded stream has ended.
+     */
+    private static class DrainingInputStream extends FilterInputStream {
+        private final InputStream raw;
+        private boolean drained;
+
+        public DrainingInputStream(final InputStream decoded, final InputStream raw) {
+            super(decoded);
+            this.raw = raw;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = super.read();
+            if (b < 0) {
+                drain();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            final int n = super.read(b, off, len);
+            if (n < 0) {
+                drain();
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            }
+            finally {
+                raw.close();
+            }
+        }
+
+        private void drain() {
+            if (drained) {
+                return;
+            }
+            drained = true;
+            try {
+                IOUtils.skip(raw, Long.MAX_VALUE);
+            }
+            catch (IOException e) {
+                // The decoded content is all there is, so a failure after it
+                // only means the stream isn't seen to end
+            }
+        }
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.mechanics;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Remembers a digest of the content last handled for each of a set of
+ * keys, so that unchanged content can be recognized and skipped.  A digest
+ * should only be committed after the content it was computed from has been
+ * fully handled, by whoever handled it, so content that failed to be
+ * handled is not mistaken for handled the next time it's seen.  When
+ * several handlers of the same key overlap, the last to commit wins, since
+ * its content is the last to have been handled.
+ *
+ * If given a file, committed digests are saved to it and loaded from it, so
+ * they survive restarts.  Otherwise they're kept only in memory.
+ */
+
+public class DigestStore {
+
+    private final File file;
+    private final Properties committed = new Properties();
+
+    public DigestStore() {
+        this.file = null;
+    }
+
+    public DigestStore(File file) throws IOException {
+        this.file = file;
+        if (file.isFile()) {
+            try (InputStream is = new FileInputStream(file)) {
+                committed.load(is);
+            }
+        }
+    }
+
+    /**
+     * @return the committed digest for the key, or null if none
+     */
+    public synchronized String getCommitted(String key) {
+        return committed.getProperty(key);
+    }
+
+    /**
+     * Makes the given digest the committed one for the key, and saves all
+     * committed digests if there's a file.
+     *
+     * @param digest the digest of the content that was handled, as carried
+     *     by its Digested fetch result
+     */
+    public synchronized void commit(String key, String digest) throws IOException {
+        if (digest.equals(committed.getProperty(key))) {
+            return;
+        }
+        committed.setProperty(key, digest);
+        if (file != null) {
+            save();
+        }
+    }
+
+    /**
+     * Forgets the committed digest for the key, so its content is handled
+     * again the next time it's seen even if it hasn't changed, and saves
+     * all committed digests if there's a file.
+     */
+    public synchronized void forget(String key) throws IOException {
+        if (committed.remove(key) != null && file != null) {
+            save();
+        }
+    }
+
+    // Called with the lock held
+    private void save() throws IOException {
+        final File dir = file.getAbsoluteFile().getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Can't create directory " + dir);
+        }
+        final File temp = File.createTempFile(file.getName() + ".", ".tmp", dir);
+        try (OutputStream os = new FileOutputStream(temp)) {
+            committed.store(os, null);
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.mechanics;
+
+/**
+ * A fetch result that carries the digest of the content it was parsed
+ * from.  StreamingFetcher sets it when checking a DigestStore, so that
+ * whoever handles the result can commit exactly the digest of what it
+ * handled.
+ */
+
+public interface Digested {
+
+    /**
+     * @return the digest of the content, or null if none was computed
+     */
+    String getContentDigest();
+
+    void setContentDigest(String digest);
+
+}
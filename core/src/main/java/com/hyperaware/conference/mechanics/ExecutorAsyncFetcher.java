@@ -0,0 +1,53 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.mechanics;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * An AsyncFetcher that runs a blocking Fetcher on an Executor.  Each call
+ * to fetchAsync() schedules a new invocation of the underlying Fetcher.
+ *
+ * @param <T> the type to fetch
+ */
+
+public class ExecutorAsyncFetcher<T> implements AsyncFetcher<T> {
+
+    private final Fetcher<T> fetcher;
+    private final Executor executor;
+
+    public ExecutorAsyncFetcher(final Fetcher<T> fetcher, final Executor executor) {
+        this.fetcher = fetcher;
+        this.executor = executor;
+    }
+
+    @Override
+    public Future<T> fetchAsync() {
+        final FutureTask<T> task = new FutureTask<>(new Callable<T>() {
+            @Override
+            public T call() throws FetchException {
+                return fetcher.fetch();
+            }
+        });
+        executor.execute(task);
+        return task;
+    }
+
+}
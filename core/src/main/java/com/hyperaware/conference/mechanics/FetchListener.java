@@ -0,0 +1,59 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.mechanics;
+
+/**
+ * Receives measurements from the pieces that make up a fetch (streamers,
+ * fetchers and parsers), so that it's possible to see where the time goes.
+ * Each measurement is tagged with the name of the fetch it belongs to, such
+ * as a section name, and a stage or kind from the constants below.
+ *
+ * Implementations must be thread safe, since concurrent fetches report
+ * into the same listener.
+ */
+
+public interface FetchListener {
+
+    /** Waiting for permission to make a request (e.g. a connection slot) */
+    String STAGE_QUEUE = "queue";
+    /** Establishing a connection */
+    String STAGE_CONNECT = "connect";
+    /** From sending a request to receiving the response headers */
+    String STAGE_FIRST_BYTE = "first_byte";
+    /** Getting a stream from a Streamer, which includes all of the above */
+    String STAGE_OPEN = "open";
+    /** Time spent blocked reading the response body */
+    String STAGE_DOWNLOAD = "download";
+    /** Time spent parsing, not counting time blocked reading */
+    String STAGE_PARSE = "parse";
+    /** Time spent in code that receives items as they're parsed */
+    String STAGE_SINK = "sink";
+    /** The whole fetch, from start to result */
+    String STAGE_TOTAL = "total";
+
+    /** Bytes as received from the network */
+    String BYTES_WIRE = "wire";
+    /** Bytes as seen by the parser, after any decompression */
+    String BYTES_BODY = "body";
+
+    void onTiming(String fetch, String stage, long nanos);
+
+    void onBytes(String fetch, String kind, long bytes);
+
+    void onError(String fetch, Throwable error);
+
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.mechanics;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Settings for how hard to try when fetching from a remote endpoint, and
+ * the place that keeps one CircuitBreaker per endpoint.  Since breakers
+ * only help if they remember past failures, a policy should live as long
+ * as the process, not just one fetch.
+ *
+ * Fetchers are decorated from the outside in as retry, circuit breaker,
+ * then hedging, so each retry is checked against the breaker, and a
+ * hedged pair of requests counts as one attempt.
+ */
+
+public class FetchPolicy {
+
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    public static final long DEFAULT_BACKOFF_MILLIS = 500;
+    public static final long DEFAULT_MAX_BACKOFF_MILLIS = 10 * 1000;
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    public static final long DEFAULT_OPEN_MILLIS = 60 * 1000;
+    private static final int HEDGE_THREADS = 16;
+
+    /**
+     * Retries everything but failures that would only happen again: a
+     * response that can't be parsed, or an HTTP 4xx (other than 408 and
+     * 429).  I/O errors are always retried, even when a parser reports
+     * them, since they may have cut off perfectly good content.
+     */
+    public static final RetryPredicate DEFAULT_RETRY_PREDICATE = new RetryPredicate() {
+        @Override
+        public boolean isRetryable(FetchException e) {
+            boolean parseFailure = false;
+            for (Throwable t = e.getCause(); t != null; t = t.getCause()) {
+                if (t instanceof HttpStatusException) {
+                    return !((HttpStatusException) t).isClientError();
+                }
+                else if (t instanceof IOException) {
+                    return true;
+                }
+                else if (t instanceof ParseException) {
+                    parseFailure = true;
+                }
+            }
+            return !parseFailure;
+        }
+    };
+
+    private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+    private long backoffMillis = DEFAULT_BACKOFF_MILLIS;
+    private long maxBackoffMillis = DEFAULT_MAX_BACKOFF_MILLIS;
+    private int failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+    private long openMillis = DEFAULT_OPEN_MILLIS;
+    // 0 disables hedging
+    private long hedgeAfterMillis;
+    private RetryPredicate retryPredicate = DEFAULT_RETRY_PREDICATE;
+
+    private final ConcurrentMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private ExecutorService hedgeExecutor;
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public long getBackoffMillis() {
+        return backoffMillis;
+    }
+
+    public void setBackoffMillis(long backoffMillis) {
+        this.backoffMillis = backoffMillis;
+    }
+
+    public long getMaxBackoffMillis() {
+        return maxBackoffMillis;
+    }
+
+    public void setMaxBackoffMillis(long maxBackoffMillis) {
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public void setFailureThreshold(int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+    }
+
+    public long getOpenMillis() {
+        return openMillis;
+    }
+
+    public void setOpenMillis(long openMillis) {
+        this.openMillis = openMillis;
+    }
+
+    public long getHedgeAfterMillis() {
+        return hedgeAfterMillis;
+    }
+
+    public void setHedgeAfterMillis(long hedgeAfterMillis) {
+        this.hedgeAfterMillis = hedgeAfterMillis;
+    }
+
+    public RetryPredicate getRetryPredicate() {
+        return retryPredicate;
+    }
+
+    public void setRetryPredicate(RetryPredicate retryPredicate) {
+        this.retryPredicate = retryPredicate;
+    }
+
+    /**
+     * @return the breaker for the named endpoint, created on first use
+     */
+    public CircuitBreaker getCircuitBreaker(final String endpoint) {
+        CircuitBreaker breaker = breakers.get(endpoint);
+        if (breaker == null) {
+            final CircuitBreaker created = new CircuitBreaker(endpoint, failureThreshold, openMillis);
+            breaker = breakers.putIfAbsent(endpoint, created);
+            if (breaker == null) {
+                breaker = created;
+            }
+        }
+        return breaker;
+    }
+
+    /**
+     * Wraps a fetcher of the named endpoint with this policy.
+     *
+     * @param hedgeable true if the fetcher may safely be invoked twice at
+     *     the same time; fetchers that push results somewhere as a side
+     *     effect are not
+     */
+    public <T> Fetcher<T> apply(final String endpoint, final Fetcher<T> fetcher, final boolean hedgeable) {
+        Fetcher<T> f = fetcher;
+        if (hedgeable && hedgeAfterMillis > 0) {
+            f = new HedgingFetcher<>(f, hedgeAfterMillis, getHedgeExecutor());
+        }
+        f = new CircuitBreakerFetcher<>(f, getCircuitBreaker(endpoint), retryPredicate);
+        if (maxAttempts > 1) {
+            f = new RetryingFetcher<>(f, maxAttempts, backoffMillis, maxBackoffMillis, retryPredicate);
+        }
+        return f;
+    }
+
+    private synchronized ExecutorService getHedgeExecutor() {
+        if (hedgeExecutor == null) {
+            hedgeExecutor = AsyncFetchers.newBoundedExecutor(HEDGE_THREADS, "hedged-fetch");
+        }
+        return hedgeExecutor;
+    }
+
+}
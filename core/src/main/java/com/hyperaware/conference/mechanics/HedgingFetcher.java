@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.mechanics;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fetcher decorator that guards against the occasional very slow request.
+ * If the first fetch hasn't finished after a latency threshold, a second
+ * identical fetch is started, and whichever succeeds first wins.  The
+ * other is cancelled.
+ *
+ * Both fetches run on the given executor, which must not be the one
+ * the caller itself is running on if that executor is bounded.  Only use
+ * this with fetchers that are safe to invoke concurrently and have no side
+ * effects beyond returning their result.
+ */
+
+public class HedgingFetcher<T> implements Fetcher<T> {
+
+    private final Fetcher<T> fetcher;
+    private final long hedgeAfterMillis;
+    private final Executor executor;
+
+    public HedgingFetcher(Fetcher<T> fetcher, long hedgeAfterMillis, Executor executor) {
+        this.fetcher = fetcher;
+        this.hedgeAfterMillis = hedgeAfterMillis;
+        this.executor = executor;
+    }
+
+    @Override
+    public T fetch() throws FetchException {
+        final CompletionService<T> completion = new ExecutorCompletionService<>(executor);
+        final Callable<T> callable = new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                return fetcher.fetch();
+            }
+        };
+
+        final ArrayList<Future<T>> futures = new ArrayList<>(2);
+        try {
+            futures.add(completion.submit(callable));
+            final Future<T> first = completion.poll(hedgeAfterMillis, TimeUnit.MILLISECONDS);
+            if (first != null) {
+                // Finished (or failed) in time, no hedge needed
+                return AsyncFetchers.await(first);
+            }
+
+            futures.add(completion.submit(callable));
+            FetchException failure = null;
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    return AsyncFetchers.await(completion.take());
+                }
+                catch (final FetchException e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+            throw failure;
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FetchException("Interrupted while waiting for fetch", e);
+        }
+        finally {
+            for (final Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+}
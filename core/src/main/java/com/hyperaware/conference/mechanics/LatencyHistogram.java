@@ -0,0 +1,100 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.mechanics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations.  Values are counted in buckets whose
+ * bounds are powers of two microseconds, so percentiles are reported as
+ * the upper bound of the bucket they fall in, which is at most twice the
+ * true value.  Count, total and max are exact.
+ */
+
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 40;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(final long nanos) {
+        final long value = Math.max(0, nanos);
+        final long micros = value / 1000;
+        final int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        buckets.incrementAndGet(bucket);
+        count.incrementAndGet();
+        totalNanos.addAndGet(value);
+
+        long max;
+        while ((max = maxNanos.get()) < value && !maxNanos.compareAndSet(max, value)) {
+            // retry
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.get();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public long getMeanNanos() {
+        final long n = count.get();
+        return n > 0 ? totalNanos.get() / n : 0;
+    }
+
+    /**
+     * @param fraction between 0 and 1, e.g. 0.99
+     * @return an upper bound on the given percentile, in nanoseconds
+     */
+    public long getPercentileNanos(final double fraction) {
+        final long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(fraction * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(maxNanos.get(), (1L << i) * 1000);
+            }
+        }
+        return maxNanos.get();
+    }
+
+    public String toString() {
+        return
+            "{LatencyHistogram" +
+            " count=" + getCount() +
+            " meanMs=" + getMeanNanos() / 1000000 +
+            " p50Ms=" + getPercentileNanos(0.5) / 1000000 +
+            " p99Ms=" + getPercentileNanos(0.99) / 1000000 +
+            " maxMs=" + getMaxNanos() / 1000000 +
+            "}";
+    }
+
+}
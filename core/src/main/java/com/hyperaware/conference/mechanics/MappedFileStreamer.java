@@ -0,0 +1,154 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.mechanics;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A Streamer that reads a file through a read-only memory mapping instead
+ * of file reads, so the bytes come straight from the OS page cache with no
+ * intermediate buffering.  Files larger than the mapping window are mapped
+ * one window at a time as the stream advances, so any size of file can be
+ * streamed without reserving address space for all of it.
+ *
+ * Java offers no supported way to unmap a buffer, so each window's mapping
+ * is released when it's garbage collected, not when the stream is closed.
+ */
+
+public class MappedFileStreamer implements Streamer {
+
+    public static final int DEFAULT_WINDOW_BYTES = 64 * 1024 * 1024;
+
+    private final File file;
+    private final int windowBytes;
+
+    public MappedFileStreamer(final File file) {
+        this(file, DEFAULT_WINDOW_BYTES);
+    }
+
+    public MappedFileStreamer(final File file, final int windowBytes) {
+        if (windowBytes < 1) {
+            throw new IllegalArgumentException("windowBytes must be at least 1");
+        }
+        this.file = file;
+        this.windowBytes = windowBytes;
+    }
+
+    @Override
+    public InputStream stream() throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            return new MappedInputStream(raf.getChannel(), windowBytes);
+        }
+        catch (IOException | RuntimeException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    private static class MappedInputStream extends InputStream {
+        private final FileChannel channel;
+        private final long size;
+        private final int windowBytes;
+        private long windowStart;
+        private MappedByteBuffer window;
+        private boolean closed;
+
+        public MappedInputStream(final FileChannel channel, final int windowBytes) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            this.windowBytes = windowBytes;
+            mapWindow(0);
+        }
+
+        private void mapWindow(final long start) throws IOException {
+            final long length = Math.min(windowBytes, size - start);
+            windowStart = start;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        }
+
+        /**
+         * @return false at the end of the file
+         */
+        private boolean ensureRemaining() throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            if (window.hasRemaining()) {
+                return true;
+            }
+            final long next = windowStart + window.capacity();
+            if (next >= size) {
+                return false;
+            }
+            mapWindow(next);
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return ensureRemaining() ? window.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!ensureRemaining()) {
+                return -1;
+            }
+            final int n = Math.min(len, window.remaining());
+            window.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(final long n) throws IOException {
+            if (n <= 0 || !ensureRemaining()) {
+                return 0;
+            }
+            final int skipped = (int) Math.min(n, window.remaining());
+            window.position(window.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            if (closed) {
+                return 0;
+            }
+            final long left = size - windowStart - window.position();
+            return (int) Math.min(Integer.MAX_VALUE, left);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                window = null;
+                channel.close();
+            }
+        }
+    }
+
+}
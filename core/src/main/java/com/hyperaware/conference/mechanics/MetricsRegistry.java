@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.mechanics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * FetchListener that keeps everything reported to it in memory: a latency
+ * histogram per fetch and stage, byte counters per fetch and kind, and an
+ * error count per fetch.  Values accumulate for as long as the registry is
+ * kept, so use a new one for each run that should be reported separately.
+ */
+
+public class MetricsRegistry implements FetchListener {
+
+    private final ConcurrentMap<String, ConcurrentMap<String, LatencyHistogram>> timings = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ConcurrentMap<String, AtomicLong>> bytes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicLong> errors = new ConcurrentHashMap<>();
+
+    @Override
+    public void onTiming(final String fetch, final String stage, final long nanos) {
+        final ConcurrentMap<String, LatencyHistogram> stages = getOrCreate(timings, fetch);
+        LatencyHistogram histogram = stages.get(stage);
+        if (histogram == null) {
+            final LatencyHistogram created = new LatencyHistogram();
+            histogram = stages.putIfAbsent(stage, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        histogram.record(nanos);
+    }
+
+    @Override
+    public void onBytes(final String fetch, final String kind, final long count) {
+        getCounter(getOrCreate(bytes, fetch), kind).addAndGet(count);
+    }
+
+    @Override
+    public void onError(final String fetch, final Throwable error) {
+        getCounter(errors, fetch).incrementAndGet();
+    }
+
+    /**
+     * @return names of all fetches that have reported anything, sorted
+     */
+    public List<String> getFetchNames() {
+        final ArrayList<String> names = new ArrayList<>(timings.keySet());
+        for (final String name : bytes.keySet()) {
+            if (!names.contains(name)) {
+                names.add(name);
+            }
+        }
+        for (final String name : errors.keySet()) {
+            if (!names.contains(name)) {
+                names.add(name);
+            }
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    /**
+     * @return the histogram for the fetch and stage, or null if nothing
+     *     was reported for it
+     */
+    public LatencyHistogram getHistogram(final String fetch, final String stage) {
+        final ConcurrentMap<String, LatencyHistogram> stages = timings.get(fetch);
+        return stages != null ? stages.get(stage) : null;
+    }
+
+    public long getBytes(final String fetch, final String kind) {
+        final ConcurrentMap<String, AtomicLong> kinds = bytes.get(fetch);
+        final AtomicLong counter = kinds != null ? kinds.get(kind) : null;
+        return counter != null ? counter.get() : 0;
+    }
+
+    public long getErrors(final String fetch) {
+        final AtomicLong counter = errors.get(fetch);
+        return counter != null ? counter.get() : 0;
+    }
+
+    private static <V> ConcurrentMap<String, V> getOrCreate(
+        final ConcurrentMap<String, ConcurrentMap<String, V>> map, final String key) {
+        ConcurrentMap<String, V> value = map.get(key);
+        if (value == null) {
+            final ConcurrentMap<String, V> created = new ConcurrentHashMap<>();
+            value = map.putIfAbsent(key, created);
+            if (value == null) {
+                value = created;
+            }
+        }
+        return value;
+    }
+
+    private static AtomicLong getCounter(final ConcurrentMap<String, AtomicLong> map, final String key) {
+        AtomicLong counter = map.get(key);
+        if (counter == null) {
+            final AtomicLong created = new AtomicLong();
+            counter = map.putIfAbsent(key, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        return counter;
+    }
+
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.mechanics;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A Streamer decorator that can start downloading before anyone asks for
+ * the stream.  Once started, the underlying stream is read to a temp file
+ * in the background, and the first call to stream() waits for that and
+ * returns the file's contents, deleting the file when the stream is
+ * closed.  If the download hasn't been picked up by the executor yet, the
+ * caller does it itself rather than wait in the queue.
+ *
+ * Later calls, and the first one if the download failed, stream from the
+ * underlying streamer as usual.  Call discard() if the prefetched content
+ * won't be used, to delete it.
+ */
+
+public class PrefetchingStreamer implements Streamer {
+
+    private final Streamer streamer;
+    private final FutureTask<File> download;
+
+    // Guarded by this
+    private boolean consumed;
+    private boolean discarded;
+    private File spooled;
+
+    public PrefetchingStreamer(final Streamer streamer) {
+        this.streamer = streamer;
+        this.download = new FutureTask<>(new Callable<File>() {
+            @Override
+            public File call() throws IOException {
+                return spool();
+            }
+        });
+    }
+
+    /**
+     * Starts the download on the given executor.
+     *
+     * @return this
+     */
+    public PrefetchingStreamer start(final Executor executor) {
+        executor.execute(download);
+        return this;
+    }
+
+    @Override
+    public InputStream stream() throws IOException {
+        synchronized (this) {
+            if (consumed || discarded) {
+                return streamer.stream();
+            }
+            consumed = true;
+        }
+
+        // Does nothing if the download has already started elsewhere
+        download.run();
+        final File file;
+        try {
+            file = download.get();
+        }
+        catch (ExecutionException e) {
+            return streamer.stream();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for prefetch");
+        }
+
+        return new FileInputStream(file) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                }
+                finally {
+                    file.delete();
+                }
+            }
+        };
+    }
+
+    /**
+     * Deletes the prefetched content, if it hasn't been streamed, or makes
+     * sure it's deleted when the download finishes.
+     */
+    public void discard() {
+        synchronized (this) {
+            if (consumed || discarded) {
+                return;
+            }
+            discarded = true;
+            if (spooled != null) {
+                spooled.delete();
+            }
+        }
+        download.cancel(false);
+    }
+
+    private File spool() throws IOException {
+        final File temp = File.createTempFile("prefetch", ".tmp");
+        boolean complete = false;
+        try {
+            final InputStream is = streamer.stream();
+            try {
+                final OutputStream os = new FileOutputStream(temp);
+                try {
+                    IOUtils.copy(is, os);
+                }
+                finally {
+                    os.close();
+                }
+            }
+            finally {
+                is.close();
+            }
+            complete = true;
+        }
+        finally {
+            if (!complete) {
+                temp.delete();
+            }
+        }
+
+        synchronized (this) {
+            if (discarded) {
+                temp.delete();
+            }
+            else {
+                spooled = temp;
+            }
+        }
+        return temp;
+    }
+
+}
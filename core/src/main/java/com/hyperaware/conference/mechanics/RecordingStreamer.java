@@ -0,0 +1,65 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.mechanics;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A Streamer decorator that writes a copy of every byte it streams to a
+ * file, while passing them through unchanged.  The copy goes to a temp
+ * file next to the target and is only moved into place if the stream was
+ * read to the end, so a failed or abandoned stream never leaves a partial
+ * recording behind, and an earlier complete recording is only replaced by
+ * a newer complete one.
+ */
+
+public class RecordingStreamer implements Streamer {
+
+    private final Streamer streamer;
+    private final File file;
+
+    public RecordingStreamer(final Streamer streamer, final File file) {
+        this.streamer = streamer;
+        this.file = file;
+    }
+
+    @Override
+    public InputStream stream() throws IOException {
+        final InputStream is = streamer.stream();
+        try {
+            final File temp = File.createTempFile(file.getName() + ".", ".tmp", file.getAbsoluteFile().getParentFile());
+            return new SpoolingInputStream(is, temp) {
+                @Override
+                protected void commit(File spool) throws IOException {
+                    Files.move(spool.toPath(), file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+            };
+        }
+        catch (IOException | RuntimeException e) {
+            IOUtils.closeQuietly(is);
+            throw e;
+        }
+    }
+
+}
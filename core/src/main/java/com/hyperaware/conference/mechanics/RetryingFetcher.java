@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.mechanics;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Fetcher decorator that tries again when a fetch fails, up to a maximum
+ * number of attempts.  Before each retry it waits a random time between
+ * zero and an exponentially growing ceiling ("full jitter"), so that many
+ * clients failing at once don't all come back at the same moment.
+ *
+ * Fetches refused by an open circuit, made from an interrupted thread, or
+ * that failed in a way the RetryPredicate says would only repeat, are not
+ * retried.  The underlying fetcher must be safe to invoke again
+ * after a failure.
+ */
+
+public class RetryingFetcher<T> implements Fetcher<T> {
+
+    private final Fetcher<T> fetcher;
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final RetryPredicate retryPredicate;
+
+    public RetryingFetcher(Fetcher<T> fetcher, int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+        this(fetcher, maxAttempts, baseDelayMillis, maxDelayMillis, FetchPolicy.DEFAULT_RETRY_PREDICATE);
+    }
+
+    public RetryingFetcher(
+        Fetcher<T> fetcher,
+        int maxAttempts,
+        long baseDelayMillis,
+        long maxDelayMillis,
+        RetryPredicate retryPredicate) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1");
+        }
+        this.fetcher = fetcher;
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.retryPredicate = retryPredicate;
+    }
+
+    @Override
+    public T fetch() throws FetchException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return fetcher.fetch();
+            }
+            catch (final FetchException e) {
+                if (attempt >= maxAttempts || e instanceof CircuitOpenException ||
+                    Thread.currentThread().isInterrupted() || !retryPredicate.isRetryable(e)) {
+                    throw e;
+                }
+                try {
+                    Thread.sleep(delayMillis(attempt));
+                }
+                catch (final InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the time to wait after the given (1-based) failed attempt
+     */
+    long delayMillis(final int attempt) {
+        final int shift = Math.min(attempt - 1, 30);
+        final long ceiling = Math.min(maxDelayMillis, baseDelayMillis << shift);
+        return ceiling > 0 ? ThreadLocalRandom.current().nextLong(ceiling + 1) : 0;
+    }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.mechanics;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the most recent result of some fetch and makes sure only one fetch
+ * for it is in flight at a time.  Callers that arrive while a fetch is in
+ * flight wait for it and share its result (or failure) instead of starting
+ * their own.
+ *
+ * A result is served without fetching while it's younger than the TTL.
+ * After that, and for as long as the stale window lasts, the old result is
+ * still served right away while a single refresh runs in the background on
+ * the given executor.  Failures are never cached.
+ *
+ * With a TTL and stale window of zero, this only coalesces concurrent
+ * fetches.
+ */
+
+public class SingleFlight<T> {
+
+    private final long ttlNanos;
+    private final long staleNanos;
+    private final Executor executor;
+
+    private final Object lock = new Object();
+    private boolean hasValue;
+    private T value;
+    private long loadedAtNanos;
+    private FutureTask<T> inFlight;
+
+    public SingleFlight() {
+        this(0, 0, null);
+    }
+
+    /**
+     * @param ttlMillis how long a result is served without fetching
+     * @param staleMillis how long after the TTL a result may still be
+     *     served while it's refreshed in the background
+     * @param executor runs background refreshes; if null, stale results
+     *     are never served
+     */
+    public SingleFlight(long ttlMillis, long staleMillis, Executor executor) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.staleNanos = TimeUnit.MILLISECONDS.toNanos(staleMillis);
+        this.executor = executor;
+    }
+
+    /**
+     * @param loader performs the fetch if one is needed and none is already
+     *     in flight
+     */
+    public T get(final Fetcher<? extends T> loader) throws FetchException {
+        final FutureTask<T> task;
+        boolean leader = false;
+        synchronized (lock) {
+            if (hasValue) {
+                final long age = System.nanoTime() - loadedAtNanos;
+                if (age < ttlNanos) {
+                    return value;
+                }
+                if (executor != null && age < ttlNanos + staleNanos) {
+                    revalidate(loader);
+                    return value;
+                }
+            }
+            if (inFlight == null) {
+                inFlight = newTask(loader);
+                leader = true;
+            }
+            task = inFlight;
+        }
+
+        if (leader) {
+            task.run();
+        }
+        return AsyncFetchers.await(task);
+    }
+
+    /**
+     * Forgets the cached result, so the next get will fetch.  A fetch that's
+     * already in flight is not affected.
+     */
+    public void invalidate() {
+        synchronized (lock) {
+            hasValue = false;
+            value = null;
+        }
+    }
+
+    // Called with the lock held
+    private void revalidate(final Fetcher<? extends T> loader) {
+        if (inFlight != null) {
+            return;
+        }
+        inFlight = newTask(loader);
+        try {
+            executor.execute(inFlight);
+        }
+        catch (RejectedExecutionException e) {
+            // Keep serving the stale result, and try again next time
+            inFlight = null;
+        }
+    }
+
+    private FutureTask<T> newTask(final Fetcher<? extends T> loader) {
+        return new FutureTask<>(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                try {
+                    final T result = loader.fetch();
+                    synchronized (lock) {
+                        value = result;
+                        hasValue = true;
+                        loadedAtNanos = System.nanoTime();
+                    }
+                    return result;
+                }
+                finally {
+                    synchronized (lock) {
+                        inFlight = null;
+                    }
+                }
+            }
+        });
+    }
+
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.mechanics;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Fetcher decorator that coalesces concurrent fetches into one and caches
+ * the result, as described in SingleFlight.  Several instances can share
+ * one SingleFlight, which lets fetchers created independently (for example
+ * by different requests to a servlet) share their fetches.
+ */
+
+public class SingleFlightFetcher<T> implements Fetcher<T> {
+
+    private final Fetcher<? extends T> fetcher;
+    private final SingleFlight<T> flight;
+
+    public SingleFlightFetcher(Fetcher<? extends T> fetcher, long ttlMillis, long staleMillis, Executor executor) {
+        this(fetcher, new SingleFlight<T>(ttlMillis, staleMillis, executor));
+    }
+
+    public SingleFlightFetcher(Fetcher<? extends T> fetcher, SingleFlight<T> flight) {
+        this.fetcher = fetcher;
+        this.flight = flight;
+    }
+
+    @Override
+    public T fetch() throws FetchException {
+        return flight.get(fetcher);
+    }
+
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.mechanics;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * InputStream that copies every byte read through it to a spool file,
+ * while passing them through unchanged.  When it's closed, the spool file
+ * is handed to commit() if the stream was read to its end, and deleted
+ * otherwise, so a failed or abandoned stream never leaves a partial copy
+ * behind.
+ */
+
+public abstract class SpoolingInputStream extends FilterInputStream {
+
+    private final File spool;
+    private final OutputStream out;
+    private boolean eof;
+    private boolean closed;
+
+    /**
+     * @param spool the file to copy to, which this stream then owns
+     */
+    protected SpoolingInputStream(final InputStream in, final File spool) throws IOException {
+        super(in);
+        this.spool = spool;
+        try {
+            this.out = new FileOutputStream(spool);
+        }
+        catch (IOException e) {
+            spool.delete();
+            throw e;
+        }
+    }
+
+    /**
+     * Called on close with the complete copy of the stream.  The spool file
+     * is deleted afterward if it's still there.
+     */
+    protected abstract void commit(File spool) throws IOException;
+
+    @Override
+    public int read() throws IOException {
+        final int b = super.read();
+        if (b < 0) {
+            eof = true;
+        }
+        else {
+            out.write(b);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        final int n = super.read(b, off, len);
+        if (n < 0) {
+            eof = true;
+        }
+        else {
+            out.write(b, off, n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // Skipped bytes would be missing from the copy, so read them
+        final byte[] buffer = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            final int count = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (count < 0) {
+                break;
+            }
+            skipped += count;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            super.close();
+        }
+        finally {
+            IOUtils.closeQuietly(out);
+            try {
+                if (eof) {
+                    commit(spool);
+                }
+            }
+            finally {
+                spool.delete();
+            }
+        }
+    }
+
+}
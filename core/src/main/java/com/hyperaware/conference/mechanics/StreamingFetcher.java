@@ -17,14 +17,31 @@
 package com.hyperaware.conference.mechanics;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
 
 import java.io.BufferedInputStream;
-import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 
 /**
  * A fetcher that simply takes the stream from a Streamer, sends
  * it through a Parser, and returns the result from that.
  *
+ * If given a FetchListener, it reports the time taken to open the stream,
+ * time spent blocked reading it, the number of bytes read, and the total
+ * time of the fetch.  The parser is handed a TimedInputStream, so parsers
+ * can report their own cost net of reading.
+ *
+ * If given a DigestStore, a SHA-256 digest of the stream is computed as
+ * the parser reads it, so the parser sees content as soon as it arrives.
+ * If the digest matches the one committed in the store under this fetch's
+ * name, the content hasn't changed since it was last handled, so the
+ * result is thrown away and fetch returns null.  Anything a parser pushed
+ * along while parsing has already gone, though, so whatever it was pushed
+ * to has to cope with seeing unchanged content again.  Otherwise, if the
+ * result is Digested, it's given the digest.  The caller commits that
+ * digest once it's done with the result.
+ *
  * @param <T> the type to fetch
  */
 
@@ -32,20 +49,105 @@ public class StreamingFetcher<T> implements Fetcher<T> {
 
     private final Streamer streamer;
     private final Parser<T> parser;
+    private final FetchListener listener;
+    private final String name;
+    private final DigestStore digests;
 
     public StreamingFetcher(final Streamer streamer, final Parser<T> parser) {
+        this(streamer, parser, null, null);
+    }
+
+    public StreamingFetcher(
+        final Streamer streamer, final Parser<T> parser, final FetchListener listener, final String name) {
+        this(streamer, parser, listener, name, null);
+    }
+
+    /**
+     * @param listener if not null, receives measurements of each fetch
+     * @param name identifies this fetch to the listener and digest store
+     * @param digests if not null, used to skip content that hasn't changed
+     */
+    public StreamingFetcher(
+        final Streamer streamer,
+        final Parser<T> parser,
+        final FetchListener listener,
+        final String name,
+        final DigestStore digests) {
         this.streamer = streamer;
         this.parser = parser;
+        this.listener = listener;
+        this.name = name;
+        this.digests = digests;
     }
 
     @Override
     public T fetch() throws FetchException {
-        InputStream is = null;
+        return digests != null ? fetchIfChanged() : fetchAndParse();
+    }
+
+    private T fetchAndParse() throws FetchException {
+        final long start = System.nanoTime();
+        TimedInputStream is = null;
+        try {
+            is = new TimedInputStream(new BufferedInputStream(streamer.stream()));
+            if (listener != null) {
+                listener.onTiming(name, FetchListener.STAGE_OPEN, System.nanoTime() - start);
+            }
+            final T result = parser.parse(is);
+            if (listener != null) {
+                listener.onTiming(name, FetchListener.STAGE_DOWNLOAD, is.getReadNanos());
+                listener.onBytes(name, FetchListener.BYTES_BODY, is.getBytes());
+                listener.onTiming(name, FetchListener.STAGE_TOTAL, System.nanoTime() - start);
+            }
+            return result;
+        }
+        catch (final Exception e) {
+            if (listener != null) {
+                listener.onError(name, e);
+            }
+            throw new FetchException(e);
+        }
+        finally {
+            IOUtils.closeQuietly(is);
+        }
+    }
+
+    private T fetchIfChanged() throws FetchException {
+        final long start = System.nanoTime();
+        TimedInputStream is = null;
         try {
-            is = new BufferedInputStream(streamer.stream());
-            return parser.parse(is);
+            final MessageDigest md = MessageDigest.getInstance("SHA-256");
+            is = new TimedInputStream(new DigestInputStream(new BufferedInputStream(streamer.stream()), md));
+            if (listener != null) {
+                listener.onTiming(name, FetchListener.STAGE_OPEN, System.nanoTime() - start);
+            }
+
+            T result = parser.parse(is);
+            // The parser may stop at the end of the document, but the
+            // digest has to cover everything after it too
+            IOUtils.copy(is, NullOutputStream.NULL_OUTPUT_STREAM);
+            if (listener != null) {
+                listener.onTiming(name, FetchListener.STAGE_DOWNLOAD, is.getReadNanos());
+                listener.onBytes(name, FetchListener.BYTES_BODY, is.getBytes());
+            }
+
+            final String digest = toHex(md.digest());
+            if (digest.equals(digests.getCommitted(name))) {
+                result = null;
+            }
+            else if (result instanceof Digested) {
+                ((Digested) result).setContentDigest(digest);
+            }
+
+            if (listener != null) {
+                listener.onTiming(name, FetchListener.STAGE_TOTAL, System.nanoTime() - start);
+            }
+            return result;
         }
         catch (final Exception e) {
+            if (listener != null) {
+                listener.onError(name, e);
+            }
             throw new FetchException(e);
         }
         finally {
@@ -53,4 +155,13 @@ public class StreamingFetcher<T> implements Fetcher<T> {
         }
     }
 
+    private static String toHex(final byte[] bytes) {
+        final StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (final byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+            sb.append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.mechanics;
+
+import org.apache.commons.io.input.CountingInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * InputStream that keeps track of how many bytes were read through it and
+ * how much time was spent inside read calls.  That time is mostly spent
+ * waiting on the source, so a parser reading from one of these can subtract
+ * it from its own elapsed time to find its own cost.
+ */
+
+public class TimedInputStream extends CountingInputStream {
+
+    private long readNanos;
+
+    public TimedInputStream(InputStream in) {
+        super(in);
+    }
+
+    /**
+     * @return the time spent reading so far if the stream is a
+     *     TimedInputStream, otherwise 0
+     */
+    public static long readNanosOf(InputStream is) {
+        return is instanceof TimedInputStream ? ((TimedInputStream) is).getReadNanos() : 0;
+    }
+
+    public long getBytes() {
+        return getByteCount();
+    }
+
+    public long getReadNanos() {
+        return readNanos;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final long start = System.nanoTime();
+        try {
+            return super.read();
+        }
+        finally {
+            readNanos += System.nanoTime() - start;
+        }
+    }
+
+    @Override
+    public int read(byte[] b) throws IOException {
+        final long start = System.nanoTime();
+        try {
+            return super.read(b);
+        }
+        finally {
+            readNanos += System.nanoTime() - start;
+        }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        final long start = System.nanoTime();
+        try {
+            return super.read(b, off, len);
+        }
+        finally {
+            readNanos += System.nanoTime() - start;
+        }
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        final long start = System.nanoTime();
+        try {
+            return super.skip(n);
+        }
+        finally {
+            readNanos += System.nanoTime() - start;
+        }
+    }
+
+}
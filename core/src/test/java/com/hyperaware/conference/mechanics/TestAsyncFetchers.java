@@ -0,0 +1,132 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.mechanics;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestAsyncFetchers {
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = AsyncFetchers.newBoundedExecutor(2, "test");
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testFetchAllPreservesOrder() throws Exception {
+        final List<String> results = AsyncFetchers.fetchAll(
+            Arrays.asList(new ConstantFetcher("a"), new ConstantFetcher("b"), new ConstantFetcher("c")),
+            executor
+        );
+        assertEquals(Arrays.asList("a", "b", "c"), results);
+    }
+
+    @Test
+    public void testFetchesOverlap() throws Exception {
+        // Each fetcher waits for the other, so this only completes if
+        // both are running at the same time.
+        final CountDownLatch latch = new CountDownLatch(2);
+        final List<String> results = AsyncFetchers.fetchAll(
+            Arrays.asList(new RendezvousFetcher(latch, "x"), new RendezvousFetcher(latch, "y")),
+            executor
+        );
+        assertEquals(Arrays.asList("x", "y"), results);
+    }
+
+    @Test
+    public void testFailureIsRethrown() throws Exception {
+        final FetchException failure = new FetchException("boom");
+        try {
+            AsyncFetchers.fetchAll(
+                Arrays.asList(new ConstantFetcher("a"), new FailingFetcher(failure)),
+                executor
+            );
+            fail();
+        }
+        catch (FetchException e) {
+            assertSame(failure, e);
+        }
+    }
+
+    private static class ConstantFetcher implements Fetcher<String> {
+        private final String value;
+
+        public ConstantFetcher(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public String fetch() {
+            return value;
+        }
+    }
+
+    private static class RendezvousFetcher implements Fetcher<String> {
+        private final CountDownLatch latch;
+        private final String value;
+
+        public RendezvousFetcher(CountDownLatch latch, String value) {
+            this.latch = latch;
+            this.value = value;
+        }
+
+        @Override
+        public String fetch() throws FetchException {
+            latch.countDown();
+            try {
+                assertTrue(latch.await(5, TimeUnit.SECONDS));
+            }
+            catch (InterruptedException e) {
+                throw new FetchException(e);
+            }
+            return value;
+        }
+    }
+
+    private static class FailingFetcher implements Fetcher<String> {
+        private final FetchException failure;
+
+        public FailingFetcher(FetchException failure) {
+            this.failure = failure;
+        }
+
+        @Override
+        public String fetch() throws FetchException {
+            throw failure;
+        }
+    }
+
+}
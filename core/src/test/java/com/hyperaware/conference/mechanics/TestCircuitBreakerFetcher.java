@@ -0,0 +1,98 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.mechanics;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class TestCircuitBreakerFetcher {
+
+    private final AtomicBoolean failing = new AtomicBoolean(true);
+    private final AtomicInteger calls = new AtomicInteger();
+    private final Fetcher<String> fetcher = new Fetcher<String>() {
+        @Override
+        public String fetch() throws FetchException {
+            calls.incrementAndGet();
+            if (failing.get()) {
+                throw new FetchException("down");
+            }
+            return "ok";
+        }
+    };
+
+    @Test
+    public void testOpensAndRecovers() throws Exception {
+        final CircuitBreaker breaker = new CircuitBreaker("test", 2, 100);
+        final CircuitBreakerFetcher<String> cbf = new CircuitBreakerFetcher<>(fetcher, breaker);
+
+        expectFailure(cbf, FetchException.class);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        expectFailure(cbf, FetchException.class);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // Refused without calling through
+        expectFailure(cbf, CircuitOpenException.class);
+        assertEquals(2, calls.get());
+
+        // After the open period, one failed trial opens it again
+        Thread.sleep(150);
+        expectFailure(cbf, FetchException.class);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(3, calls.get());
+
+        // And a successful trial closes it
+        Thread.sleep(150);
+        failing.set(false);
+        assertEquals("ok", cbf.fetch());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testParseFailuresDoNotOpen() throws Exception {
+        final CircuitBreaker breaker = new CircuitBreaker("test", 2, 100);
+        final Fetcher<String> malformed = new Fetcher<String>() {
+            @Override
+            public String fetch() throws FetchException {
+                calls.incrementAndGet();
+                throw new FetchException(new ParseException("malformed"));
+            }
+        };
+        final CircuitBreakerFetcher<String> cbf = new CircuitBreakerFetcher<>(malformed, breaker);
+
+        for (int i = 0; i < 5; i++) {
+            expectFailure(cbf, FetchException.class);
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(5, calls.get());
+    }
+
+    private static void expectFailure(Fetcher<?> f, Class<? extends FetchException> type) {
+        try {
+            f.fetch();
+            fail("Expected " + type.getSimpleName());
+        }
+        catch (FetchException e) {
+            assertEquals(type, e.getClass());
+        }
+    }
+
+}
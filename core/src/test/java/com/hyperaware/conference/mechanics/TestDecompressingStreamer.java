@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.mechanics;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestDecompressingStreamer {
+
+    private static final String JSON;
+    static {
+        final StringBuilder sb = new StringBuilder("{\"items\":[");
+        for (int i = 0; i < 1000; i++) {
+            sb.append(i > 0 ? "," : "").append("{\"id\":\"").append(i).append("\",\"name\":\"Someone\"}");
+        }
+        JSON = sb.append("]}").toString();
+    }
+
+    @Test
+    public void testGzip() throws Exception {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        write(new GZIPOutputStream(baos));
+        assertDecodes(baos.toByteArray());
+    }
+
+    @Test
+    public void testDeflate() throws Exception {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        write(new DeflaterOutputStream(baos));
+        assertDecodes(baos.toByteArray());
+    }
+
+    @Test
+    public void testPlain() throws Exception {
+        final byte[] plain = JSON.getBytes("UTF-8");
+        final String result = read(new DecompressingStreamer(new BytesStreamer(plain)));
+        assertEquals(JSON, result);
+    }
+
+    @Test
+    public void testEarlyCloseDoesNotReadRest() throws Exception {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        write(new GZIPOutputStream(baos));
+        final byte[] compressed = baos.toByteArray();
+        final int[] read = new int[1];
+        final Streamer counting = new Streamer() {
+            @Override
+            public InputStream stream() {
+                return new ByteArrayInputStream(compressed) {
+                    @Override
+                    public synchronized int read(byte[] b, int off, int len) {
+                        final int n = super.read(b, off, Math.min(len, 64));
+                        read[0] += Math.max(n, 0);
+                        return n;
+                    }
+                };
+            }
+        };
+
+        final InputStream is = new DecompressingStreamer(counting).stream();
+        assertEquals('{', is.read());
+        is.close();
+        assertTrue(read[0] < compressed.length);
+    }
+
+    private void assertDecodes(final byte[] compressed) throws Exception {
+        assertTrue(compressed.length < JSON.length());
+        final String result = read(new DecompressingStreamer(new BytesStreamer(compressed)));
+        assertEquals(JSON, result);
+    }
+
+    private static void write(final OutputStream os) throws IOException {
+        os.write(JSON.getBytes("UTF-8"));
+        os.close();
+    }
+
+    private static String read(final Streamer streamer) throws IOException {
+        try (InputStream is = streamer.stream()) {
+            return IOUtils.toString(is, "UTF-8");
+        }
+    }
+
+    private static class BytesStreamer implements Streamer {
+        private final byte[] bytes;
+
+        public BytesStreamer(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public InputStream stream() {
+            return new ByteArrayInputStream(bytes);
+        }
+    }
+
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.mechanics;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class TestDigestStore {
+
+    private File file;
+    private String content = "v1";
+    private int parses;
+
+    private final Streamer streamer = new Streamer() {
+        @Override
+        public InputStream stream() throws IOException {
+            return new ByteArrayInputStream(content.getBytes("UTF-8"));
+        }
+    };
+
+    private final Parser<Content> parser = new Parser<Content>() {
+        @Override
+        public Content parse(InputStream is) throws ParseException {
+            parses++;
+            try {
+                return new Content(IOUtils.toString(is, "UTF-8"));
+            }
+            catch (IOException e) {
+                throw new ParseException(e);
+            }
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("digests", ".properties");
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(file);
+    }
+
+    @Test
+    public void testUnchangedContentIsSkipped() throws Exception {
+        final DigestStore digests = new DigestStore(file);
+        final StreamingFetcher<Content> fetcher = new StreamingFetcher<>(streamer, parser, null, "section", digests);
+
+        final Content first = fetcher.fetch();
+        assertEquals("v1", first.text);
+        assertNotNull(first.getContentDigest());
+        // Not committed yet, so it's handled again
+        assertEquals("v1", fetcher.fetch().text);
+        assertEquals(2, parses);
+
+        // Parsed as it streams by, but the result is thrown away
+        digests.commit("section", first.getContentDigest());
+        assertNull(fetcher.fetch());
+        assertEquals(3, parses);
+
+        // Committed digests survive a restart
+        final DigestStore reloaded = new DigestStore(file);
+        assertEquals(first.getContentDigest(), reloaded.getCommitted("section"));
+        assertNull(new StreamingFetcher<>(streamer, parser, null, "section", reloaded).fetch());
+
+        content = "v2";
+        assertEquals("v2", fetcher.fetch().text);
+        assertEquals(5, parses);
+    }
+
+    @Test
+    public void testDigestCoversContentAfterParserStops() throws Exception {
+        final Parser<Content> firstTwo = new Parser<Content>() {
+            @Override
+            public Content parse(InputStream is) throws ParseException {
+                try {
+                    final byte[] bytes = new byte[2];
+                    IOUtils.readFully(is, bytes);
+                    return new Content(new String(bytes, "UTF-8"));
+                }
+                catch (IOException e) {
+                    throw new ParseException(e);
+                }
+            }
+        };
+        final DigestStore digests = new DigestStore();
+        final StreamingFetcher<Content> fetcher = new StreamingFetcher<>(streamer, firstTwo, null, "section", digests);
+
+        content = "v1 notes";
+        digests.commit("section", fetcher.fetch().getContentDigest());
+        assertNull(fetcher.fetch());
+
+        content = "v1 other notes";
+        assertEquals("v1", fetcher.fetch().text);
+    }
+
+    @Test
+    public void testOverlappingFetchesCommitTheirOwnDigests() throws Exception {
+        final DigestStore digests = new DigestStore();
+        final StreamingFetcher<Content> fetcher = new StreamingFetcher<>(streamer, parser, null, "section", digests);
+
+        final Content a = fetcher.fetch();
+        content = "v2";
+        final Content b = fetcher.fetch();
+
+        // The first fetch finishing must not mark the second one's content
+        // as handled
+        digests.commit("section", a.getContentDigest());
+        assertEquals("v2", fetcher.fetch().text);
+
+        digests.commit("section", b.getContentDigest());
+        assertNull(fetcher.fetch());
+    }
+
+    @Test
+    public void testForgottenContentIsHandledAgain() throws Exception {
+        final DigestStore digests = new DigestStore(file);
+        final StreamingFetcher<Content> fetcher = new StreamingFetcher<>(streamer, parser, null, "section", digests);
+
+        digests.commit("section", fetcher.fetch().getContentDigest());
+        assertNull(fetcher.fetch());
+
+        digests.forget("section");
+        assertNull(new DigestStore(file).getCommitted("section"));
+        assertEquals("v1", fetcher.fetch().text);
+    }
+
+    private static class Content implements Digested {
+        private final String text;
+        private String digest;
+
+        public Content(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public String getContentDigest() {
+            return digest;
+        }
+
+        @Override
+        public void setContentDigest(String digest) {
+            this.digest = digest;
+        }
+    }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.mechanics;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestHedgingFetcher {
+
+    private final ExecutorService executor = AsyncFetchers.newBoundedExecutor(2, "test");
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testFastFetchIsNotHedged() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final Fetcher<String> fast = new Fetcher<String>() {
+            @Override
+            public String fetch() {
+                calls.incrementAndGet();
+                return "fast";
+            }
+        };
+        assertEquals("fast", new HedgingFetcher<>(fast, 1000, executor).fetch());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testSlowFetchIsHedged() throws Exception {
+        // The first call stalls, the second returns right away
+        final AtomicInteger calls = new AtomicInteger();
+        final Fetcher<String> slowThenFast = new Fetcher<String>() {
+            @Override
+            public String fetch() throws FetchException {
+                if (calls.incrementAndGet() == 1) {
+                    try {
+                        Thread.sleep(10000);
+                    }
+                    catch (InterruptedException e) {
+                        throw new FetchException(e);
+                    }
+                    return "slow";
+                }
+                return "hedge";
+            }
+        };
+
+        final long start = System.nanoTime();
+        assertEquals("hedge", new HedgingFetcher<>(slowThenFast, 50, executor).fetch());
+        assertTrue(System.nanoTime() - start < 5000 * 1000000L);
+        assertEquals(2, calls.get());
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.mechanics;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.InputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class TestMappedFileStreamer {
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("mapped", ".bin");
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(file);
+    }
+
+    @Test
+    public void testAcrossWindows() throws Exception {
+        final byte[] data = new byte[10000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 31);
+        }
+        FileUtils.writeByteArrayToFile(file, data);
+
+        // Window size that doesn't evenly divide the file
+        final InputStream is = new MappedFileStreamer(file, 777).stream();
+        assertEquals(data[0] & 0xff, is.read());
+        assertEquals(data.length - 1, is.available());
+        assertEquals(100, is.skip(100));
+        final byte[] rest = IOUtils.toByteArray(is);
+        is.close();
+
+        final byte[] expected = new byte[data.length - 101];
+        System.arraycopy(data, 101, expected, 0, expected.length);
+        assertArrayEquals(expected, rest);
+    }
+
+    @Test
+    public void testEmptyFile() throws Exception {
+        final InputStream is = new MappedFileStreamer(file).stream();
+        assertEquals(-1, is.read());
+        assertEquals(-1, is.read(new byte[10], 0, 10));
+        is.close();
+    }
+
+}
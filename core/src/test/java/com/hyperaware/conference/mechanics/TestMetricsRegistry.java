@@ -0,0 +1,106 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.mechanics;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestMetricsRegistry {
+
+    @Test
+    public void testHistogram() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1000000L);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(100000000L, histogram.getMaxNanos());
+        assertEquals(50500000L, histogram.getMeanNanos());
+
+        // Percentiles are bucket upper bounds: no less than the true value,
+        // and no more than twice it
+        final long p50 = histogram.getPercentileNanos(0.5);
+        assertTrue(p50 >= 50000000L && p50 <= 100000000L);
+        assertEquals(100000000L, histogram.getPercentileNanos(1.0));
+    }
+
+    @Test
+    public void testStreamingFetcherReports() throws Exception {
+        final byte[] body = "hello world".getBytes("UTF-8");
+        final Streamer streamer = new Streamer() {
+            @Override
+            public InputStream stream() {
+                return new ByteArrayInputStream(body);
+            }
+        };
+        final Parser<String> parser = new Parser<String>() {
+            @Override
+            public String parse(InputStream is) throws ParseException {
+                try {
+                    return IOUtils.toString(is, "UTF-8");
+                }
+                catch (IOException e) {
+                    throw new ParseException(e);
+                }
+            }
+        };
+
+        final MetricsRegistry metrics = new MetricsRegistry();
+        assertEquals("hello world", new StreamingFetcher<>(streamer, parser, metrics, "greeting").fetch());
+
+        assertEquals(Arrays.asList("greeting"), metrics.getFetchNames());
+        assertEquals(body.length, metrics.getBytes("greeting", FetchListener.BYTES_BODY));
+        assertEquals(1, metrics.getHistogram("greeting", FetchListener.STAGE_OPEN).getCount());
+        assertEquals(1, metrics.getHistogram("greeting", FetchListener.STAGE_DOWNLOAD).getCount());
+        assertEquals(1, metrics.getHistogram("greeting", FetchListener.STAGE_TOTAL).getCount());
+        assertNull(metrics.getHistogram("greeting", FetchListener.STAGE_CONNECT));
+        assertEquals(0, metrics.getErrors("greeting"));
+    }
+
+    @Test
+    public void testStreamingFetcherReportsErrors() throws Exception {
+        final Streamer broken = new Streamer() {
+            @Override
+            public InputStream stream() throws IOException {
+                throw new IOException("broken");
+            }
+        };
+
+        final MetricsRegistry metrics = new MetricsRegistry();
+        try {
+            new StreamingFetcher<>(broken, null, metrics, "broken").fetch();
+            fail("Expected FetchException");
+        }
+        catch (FetchException e) {
+            // expected
+        }
+        assertEquals(1, metrics.getErrors("broken"));
+        assertEquals(Arrays.asList("broken"), metrics.getFetchNames());
+        assertNull(metrics.getHistogram("broken", FetchListener.STAGE_TOTAL));
+    }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.mechanics;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class TestPrefetchingStreamer {
+
+    private static final byte[] DATA = "{\"status\":\"success\"}".getBytes();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final AtomicInteger streams = new AtomicInteger();
+    private volatile boolean failing;
+
+    private final Streamer source = new Streamer() {
+        @Override
+        public InputStream stream() throws IOException {
+            streams.incrementAndGet();
+            if (failing) {
+                throw new IOException("Failed");
+            }
+            return new ByteArrayInputStream(DATA);
+        }
+    };
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testPrefetchedStreamUsedOnce() throws Exception {
+        final PrefetchingStreamer streamer = new PrefetchingStreamer(source).start(executor);
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        assertEquals(1, streams.get());
+
+        InputStream is = streamer.stream();
+        assertArrayEquals(DATA, IOUtils.toByteArray(is));
+        is.close();
+        assertEquals(1, streams.get());
+
+        is = streamer.stream();
+        assertArrayEquals(DATA, IOUtils.toByteArray(is));
+        is.close();
+        assertEquals(2, streams.get());
+    }
+
+    @Test
+    public void testNotStartedDownloadsInline() throws Exception {
+        final PrefetchingStreamer streamer = new PrefetchingStreamer(source);
+        final InputStream is = streamer.stream();
+        assertArrayEquals(DATA, IOUtils.toByteArray(is));
+        is.close();
+        assertEquals(1, streams.get());
+    }
+
+    @Test
+    public void testFailedPrefetchFallsBack() throws Exception {
+        failing = true;
+        final PrefetchingStreamer streamer = new PrefetchingStreamer(source).start(executor);
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        failing = false;
+        final InputStream is = streamer.stream();
+        assertArrayEquals(DATA, IOUtils.toByteArray(is));
+        is.close();
+        assertEquals(2, streams.get());
+    }
+
+    @Test
+    public void testDiscard() throws Exception {
+        final PrefetchingStreamer streamer = new PrefetchingStreamer(source);
+        streamer.discard();
+        streamer.start(executor);
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        assertEquals(0, streams.get());
+
+        final InputStream is = streamer.stream();
+        assertArrayEquals(DATA, IOUtils.toByteArray(is));
+        is.close();
+        assertEquals(1, streams.get());
+    }
+
+}
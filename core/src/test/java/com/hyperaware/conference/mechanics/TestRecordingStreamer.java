@@ -0,0 +1,129 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.mechanics;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class TestRecordingStreamer {
+
+    private static final byte[] DATA = "{\"status\":\"success\"}".getBytes();
+
+    private final Streamer source = new Streamer() {
+        @Override
+        public InputStream stream() {
+            return new ByteArrayInputStream(DATA);
+        }
+    };
+
+    private File dir;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = File.createTempFile("recording", "");
+        dir.delete();
+        dir.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(dir);
+    }
+
+    @Test
+    public void testRecordsCompleteStream() throws Exception {
+        final File file = new File(dir, "event.json");
+        final InputStream is = new RecordingStreamer(source, file).stream();
+        assertArrayEquals(DATA, IOUtils.toByteArray(is));
+        assertFalse(file.exists());
+        is.close();
+
+        assertArrayEquals(DATA, FileUtils.readFileToByteArray(file));
+        assertEquals(1, dir.list().length);
+    }
+
+    @Test
+    public void testDiscardsPartialStream() throws Exception {
+        final File file = new File(dir, "event.json");
+        final InputStream is = new RecordingStreamer(source, file).stream();
+        assertEquals(DATA[0], is.read());
+        is.close();
+
+        assertFalse(file.exists());
+        assertEquals(0, dir.list().length);
+    }
+
+    @Test
+    public void testRecordsGzipStreamReadToEnd() throws Exception {
+        final byte[] compressed = gzip(DATA);
+        final File file = new File(dir, "event.json");
+        final InputStream is = new DecompressingStreamer(new RecordingStreamer(bytes(compressed), file)).stream();
+        assertArrayEquals(DATA, IOUtils.toByteArray(is));
+        is.close();
+
+        // The recording is what was received, before decompression
+        assertArrayEquals(compressed, FileUtils.readFileToByteArray(file));
+        assertEquals(1, dir.list().length);
+    }
+
+    @Test
+    public void testDiscardsGzipStreamClosedBeforeEnd() throws Exception {
+        // Closing before the decoded stream ends doesn't read the rest of
+        // the underlying stream, so nothing is recorded
+        final byte[] compressed = gzip(DATA);
+        final File file = new File(dir, "event.json");
+        final InputStream is = new DecompressingStreamer(new RecordingStreamer(bytes(compressed), file)).stream();
+        assertEquals(DATA[0], is.read());
+        is.close();
+
+        assertFalse(file.exists());
+        assertEquals(0, dir.list().length);
+    }
+
+    private static byte[] gzip(final byte[] data) throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (OutputStream os = new GZIPOutputStream(baos)) {
+            os.write(data);
+        }
+        return baos.toByteArray();
+    }
+
+    private static Streamer bytes(final byte[] data) {
+        return new Streamer() {
+            @Override
+            public InputStream stream() {
+                return new ByteArrayInputStream(data);
+            }
+        };
+    }
+
+}
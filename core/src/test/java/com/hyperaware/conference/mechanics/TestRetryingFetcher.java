@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.mechanics;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestRetryingFetcher {
+
+    private static class FlakyFetcher implements Fetcher<String> {
+        private final int failures;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        FlakyFetcher(int failures) {
+            this.failures = failures;
+        }
+
+        @Override
+        public String fetch() throws FetchException {
+            if (calls.incrementAndGet() <= failures) {
+                throw new FetchException("flaky");
+            }
+            return "ok";
+        }
+    }
+
+    @Test
+    public void testSucceedsAfterFailures() throws Exception {
+        final FlakyFetcher flaky = new FlakyFetcher(2);
+        assertEquals("ok", new RetryingFetcher<>(flaky, 3, 1, 5).fetch());
+        assertEquals(3, flaky.calls.get());
+    }
+
+    @Test
+    public void testGivesUpAfterMaxAttempts() throws Exception {
+        final FlakyFetcher flaky = new FlakyFetcher(5);
+        try {
+            new RetryingFetcher<>(flaky, 3, 1, 5).fetch();
+            fail("Expected FetchException");
+        }
+        catch (FetchException e) {
+            assertEquals("flaky", e.getMessage());
+        }
+        assertEquals(3, flaky.calls.get());
+    }
+
+    @Test
+    public void testOpenCircuitIsNotRetried() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final Fetcher<String> refused = new Fetcher<String>() {
+            @Override
+            public String fetch() throws FetchException {
+                calls.incrementAndGet();
+                throw new CircuitOpenException("open");
+            }
+        };
+        try {
+            new RetryingFetcher<>(refused, 3, 1, 5).fetch();
+            fail("Expected CircuitOpenException");
+        }
+        catch (CircuitOpenException e) {
+            // expected
+        }
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testParseFailureIsNotRetried() throws Exception {
+        assertEquals(1, countAttempts(new FetchException(new ParseException("malformed"))));
+    }
+
+    @Test
+    public void testClientErrorIsNotRetried() throws Exception {
+        assertEquals(1, countAttempts(new FetchException(new HttpStatusException(404, "not found", null))));
+    }
+
+    @Test
+    public void testServerErrorIsRetried() throws Exception {
+        assertEquals(3, countAttempts(new FetchException(new HttpStatusException(503, "unavailable", null))));
+        assertEquals(3, countAttempts(new FetchException(new HttpStatusException(429, "slow down", null))));
+    }
+
+    @Test
+    public void testIoErrorWhileParsingIsRetried() throws Exception {
+        assertEquals(3, countAttempts(new FetchException(new ParseException(new IOException("reset")))));
+    }
+
+    /**
+     * @return how many times a fetch failing with the given exception is
+     *     attempted
+     */
+    private static int countAttempts(final FetchException failure) {
+        final AtomicInteger calls = new AtomicInteger();
+        final Fetcher<String> failing = new Fetcher<String>() {
+            @Override
+            public String fetch() throws FetchException {
+                calls.incrementAndGet();
+                throw failure;
+            }
+        };
+        try {
+            new RetryingFetcher<>(failing, 3, 1, 5).fetch();
+            fail("Expected FetchException");
+        }
+        catch (FetchException e) {
+            assertSame(failure, e);
+        }
+        return calls.get();
+    }
+
+    @Test
+    public void testDelayIsCapped() {
+        final RetryingFetcher<String> retrying = new RetryingFetcher<>(new FlakyFetcher(0), 100, 100, 1000);
+        for (int attempt = 1; attempt < 100; attempt++) {
+            final long delay = retrying.delayMillis(attempt);
+            assertTrue(delay >= 0 && delay <= Math.min(1000, 100L << Math.min(attempt - 1, 30)));
+        }
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.mechanics;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class TestSingleFlightFetcher {
+
+    private final ExecutorService executor = AsyncFetchers.newBoundedExecutor(4, "test");
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Returns the number of times it's been called, after waiting for the
+     * latch to open.
+     */
+    private Fetcher<Integer> counting(final CountDownLatch latch) {
+        return new Fetcher<Integer>() {
+            @Override
+            public Integer fetch() throws FetchException {
+                final int n = calls.incrementAndGet();
+                try {
+                    latch.await(5, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e) {
+                    throw new FetchException(e);
+                }
+                return n;
+            }
+        };
+    }
+
+    @Test
+    public void testConcurrentFetchesAreCoalesced() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final SingleFlight<Integer> flight = new SingleFlight<>();
+
+        final List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            // Separate fetcher instances sharing one flight
+            futures.add(AsyncFetchers.async(new SingleFlightFetcher<>(counting(latch), flight), executor).fetchAsync());
+        }
+        while (calls.get() == 0) {
+            Thread.sleep(5);
+        }
+        Thread.sleep(50);
+        latch.countDown();
+
+        for (final Integer result : AsyncFetchers.awaitAll(futures)) {
+            assertEquals(1, (int) result);
+        }
+        assertEquals(1, calls.get());
+
+        // Nothing is cached with a zero TTL
+        assertEquals(2, (int) new SingleFlightFetcher<>(counting(latch), flight).fetch());
+    }
+
+    @Test
+    public void testTtl() throws Exception {
+        final CountDownLatch open = new CountDownLatch(0);
+        final SingleFlightFetcher<Integer> f = new SingleFlightFetcher<>(counting(open), 100, 0, null);
+        assertEquals(1, (int) f.fetch());
+        assertEquals(1, (int) f.fetch());
+        Thread.sleep(150);
+        assertEquals(2, (int) f.fetch());
+    }
+
+    @Test
+    public void testStaleWhileRevalidate() throws Exception {
+        final CountDownLatch open = new CountDownLatch(0);
+        final SingleFlightFetcher<Integer> f = new SingleFlightFetcher<>(counting(open), 50, 10000, executor);
+        assertEquals(1, (int) f.fetch());
+        Thread.sleep(100);
+
+        // Stale value is served while the refresh happens in the background
+        assertEquals(1, (int) f.fetch());
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (calls.get() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        Thread.sleep(20);
+        assertEquals(2, (int) f.fetch());
+    }
+
+    @Test
+    public void testFailuresAreNotCached() throws Exception {
+        final Fetcher<Integer> failing = new Fetcher<Integer>() {
+            @Override
+            public Integer fetch() throws FetchException {
+                calls.incrementAndGet();
+                throw new FetchException("nope");
+            }
+        };
+        final SingleFlightFetcher<Integer> f = new SingleFlightFetcher<>(failing, 10000, 0, null);
+        for (int i = 0; i < 2; i++) {
+            try {
+                f.fetch();
+                fail("Expected FetchException");
+            }
+            catch (FetchException e) {
+                assertEquals("nope", e.getMessage());
+            }
+        }
+        assertEquals(2, calls.get());
+    }
+
+}
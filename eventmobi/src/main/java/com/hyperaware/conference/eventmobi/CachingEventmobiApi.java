@@ -0,0 +1,160 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.eventmobi;
+
+import com.hyperaware.conference.eventmobi.model.EmAgendaSectionResponse;
+import com.hyperaware.conference.eventmobi.model.EmAttendeeItem;
+import com.hyperaware.conference.eventmobi.model.EmAttendeesSectionResponse;
+import com.hyperaware.conference.eventmobi.model.EmCompaniesSectionResponse;
+import com.hyperaware.conference.eventmobi.model.EmEventResponse;
+import com.hyperaware.conference.eventmobi.model.EmMapsSectionResponse;
+import com.hyperaware.conference.eventmobi.model.EmSpeakersSectionResponse;
+import com.hyperaware.conference.eventmobi.parser.ItemSink;
+import com.hyperaware.conference.mechanics.FetchException;
+import com.hyperaware.conference.mechanics.Fetcher;
+import com.hyperaware.conference.mechanics.SingleFlight;
+import com.hyperaware.conference.mechanics.SingleFlightFetcher;
+
+import java.util.concurrent.Executor;
+
+/**
+ * EventmobiApi decorator that shares fetches between api instances through
+ * a long-lived Flights object.  Concurrent fetches of the same section,
+ * even from different instances, are coalesced into one, and results are
+ * cached according to the Flights' TTL and stale window.
+ *
+ * A fetch only happens through the api of whichever caller ends up doing
+ * it, and section fetchers aren't requested from the underlying api until
+ * then.  The underlying api finds out where a section is on its own, so a
+ * section can be fetched even when this instance's event came from the
+ * cache.
+ *
+ * The attendees fetcher that pushes items to a sink is excluded: it's
+ * passed straight through, with no coalescing and no caching, since its
+ * items go to each caller's own sink as they're parsed and can't be
+ * replayed to another one.  Callers that stream attendees each download
+ * them; use the fetcher without a sink to share them.
+ */
+
+public class CachingEventmobiApi implements EventmobiApi {
+
+    /**
+     * The shared state: one SingleFlight per fetch.  Keep one of these for
+     * as long as results should be shared.
+     */
+    public static class Flights {
+        private final SingleFlight<EmEventResponse> event;
+        private final SingleFlight<EmAgendaSectionResponse> agenda;
+        private final SingleFlight<EmSpeakersSectionResponse> speakers;
+        private final SingleFlight<EmAttendeesSectionResponse> attendees;
+        private final SingleFlight<EmMapsSectionResponse> maps;
+        private final SingleFlight<EmCompaniesSectionResponse> companies;
+
+        public Flights(long ttlMillis, long staleMillis, Executor executor) {
+            event = new SingleFlight<>(ttlMillis, staleMillis, executor);
+            agenda = new SingleFlight<>(ttlMillis, staleMillis, executor);
+            speakers = new SingleFlight<>(ttlMillis, staleMillis, executor);
+            attendees = new SingleFlight<>(ttlMillis, staleMillis, executor);
+            maps = new SingleFlight<>(ttlMillis, staleMillis, executor);
+            companies = new SingleFlight<>(ttlMillis, staleMillis, executor);
+        }
+    }
+
+    private final EventmobiApi api;
+    private final Flights flights;
+
+    public CachingEventmobiApi(EventmobiApi api, Flights flights) {
+        this.api = api;
+        this.flights = flights;
+    }
+
+    @Override
+    public Fetcher<EmEventResponse> getEventFetcher() {
+        return new SingleFlightFetcher<>(new Fetcher<EmEventResponse>() {
+            @Override
+            public EmEventResponse fetch() throws FetchException {
+                return api.getEventFetcher().fetch();
+            }
+        }, flights.event);
+    }
+
+    @Override
+    public Fetcher<EmAgendaSectionResponse> getAgendaSectionFetcher() {
+        return new SingleFlightFetcher<>(new Fetcher<EmAgendaSectionResponse>() {
+            @Override
+            public EmAgendaSectionResponse fetch() throws FetchException {
+                return api.getAgendaSectionFetcher().fetch();
+            }
+        }, flights.agenda);
+    }
+
+    @Override
+    public Fetcher<EmSpeakersSectionResponse> getSpeakersSectionFetcher() {
+        return new SingleFlightFetcher<>(new Fetcher<EmSpeakersSectionResponse>() {
+            @Override
+            public EmSpeakersSectionResponse fetch() throws FetchException {
+                return api.getSpeakersSectionFetcher().fetch();
+            }
+        }, flights.speakers);
+    }
+
+    @Override
+    public Fetcher<EmAttendeesSectionResponse> getAttendeesSectionFetcher() {
+        return new SingleFlightFetcher<>(new Fetcher<EmAttendeesSectionResponse>() {
+            @Override
+            public EmAttendeesSectionResponse fetch() throws FetchException {
+                return api.getAttendeesSectionFetcher().fetch();
+            }
+        }, flights.attendees);
+    }
+
+    @Override
+    public Fetcher<EmAttendeesSectionResponse> getAttendeesSectionFetcher(final ItemSink<? super EmAttendeeItem> sink) {
+        return new Fetcher<EmAttendeesSectionResponse>() {
+            @Override
+            public EmAttendeesSectionResponse fetch() throws FetchException {
+                return api.getAttendeesSectionFetcher(sink).fetch();
+            }
+        };
+    }
+
+    @Override
+    public Fetcher<EmMapsSectionResponse> getMapsSectionFetcher() {
+        return new SingleFlightFetcher<>(new Fetcher<EmMapsSectionResponse>() {
+            @Override
+            public EmMapsSectionResponse fetch() throws FetchException {
+                return api.getMapsSectionFetcher().fetch();
+            }
+        }, flights.maps);
+    }
+
+    @Override
+    public Fetcher<EmCompaniesSectionResponse> getCompaniesSectionFetcher() {
+        return new SingleFlightFetcher<>(new Fetcher<EmCompaniesSectionResponse>() {
+            @Override
+            public EmCompaniesSectionResponse fetch() throws FetchException {
+                return api.getCompaniesSectionFetcher().fetch();
+            }
+        }, flights.companies);
+    }
+
+    @Override
+    public void close() {
+        api.close();
+    }
+
+}
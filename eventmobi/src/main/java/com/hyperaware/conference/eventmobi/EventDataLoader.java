@@ -0,0 +1,343 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.eventmobi;
+
+import com.hyperaware.conference.eventmobi.model.EmAgendaItem;
+import com.hyperaware.conference.eventmobi.model.EmAllEventData;
+import com.hyperaware.conference.eventmobi.model.EmAttendeeItem;
+import com.hyperaware.conference.eventmobi.model.EmCompanyItem;
+import com.hyperaware.conference.eventmobi.model.EmEvent;
+import com.hyperaware.conference.eventmobi.model.EmItem;
+import com.hyperaware.conference.eventmobi.model.EmMapItem;
+import com.hyperaware.conference.eventmobi.model.EmSection;
+import com.hyperaware.conference.eventmobi.model.EmSectionResponse;
+import com.hyperaware.conference.eventmobi.model.EmSpeakerItem;
+import com.hyperaware.conference.mechanics.FetchException;
+import com.hyperaware.conference.mechanics.Fetcher;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fetches everything for an event through an EventmobiApi and builds the
+ * indexes in EmAllEventData.  After the event itself (which the api needs
+ * first), each section is fetched and indexed in its own fork-join task,
+ * and the agenda task forks another to build the per-speaker agenda while
+ * the remaining sections are still arriving.
+ *
+ * Fetches block on I/O, so they're run as ManagedBlockers, which lets the
+ * pool add threads rather than leave indexing work waiting behind them.
+ *
+ * The api must return every section: one that skips unchanged content
+ * (see StreamingFetcher) can't be used, since there'd be nothing to index.
+ */
+
+public class EventDataLoader {
+
+    public static final Comparator<EmSpeakerItem> SPEAKER_POSITION_COMPARATOR = new Comparator<EmSpeakerItem>() {
+        @Override
+        public int compare(EmSpeakerItem lhs, EmSpeakerItem rhs) {
+            return lhs.getPosition() < rhs.getPosition() ? -1 : (lhs.getPosition() == rhs.getPosition() ? 0 : 1);
+        }
+    };
+
+    public static final Comparator<EmAgendaItem> AGENDA_START_TIME_COMPARATOR = new Comparator<EmAgendaItem>() {
+        @Override
+        public int compare(EmAgendaItem lhs, EmAgendaItem rhs) {
+            final long l = lhs.getEpochStartTime();
+            final long r = rhs.getEpochStartTime();
+            return l < r ? -1 : (l == r ? 0 : 1);
+        }
+    };
+
+    private final EventmobiApi api;
+    private final ForkJoinPool pool;
+
+    /**
+     * @param pool runs the fetch and index tasks.  It belongs to the
+     *     caller, who shuts it down when done loading.
+     */
+    public EventDataLoader(EventmobiApi api, ForkJoinPool pool) {
+        this.api = api;
+        this.pool = pool;
+    }
+
+    public EmAllEventData load() throws FetchException {
+        final EmEvent event = api.getEventFetcher().fetch().getResponse();
+        try {
+            return pool.submit(new LoadTask(event)).get();
+        }
+        catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof FetchException) {
+                throw (FetchException) cause;
+            }
+            if (cause instanceof LoadException) {
+                throw ((LoadException) cause).fetchException;
+            }
+            throw new FetchException(cause);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FetchException("Interrupted while loading event data", e);
+        }
+    }
+
+    /**
+     * Orders attendees by name ignoring case and accents, as people expect
+     * to find them in a list.  Attendees without a name go last, and ties
+     * are broken by id so the order is stable between loads.  Each name is
+     * collated once, and the collator is only used by the calling thread.
+     */
+    private static List<EmAttendeeItem> sortByName(final List<EmAttendeeItem> attendees) {
+        final Collator collator = Collator.getInstance(Locale.US);
+        collator.setStrength(Collator.PRIMARY);
+        final List<NameKey> keys = new ArrayList<>(attendees.size());
+        for (final EmAttendeeItem attendee : attendees) {
+            final String name = attendee.getName();
+            keys.add(new NameKey(attendee, name != null ? collator.getCollationKey(name) : null));
+        }
+        Collections.sort(keys);
+
+        final List<EmAttendeeItem> sorted = new ArrayList<>(keys.size());
+        for (final NameKey key : keys) {
+            sorted.add(key.attendee);
+        }
+        return sorted;
+    }
+
+    private static class NameKey implements Comparable<NameKey> {
+        private final EmAttendeeItem attendee;
+        private final CollationKey name;
+
+        public NameKey(EmAttendeeItem attendee, CollationKey name) {
+            this.attendee = attendee;
+            this.name = name;
+        }
+
+        @Override
+        public int compareTo(NameKey other) {
+            int result;
+            if (name == null || other.name == null) {
+                result = name == null ? (other.name == null ? 0 : 1) : -1;
+            }
+            else {
+                result = name.compareTo(other.name);
+            }
+            if (result == 0) {
+                result = String.valueOf(attendee.getId()).compareTo(String.valueOf(other.attendee.getId()));
+            }
+            return result;
+        }
+    }
+
+    private class LoadTask extends RecursiveTask<EmAllEventData> {
+        private static final long serialVersionUID = 1L;
+
+        private final EmEvent event;
+
+        public LoadTask(EmEvent event) {
+            this.event = event;
+        }
+
+        @Override
+        protected EmAllEventData compute() {
+            final AgendaTask agenda = new AgendaTask();
+            final SectionTask<EmSpeakerItem> speakers = new SectionTask<>(api.getSpeakersSectionFetcher());
+            final SectionTask<EmAttendeeItem> attendees = new SectionTask<>(api.getAttendeesSectionFetcher());
+            final SectionTask<EmCompanyItem> companies = new SectionTask<>(api.getCompaniesSectionFetcher());
+            final SectionTask<EmMapItem> maps = new SectionTask<>(api.getMapsSectionFetcher());
+            ForkJoinTask.invokeAll(agenda, speakers, attendees, companies, maps);
+
+            final List<EmSpeakerItem> sortedSpeakers = new ArrayList<>(speakers.getRawResult().getItems());
+            Collections.sort(sortedSpeakers, SPEAKER_POSITION_COMPARATOR);
+            final List<EmAttendeeItem> sortedAttendees = sortByName(attendees.getRawResult().getItems());
+
+            return new EmAllEventData(
+                event,
+                agenda.section,
+                speakers.getRawResult(),
+                maps.getRawResult(),
+                companies.getRawResult(),
+                attendees.getRawResult(),
+                agenda.itemsById,
+                speakers.itemsById,
+                attendees.itemsById,
+                companies.itemsById,
+                sortedSpeakers,
+                sortedAttendees,
+                agenda.bySpeaker.join()
+            );
+        }
+    }
+
+    /**
+     * Fetches a section and indexes its items by id.
+     */
+    private static class SectionTask<T extends EmItem> extends RecursiveTask<EmSection<T>> {
+        private static final long serialVersionUID = 1L;
+
+        private final Fetcher<? extends EmSectionResponse<T>> fetcher;
+        protected Map<String, T> itemsById;
+
+        public SectionTask(Fetcher<? extends EmSectionResponse<T>> fetcher) {
+            this.fetcher = fetcher;
+        }
+
+        @Override
+        protected EmSection<T> compute() {
+            final EmSection<T> section = fetch(fetcher);
+            itemsById = new HashMap<>(section.getItems().size());
+            for (final T item : section.getItems()) {
+                itemsById.put(item.getId(), item);
+            }
+            onFetched(section);
+            return section;
+        }
+
+        protected void onFetched(EmSection<T> section) {
+        }
+    }
+
+    private class AgendaTask extends SectionTask<EmAgendaItem> {
+        private static final long serialVersionUID = 1L;
+
+        private EmSection<EmAgendaItem> section;
+        private BySpeakerTask bySpeaker;
+
+        public AgendaTask() {
+            super(api.getAgendaSectionFetcher());
+        }
+
+        @Override
+        protected void onFetched(EmSection<EmAgendaItem> section) {
+            this.section = section;
+            bySpeaker = new BySpeakerTask(section.getItems());
+            bySpeaker.fork();
+        }
+    }
+
+    /**
+     * Builds the map of speaker id to that speaker's agenda items, in order
+     * of start time.
+     */
+    private static class BySpeakerTask extends RecursiveTask<Map<String, List<EmAgendaItem>>> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<EmAgendaItem> items;
+
+        public BySpeakerTask(List<EmAgendaItem> items) {
+            this.items = items;
+        }
+
+        @Override
+        protected Map<String, List<EmAgendaItem>> compute() {
+            final HashMap<String, List<EmAgendaItem>> bySpeaker = new HashMap<>();
+            for (final EmAgendaItem item : items) {
+                final List<String> speakerIds = item.getSpeakerIds();
+                if (speakerIds == null) {
+                    continue;
+                }
+                for (final String speakerId : speakerIds) {
+                    List<EmAgendaItem> list = bySpeaker.get(speakerId);
+                    if (list == null) {
+                        list = new ArrayList<>();
+                        bySpeaker.put(speakerId, list);
+                    }
+                    list.add(item);
+                }
+            }
+            for (final List<EmAgendaItem> list : bySpeaker.values()) {
+                Collections.sort(list, AGENDA_START_TIME_COMPARATOR);
+            }
+            return bySpeaker;
+        }
+    }
+
+    private static <T extends EmItem> EmSection<T> fetch(final Fetcher<? extends EmSectionResponse<T>> fetcher) {
+        final FetchBlocker<T> blocker = new FetchBlocker<>(fetcher);
+        try {
+            ForkJoinPool.managedBlock(blocker);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LoadException(new FetchException("Interrupted while loading event data", e));
+        }
+        if (blocker.exception != null) {
+            throw new LoadException(blocker.exception);
+        }
+        if (blocker.response == null) {
+            throw new LoadException(new FetchException("Section was skipped as unchanged"));
+        }
+        return blocker.response.getSection();
+    }
+
+    private static class FetchBlocker<T extends EmItem> implements ForkJoinPool.ManagedBlocker {
+        private final Fetcher<? extends EmSectionResponse<T>> fetcher;
+        private boolean done;
+        private EmSectionResponse<T> response;
+        private FetchException exception;
+
+        public FetchBlocker(Fetcher<? extends EmSectionResponse<T>> fetcher) {
+            this.fetcher = fetcher;
+        }
+
+        @Override
+        public boolean block() {
+            try {
+                response = fetcher.fetch();
+            }
+            catch (FetchException e) {
+                exception = e;
+            }
+            done = true;
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return done;
+        }
+    }
+
+    /**
+     * Carries a FetchException out of a fork-join task, which can only
+     * throw unchecked exceptions.
+     */
+    private static class LoadException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final FetchException fetchException;
+
+        public LoadException(FetchException fetchException) {
+            super(fetchException);
+            this.fetchException = fetchException;
+        }
+    }
+
+}
@@ -17,27 +17,43 @@
 package com.hyperaware.conference.eventmobi;
 
 import com.hyperaware.conference.eventmobi.model.EmAgendaSectionResponse;
+import com.hyperaware.conference.eventmobi.model.EmAttendeeItem;
 import com.hyperaware.conference.eventmobi.model.EmAttendeesSectionResponse;
 import com.hyperaware.conference.eventmobi.model.EmCompaniesSectionResponse;
 import com.hyperaware.conference.eventmobi.model.EmEventResponse;
 import com.hyperaware.conference.eventmobi.model.EmMapsSectionResponse;
 import com.hyperaware.conference.eventmobi.model.EmSpeakersSectionResponse;
+import com.hyperaware.conference.eventmobi.parser.ItemSink;
 import com.hyperaware.conference.mechanics.Fetcher;
 
+import java.io.Closeable;
+
 /**
  * Interface that describes all fetching interactions with Eventmobi.  It is
  * required that the Fetcher that returns EmEventResponse be fully invoked
  * successfully prior to the other fetchers here because EmEventResponse
  * contains the URLs for those other sections.
+ *
+ * The attendees section can be very large, so there is also a fetcher that
+ * streams each attendee to an ItemSink as it's parsed.  The response it
+ * returns contains the section metadata with an empty list of items.
+ *
+ * Close an api when done fetching with it, to release what it may be
+ * holding for fetches that never came, like sections downloaded ahead of
+ * time.
  */
 
-public interface EventmobiApi {
+public interface EventmobiApi extends Closeable {
 
     Fetcher<EmEventResponse> getEventFetcher();
     Fetcher<EmAgendaSectionResponse> getAgendaSectionFetcher();
     Fetcher<EmSpeakersSectionResponse> getSpeakersSectionFetcher();
     Fetcher<EmAttendeesSectionResponse> getAttendeesSectionFetcher();
+    Fetcher<EmAttendeesSectionResponse> getAttendeesSectionFetcher(ItemSink<? super EmAttendeeItem> sink);
     Fetcher<EmMapsSectionResponse> getMapsSectionFetcher();
     Fetcher<EmCompaniesSectionResponse> getCompaniesSectionFetcher();
 
+    @Override
+    void close();
+
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.eventmobi;
+
+import com.hyperaware.conference.eventmobi.model.EmAgendaSectionResponse;
+import com.hyperaware.conference.eventmobi.model.EmAttendeeItem;
+import com.hyperaware.conference.eventmobi.model.EmAttendeesSectionResponse;
+import com.hyperaware.conference.eventmobi.model.EmCompaniesSectionResponse;
+import com.hyperaware.conference.eventmobi.model.EmEventResponse;
+import com.hyperaware.conference.eventmobi.model.EmMapsSectionResponse;
+import com.hyperaware.conference.eventmobi.model.EmSpeakersSectionResponse;
+import com.hyperaware.conference.eventmobi.parser.ItemSink;
+import com.hyperaware.conference.mechanics.FetchPolicy;
+import com.hyperaware.conference.mechanics.Fetcher;
+
+/**
+ * EventmobiApi decorator that applies a FetchPolicy (retries, circuit
+ * breaking and hedging) to every fetcher of another api.  Each section is
+ * its own endpoint with its own circuit breaker.
+ *
+ * The event fetcher records section urls as a side effect, and the
+ * attendees fetcher that pushes items to a sink would push every item
+ * twice, so neither is hedged.  Both are still retried, so a sink must tolerate
+ * seeing items again after a failure.
+ */
+
+public class ResilientEventmobiApi implements EventmobiApi {
+
+    private final EventmobiApi api;
+    private final FetchPolicy policy;
+
+    public ResilientEventmobiApi(EventmobiApi api, FetchPolicy policy) {
+        this.api = api;
+        this.policy = policy;
+    }
+
+    @Override
+    public Fetcher<EmEventResponse> getEventFetcher() {
+        return policy.apply("event", api.getEventFetcher(), false);
+    }
+
+    @Override
+    public Fetcher<EmAgendaSectionResponse> getAgendaSectionFetcher() {
+        return policy.apply("agenda", api.getAgendaSectionFetcher(), true);
+    }
+
+    @Override
+    public Fetcher<EmSpeakersSectionResponse> getSpeakersSectionFetcher() {
+        return policy.apply("speakers", api.getSpeakersSectionFetcher(), true);
+    }
+
+    @Override
+    public Fetcher<EmAttendeesSectionResponse> getAttendeesSectionFetcher() {
+        return policy.apply("attendees", api.getAttendeesSectionFetcher(), true);
+    }
+
+    @Override
+    public Fetcher<EmAttendeesSectionResponse> getAttendeesSectionFetcher(ItemSink<? super EmAttendeeItem> sink) {
+        return policy.apply("attendees", api.getAttendeesSectionFetcher(sink), false);
+    }
+
+    @Override
+    public Fetcher<EmMapsSectionResponse> getMapsSectionFetcher() {
+        return policy.apply("maps", api.getMapsSectionFetcher(), true);
+    }
+
+    @Override
+    public Fetcher<EmCompaniesSectionResponse> getCompaniesSectionFetcher() {
+        return policy.apply("companies", api.getCompaniesSectionFetcher(), true);
+    }
+
+    @Override
+    public void close() {
+        api.close();
+    }
+
+}
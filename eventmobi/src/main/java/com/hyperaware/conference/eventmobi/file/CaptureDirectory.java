@@ -0,0 +1,140 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.eventmobi.file;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.TimeZone;
+
+/**
+ * Helpers for capture directories, which hold the exact responses received
+ * from Eventmobi during one run, in the layout read by FileEventmobiApi.
+ * Each capture is a directory named for the time it was made, under some
+ * base directory, and holds a properties file that records its format
+ * version, when it was made, and for which event.
+ */
+
+public final class CaptureDirectory {
+
+    public static final int FORMAT_VERSION = 1;
+    public static final String PROPERTIES_FILE = "capture.properties";
+
+    private static final String PREFIX = "capture-";
+    private static final String FORMAT_VERSION_PROP = "format_version";
+    private static final String CREATED_PROP = "created";
+    private static final String EVENT_NAME_PROP = "event_name";
+
+    private CaptureDirectory() {
+    }
+
+    /**
+     * Creates a new, empty capture directory under the base directory.
+     */
+    public static File create(final File base, final String eventName) throws IOException {
+        final Date now = new Date();
+        final SimpleDateFormat nameFormat = new SimpleDateFormat("yyyyMMdd-HHmmss-SSS", Locale.US);
+        nameFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        final String name = PREFIX + nameFormat.format(now);
+
+        if (!base.isDirectory() && !base.mkdirs()) {
+            throw new IOException("Can't create capture base directory " + base);
+        }
+        File dir = new File(base, name);
+        for (int i = 1; !dir.mkdir(); i++) {
+            if (!dir.exists()) {
+                throw new IOException("Can't create capture directory " + dir);
+            }
+            dir = new File(base, name + "-" + i);
+        }
+
+        final SimpleDateFormat isoFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
+        isoFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        final Properties props = new Properties();
+        props.setProperty(FORMAT_VERSION_PROP, Integer.toString(FORMAT_VERSION));
+        props.setProperty(CREATED_PROP, isoFormat.format(now));
+        if (eventName != null) {
+            props.setProperty(EVENT_NAME_PROP, eventName);
+        }
+        try (OutputStream os = new FileOutputStream(new File(dir, PROPERTIES_FILE))) {
+            props.store(os, null);
+        }
+        return dir;
+    }
+
+    /**
+     * Finds a capture to replay.
+     *
+     * @param dir either a capture directory, or a base directory holding
+     *     captures, in which case the most recent one is chosen
+     * @return the capture directory
+     * @throws IOException if there's no capture, or it was written in a
+     *     newer format than this code understands
+     */
+    public static File resolve(final File dir) throws IOException {
+        if (new File(dir, PROPERTIES_FILE).isFile()) {
+            checkFormat(dir);
+            return dir;
+        }
+
+        final File[] children = dir.listFiles();
+        final List<File> captures = new ArrayList<>();
+        if (children != null) {
+            for (final File child : children) {
+                if (child.getName().startsWith(PREFIX) && new File(child, PROPERTIES_FILE).isFile()) {
+                    captures.add(child);
+                }
+            }
+        }
+        if (captures.isEmpty()) {
+            throw new IOException("No captures found in " + dir);
+        }
+        // Names sort by creation time
+        Collections.sort(captures);
+        final File latest = captures.get(captures.size() - 1);
+        checkFormat(latest);
+        return latest;
+    }
+
+    private static void checkFormat(final File dir) throws IOException {
+        final Properties props = new Properties();
+        try (InputStream is = new FileInputStream(new File(dir, PROPERTIES_FILE))) {
+            props.load(is);
+        }
+        final int version;
+        try {
+            version = Integer.parseInt(props.getProperty(FORMAT_VERSION_PROP, "0"));
+        }
+        catch (NumberFormatException e) {
+            throw new IOException("Bad " + FORMAT_VERSION_PROP + " in capture " + dir);
+        }
+        if (version < 1 || version > FORMAT_VERSION) {
+            throw new IOException("Capture " + dir + " has unsupported format version " + version);
+        }
+    }
+
+}
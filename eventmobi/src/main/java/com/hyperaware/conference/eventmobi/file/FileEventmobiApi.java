@@ -0,0 +1,151 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.eventmobi.file;
+
+import com.hyperaware.conference.eventmobi.EventmobiApi;
+import com.hyperaware.conference.eventmobi.model.EmAgendaSectionResponse;
+import com.hyperaware.conference.eventmobi.model.EmAttendeeItem;
+import com.hyperaware.conference.eventmobi.model.EmAttendeesSectionResponse;
+import com.hyperaware.conference.eventmobi.model.EmCompaniesSectionResponse;
+import com.hyperaware.conference.eventmobi.model.EmEventResponse;
+import com.hyperaware.conference.eventmobi.model.EmMapsSectionResponse;
+import com.hyperaware.conference.eventmobi.model.EmSpeakersSectionResponse;
+import com.hyperaware.conference.eventmobi.parser.ItemSink;
+import com.hyperaware.conference.eventmobi.parser.gson.GsonParser;
+import com.hyperaware.conference.eventmobi.parser.gson.GsonSectionResponseParser;
+import com.hyperaware.conference.eventmobi.parser.gson.GsonStreamingSectionResponseParser;
+import com.hyperaware.conference.mechanics.DecompressingStreamer;
+import com.hyperaware.conference.mechanics.DigestStore;
+import com.hyperaware.conference.mechanics.FetchListener;
+import com.hyperaware.conference.mechanics.Fetcher;
+import com.hyperaware.conference.mechanics.MappedFileStreamer;
+import com.hyperaware.conference.mechanics.Parser;
+import com.hyperaware.conference.mechanics.Streamer;
+import com.hyperaware.conference.mechanics.StreamingFetcher;
+
+import java.io.File;
+
+/**
+ * EventmobiApi that serves every fetch from a directory of captured
+ * responses, one file per fetch, named as in fileNameFor.  Files are read
+ * through memory mappings, so very large captures don't have to pass
+ * through heap buffers on their way to the parser.  Files may be stored
+ * gzip or zlib compressed, exactly as they came over the wire.
+ *
+ * Unlike HttpEventmobiApi, the sections don't depend on the event having
+ * been fetched first.  Like it, sections can be skipped as unchanged with
+ * a DigestStore, but the event never is.
+ */
+
+public class FileEventmobiApi implements EventmobiApi {
+
+    public static final String EVENT = "event";
+    public static final String AGENDA = "agenda";
+    public static final String SPEAKERS = "speakers";
+    public static final String ATTENDEES = "attendees";
+    public static final String MAPS = "maps";
+    public static final String COMPANIES = "companies";
+
+    private final File dir;
+    private final FetchListener listener;
+    private final DigestStore digests;
+
+    public FileEventmobiApi(File dir) {
+        this(dir, null);
+    }
+
+    public FileEventmobiApi(File dir, FetchListener listener) {
+        this(dir, listener, null);
+    }
+
+    /**
+     * @param listener if not null, receives timings and byte counts for
+     *     each fetch, named after the section ("event" for the event)
+     * @param digests if not null, section fetches return null for content
+     *     whose digest was committed there, see StreamingFetcher
+     */
+    public FileEventmobiApi(File dir, FetchListener listener, DigestStore digests) {
+        this.dir = dir;
+        this.listener = listener;
+        this.digests = digests;
+    }
+
+    /**
+     * @param name the event or a section type, e.g. "agenda"
+     * @return the name of the file that holds the response for it
+     */
+    public static String fileNameFor(String name) {
+        return EVENT.equals(name) ? "event.json" : "section_" + name + ".json";
+    }
+
+    @Override
+    public Fetcher<EmEventResponse> getEventFetcher() {
+        final Parser<EmEventResponse> parser = new GsonParser<>(EmEventResponse.class, listener, EVENT);
+        return new StreamingFetcher<>(newStreamer(EVENT), parser, listener, EVENT);
+    }
+
+    @Override
+    public Fetcher<EmAgendaSectionResponse> getAgendaSectionFetcher() {
+        return newFetcher(AGENDA, new GsonSectionResponseParser<>(EmAgendaSectionResponse.class, listener, AGENDA));
+    }
+
+    @Override
+    public Fetcher<EmSpeakersSectionResponse> getSpeakersSectionFetcher() {
+        final Parser<EmSpeakersSectionResponse> parser =
+            new GsonSectionResponseParser<>(EmSpeakersSectionResponse.class, listener, SPEAKERS);
+        return newFetcher(SPEAKERS, parser);
+    }
+
+    @Override
+    public Fetcher<EmAttendeesSectionResponse> getAttendeesSectionFetcher() {
+        final Parser<EmAttendeesSectionResponse> parser =
+            new GsonSectionResponseParser<>(EmAttendeesSectionResponse.class, listener, ATTENDEES);
+        return newFetcher(ATTENDEES, parser);
+    }
+
+    @Override
+    public Fetcher<EmAttendeesSectionResponse> getAttendeesSectionFetcher(ItemSink<? super EmAttendeeItem> sink) {
+        final Parser<EmAttendeesSectionResponse> parser = new GsonStreamingSectionResponseParser<>(
+            EmAttendeesSectionResponse.class, EmAttendeeItem.class, sink, listener, ATTENDEES);
+        return newFetcher(ATTENDEES, parser);
+    }
+
+    @Override
+    public Fetcher<EmMapsSectionResponse> getMapsSectionFetcher() {
+        return newFetcher(MAPS, new GsonSectionResponseParser<>(EmMapsSectionResponse.class, listener, MAPS));
+    }
+
+    @Override
+    public Fetcher<EmCompaniesSectionResponse> getCompaniesSectionFetcher() {
+        final Parser<EmCompaniesSectionResponse> parser =
+            new GsonSectionResponseParser<>(EmCompaniesSectionResponse.class, listener, COMPANIES);
+        return newFetcher(COMPANIES, parser);
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private Streamer newStreamer(final String name) {
+        return new DecompressingStreamer(new MappedFileStreamer(new File(dir, fileNameFor(name))));
+    }
+
+    private <T> Fetcher<T> newFetcher(final String name, final Parser<T> parser) {
+        return new StreamingFetcher<>(newStreamer(name), parser, listener, name, digests);
+    }
+
+}
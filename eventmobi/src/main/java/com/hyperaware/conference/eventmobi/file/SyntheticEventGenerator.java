@@ -0,0 +1,390 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.eventmobi.file;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.Calendar;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * Generates a complete, Eventmobi-shaped event at any scale, as a
+ * directory of responses in the layout read by FileEventmobiApi.  The
+ * content is random but repeatable for a given seed: sessions are spread
+ * over the days of the event in the event's time zone, and reference
+ * speakers, and attendees and speakers work for the generated companies.
+ *
+ * Responses are written with a streaming JsonWriter, so generating a very
+ * large event doesn't need much memory.  Run from the project root:
+ *
+ * java -cp ... com.hyperaware.conference.eventmobi.file.SyntheticEventGenerator dir [scale]
+ */
+
+public class SyntheticEventGenerator {
+
+    /** About the size of the events this project was built for. */
+    public static final int BASE_SESSIONS = 150;
+    public static final int BASE_SPEAKERS = 120;
+    public static final int BASE_ATTENDEES = 2000;
+    public static final int BASE_COMPANIES = 40;
+    public static final int BASE_MAPS = 4;
+
+    public static final String EVENT_ID = "9849";
+    public static final String TIMEZONE_NAME = "America/Los_Angeles";
+
+    private static final int DAYS = 3;
+    private static final int FIRST_SLOT_HOUR = 9;
+    private static final int SLOTS_PER_DAY = 16;
+    private static final int SLOT_MINUTES = 30;
+    private static final int ROOMS = 12;
+    private static final String[] WORDS = {
+        "android", "firebase", "cloud", "scale", "design", "mobile", "data", "realtime", "web", "machine",
+        "learning", "security", "testing", "performance", "apps", "platform", "sync", "offline", "network",
+        "storage", "analytics", "growth", "users", "developer", "tools", "build", "deploy", "monitor",
+    };
+    private static final String[] FIRST_NAMES = {
+        "Alex", "Blake", "Casey", "Dana", "Emery", "Finley", "Gray", "Harper", "Indigo", "Jordan",
+        "Kai", "Logan", "Morgan", "Noel", "Oakley", "Parker", "Quinn", "Riley", "Sage", "Taylor",
+    };
+    private static final String[] LAST_NAMES = {
+        "Anders", "Brooks", "Chen", "Diaz", "Evans", "Fischer", "Garcia", "Haddad", "Ito", "Jensen",
+        "Kowalski", "Lopez", "Mensah", "Nakamura", "Okafor", "Patel", "Rossi", "Silva", "Tanaka", "Weber",
+    };
+
+    private final int sessions;
+    private final int speakers;
+    private final int attendees;
+    private final int companies;
+    private final int maps;
+    private final long seed;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: SyntheticEventGenerator dir [scale]");
+            System.exit(1);
+        }
+        final File dir = new File(args[0]);
+        final double scale = args.length > 1 ? Double.parseDouble(args[1]) : 1;
+        final SyntheticEventGenerator generator = scaled(scale);
+        generator.generate(dir);
+        System.out.println("Generated " + generator + " in " + dir);
+    }
+
+    /**
+     * @return a generator for an event the given multiple of the base size
+     */
+    public static SyntheticEventGenerator scaled(double scale) {
+        return new SyntheticEventGenerator(
+            scale(BASE_SESSIONS, scale),
+            scale(BASE_SPEAKERS, scale),
+            scale(BASE_ATTENDEES, scale),
+            scale(BASE_COMPANIES, scale));
+    }
+
+    private static int scale(int base, double scale) {
+        return Math.max(1, (int) Math.round(base * scale));
+    }
+
+    public SyntheticEventGenerator(int sessions, int speakers, int attendees, int companies) {
+        this(sessions, speakers, attendees, companies, BASE_MAPS, 0);
+    }
+
+    public SyntheticEventGenerator(int sessions, int speakers, int attendees, int companies, int maps, long seed) {
+        this.sessions = sessions;
+        this.speakers = speakers;
+        this.attendees = attendees;
+        this.companies = companies;
+        this.maps = maps;
+        this.seed = seed;
+    }
+
+    public int getSessions() {
+        return sessions;
+    }
+
+    public int getSpeakers() {
+        return speakers;
+    }
+
+    public int getAttendees() {
+        return attendees;
+    }
+
+    public int getCompanies() {
+        return companies;
+    }
+
+    public int getMaps() {
+        return maps;
+    }
+
+    /**
+     * @return the total number of section items generated
+     */
+    public int getItemCount() {
+        return sessions + speakers + attendees + companies + maps;
+    }
+
+    /**
+     * Writes the event and every section into the directory, creating it
+     * if necessary.
+     */
+    public void generate(File dir) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Can't create " + dir);
+        }
+        // Each section gets its own Random, so changing the size of one
+        // doesn't change the content of the others
+        writeEvent(new File(dir, FileEventmobiApi.fileNameFor(FileEventmobiApi.EVENT)));
+        writeAgenda(new File(dir, FileEventmobiApi.fileNameFor(FileEventmobiApi.AGENDA)), new Random(seed + 1));
+        writePeople(new File(dir, FileEventmobiApi.fileNameFor(FileEventmobiApi.SPEAKERS)),
+            FileEventmobiApi.SPEAKERS, speakers, new Random(seed + 2));
+        writePeople(new File(dir, FileEventmobiApi.fileNameFor(FileEventmobiApi.ATTENDEES)),
+            FileEventmobiApi.ATTENDEES, attendees, new Random(seed + 3));
+        writeCompanies(new File(dir, FileEventmobiApi.fileNameFor(FileEventmobiApi.COMPANIES)), new Random(seed + 4));
+        writeMaps(new File(dir, FileEventmobiApi.fileNameFor(FileEventmobiApi.MAPS)));
+    }
+
+    private void writeEvent(File file) throws IOException {
+        final JsonWriter writer = open(file);
+        try {
+            writer.beginObject();
+            writer.name("status").value("success");
+            writer.name("response").beginObject();
+            writer.name("id").value(EVENT_ID);
+            writer.name("event_name").value("SYNTHETIC");
+            writer.name("event_name_full").value("Synthetic Event");
+            writer.name("event_description").value("A generated event with " + this + ".");
+            writer.name("location_name").value("Convention Center");
+            writer.name("location_address").value("1 Main Street");
+            writer.name("event_website").value("http://www.example.com/");
+            writer.name("timezone_name").value(TIMEZONE_NAME);
+            writer.name("sections").beginArray();
+            writeSectionRef(writer, FileEventmobiApi.AGENDA, "Agenda and Sessions");
+            writeSectionRef(writer, FileEventmobiApi.SPEAKERS, "Speakers");
+            writeSectionRef(writer, FileEventmobiApi.ATTENDEES, "Attendees");
+            writeSectionRef(writer, FileEventmobiApi.COMPANIES, "Companies");
+            writeSectionRef(writer, FileEventmobiApi.MAPS, "Maps");
+            writer.endArray();
+            writer.endObject();
+            writer.name("timestamp").value(0);
+            writer.endObject();
+        }
+        finally {
+            writer.close();
+        }
+    }
+
+    private static void writeSectionRef(JsonWriter writer, String type, String name) throws IOException {
+        writer.beginObject();
+        writer.name("id").value(sectionId(type));
+        writer.name("event_id").value(EVENT_ID);
+        writer.name("name").value(name);
+        writer.name("type").value(type);
+        writer.name("url").value("http://example.com/" + sectionId(type));
+        writer.endObject();
+    }
+
+    private static String sectionId(String type) {
+        return String.valueOf(122360 + Math.abs(type.hashCode() % 100));
+    }
+
+    private static JsonWriter beginSection(File file, String type, String name) throws IOException {
+        final JsonWriter writer = open(file);
+        writer.beginObject();
+        writer.name("status").value("success");
+        writer.name("response").beginObject();
+        writer.name("id").value(sectionId(type));
+        writer.name("event_id").value(EVENT_ID);
+        writer.name("name").value(name);
+        writer.name("type").value(type);
+        writer.name("items").beginArray();
+        return writer;
+    }
+
+    private static void endSection(JsonWriter writer) throws IOException {
+        writer.endArray();
+        writer.endObject();
+        writer.name("timestamp").value(0);
+        writer.endObject();
+    }
+
+    private void writeAgenda(File file, Random random) throws IOException {
+        final Calendar day = Calendar.getInstance(TimeZone.getTimeZone(TIMEZONE_NAME));
+        day.clear();
+        day.set(2016, Calendar.MAY, 18);
+
+        final JsonWriter writer = beginSection(file, FileEventmobiApi.AGENDA, "Agenda and Sessions");
+        try {
+            for (int i = 0; i < sessions; i++) {
+                // Fill every room's slots in turn, day by day
+                final int slot = (i / ROOMS) % (SLOTS_PER_DAY * DAYS);
+                final Calendar start = (Calendar) day.clone();
+                start.add(Calendar.DAY_OF_MONTH, slot / SLOTS_PER_DAY);
+                final long date = start.getTimeInMillis() / 1000;
+                start.set(Calendar.HOUR_OF_DAY, FIRST_SLOT_HOUR);
+                start.add(Calendar.MINUTE, (slot % SLOTS_PER_DAY) * SLOT_MINUTES);
+                final long startTime = start.getTimeInMillis() / 1000;
+                final long endTime = startTime + SLOT_MINUTES * 60 * (1 + random.nextInt(2));
+
+                writer.beginObject();
+                writer.name("id").value(String.valueOf(600000 + i));
+                writer.name("topic").value(capitalize(words(random, 3 + random.nextInt(4))));
+                writer.name("description").value(capitalize(words(random, 30 + random.nextInt(40))) + ".");
+                writer.name("location").value("Room " + (1 + i % ROOMS));
+                writer.name("date_t").value(String.valueOf(date));
+                writer.name("start_time_t").value(String.valueOf(startTime));
+                writer.name("end_time_t").value(String.valueOf(endTime));
+                writer.name("group_ids").beginArray();
+                writer.value(String.valueOf(168600 + random.nextInt(8)));
+                writer.endArray();
+                writer.name("speaker_ids").beginArray();
+                final int count = random.nextInt(4);
+                for (int s = 0; s < count; s++) {
+                    writer.value(personId(FileEventmobiApi.SPEAKERS, random.nextInt(speakers)));
+                }
+                writer.endArray();
+                writer.endObject();
+            }
+            endSection(writer);
+        }
+        finally {
+            writer.close();
+        }
+    }
+
+    private void writePeople(File file, String type, int count, Random random) throws IOException {
+        final JsonWriter writer = beginSection(file, type, capitalize(type));
+        try {
+            for (int i = 0; i < count; i++) {
+                final String id = personId(type, i);
+                writer.beginObject();
+                writer.name("id").value(id);
+                final String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+                final String last = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+                writer.name("first_name").value(first + " " + last);
+                writer.name("company_name").value(companyName(random.nextInt(companies)));
+                writer.name("title").value(capitalize(words(random, 2)));
+                writer.name("image50").value(id + "_50.jpg");
+                writer.name("image100").value(id + "_100.jpg");
+                writer.name("about").value(capitalize(words(random, 20 + random.nextInt(30))) + ".");
+                writer.name("website").value("");
+                writer.name("facebook").value("");
+                writer.name("twitter").value(random.nextBoolean() ? "@" + id : "");
+                writer.name("linkedin").value("");
+                writer.name("position").value(String.valueOf(i));
+                writer.endObject();
+            }
+            endSection(writer);
+        }
+        finally {
+            writer.close();
+        }
+    }
+
+    private void writeCompanies(File file, Random random) throws IOException {
+        final JsonWriter writer = beginSection(file, FileEventmobiApi.COMPANIES, "Companies");
+        try {
+            for (int i = 0; i < companies; i++) {
+                writer.beginObject();
+                writer.name("id").value(String.valueOf(300000 + i));
+                writer.name("name").value(companyName(i));
+                writer.name("description").value(capitalize(words(random, 20 + random.nextInt(30))) + ".");
+                writer.name("position").value(String.valueOf(i));
+                writer.name("booth").value(String.valueOf(100 + i));
+                writer.name("location").value("Hall " + (char) ('A' + i % 4));
+                writer.name("logo_large").value("logo_" + i + ".png");
+                writer.name("logo_large_wide").value("");
+                writer.name("logo_small").value("logo_" + i + "_small.png");
+                writer.name("logo_small_wide").value("");
+                writer.name("website").value("http://company" + i + ".example.com/");
+                writer.name("facebook").value("");
+                writer.name("twitter").value("");
+                writer.name("linkedin").value("");
+                writer.endObject();
+            }
+            endSection(writer);
+        }
+        finally {
+            writer.close();
+        }
+    }
+
+    private void writeMaps(File file) throws IOException {
+        final JsonWriter writer = beginSection(file, FileEventmobiApi.MAPS, "Maps");
+        try {
+            for (int i = 0; i < maps; i++) {
+                writer.beginObject();
+                writer.name("id").value(String.valueOf(15000 + i));
+                writer.name("name").value("Floor " + (i + 1));
+                writer.name("filename").value("floor_" + (i + 1) + ".png");
+                writer.name("is_google_map").value("0");
+                writer.name("google_map_url").value("");
+                writer.endObject();
+            }
+            endSection(writer);
+        }
+        finally {
+            writer.close();
+        }
+    }
+
+    private static String personId(String type, int index) {
+        return String.valueOf((FileEventmobiApi.SPEAKERS.equals(type) ? 2700000 : 5000000) + index);
+    }
+
+    private static String companyName(int index) {
+        final String first = WORDS[index % WORDS.length];
+        final String second = WORDS[(index / WORDS.length) % WORDS.length];
+        return capitalize(first) + " " + capitalize(second) + " " + index;
+    }
+
+    private static String words(Random random, int count) {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+
+    private static String capitalize(String s) {
+        return s.isEmpty() ? s : Character.toUpperCase(s.charAt(0)) + s.substring(1);
+    }
+
+    private static JsonWriter open(File file) throws IOException {
+        return new JsonWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8")));
+    }
+
+    public String toString() {
+        return
+            sessions + " sessions, " +
+            speakers + " speakers, " +
+            attendees + " attendees, " +
+            companies + " companies, " +
+            maps + " maps";
+    }
+
+}
@@ -18,71 +18,215 @@ package com.hyperaware.conference.eventmobi.http;
 
 import com.hyperaware.conference.eventmobi.EventmobiApi;
 import com.hyperaware.conference.eventmobi.EventmobiConfig;
+import com.hyperaware.conference.eventmobi.file.FileEventmobiApi;
+import com.hyperaware.conference.mechanics.DecompressingStreamer;
+import com.hyperaware.conference.mechanics.DigestStore;
 import com.hyperaware.conference.mechanics.StreamingFetcher;
 import com.hyperaware.conference.eventmobi.model.EmAgendaSectionResponse;
+import com.hyperaware.conference.eventmobi.model.EmAttendeeItem;
 import com.hyperaware.conference.eventmobi.model.EmAttendeesSectionResponse;
 import com.hyperaware.conference.eventmobi.model.EmCompaniesSectionResponse;
 import com.hyperaware.conference.eventmobi.model.EmEventResponse;
 import com.hyperaware.conference.eventmobi.model.EmMapsSectionResponse;
 import com.hyperaware.conference.eventmobi.model.EmSection;
 import com.hyperaware.conference.eventmobi.model.EmSpeakersSectionResponse;
+import com.hyperaware.conference.eventmobi.parser.ItemSink;
 import com.hyperaware.conference.eventmobi.parser.gson.GsonParser;
 import com.hyperaware.conference.eventmobi.parser.gson.GsonSectionResponseParser;
+import com.hyperaware.conference.eventmobi.parser.gson.GsonStreamingSectionResponseParser;
 import com.hyperaware.conference.mechanics.FetchException;
+import com.hyperaware.conference.mechanics.FetchListener;
 import com.hyperaware.conference.mechanics.Fetcher;
+import com.hyperaware.conference.mechanics.Parser;
+import com.hyperaware.conference.mechanics.PrefetchingStreamer;
+import com.hyperaware.conference.mechanics.RecordingStreamer;
 import com.hyperaware.conference.mechanics.Streamer;
 
+import java.io.File;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * EventmobiApi that talks to Eventmobi over HTTP.  It's safe to use from
+ * multiple threads.
+ *
+ * Section URLs come from the event response.  If a section is fetched
+ * before the event, the event is fetched first to find them.  With a
+ * prefetch executor, every section starts downloading as soon as the
+ * event response has been parsed, and the next fetch of each section uses
+ * what was downloaded.  Downloads that no fetch used are deleted by the
+ * next event fetch, or by close().
+ */
 
 public class HttpEventmobiApi implements EventmobiApi {
 
+    private static final List<String> REQUIRED_SECTION_TYPES = Collections.unmodifiableList(
+        Arrays.asList("agenda", "speakers", "companies", "attendees", "maps"));
+
     private final EventmobiConfig config;
-    // Map of section types to section data generated by
+    private final HttpEventmobiApiOptions options;
+    private final FetchListener listener;
+    private final File captureDir;
+    private final DigestStore digests;
+    private final Executor prefetchExecutor;
+    // Map of section types to section URLs generated by
     // InterceptingEventFetcher after the EmEventResponse fetcher completes.
-    private final HashMap<String, EmSection> sectionsByType = new HashMap<>();
+    private final ConcurrentHashMap<String, String> sectionUrlsByType = new ConcurrentHashMap<>();
+    // Section downloads started after the last event fetch, not yet used
+    private final ConcurrentHashMap<String, PrefetchingStreamer> prefetchedByType = new ConcurrentHashMap<>();
+    private final Object eventLock = new Object();
 
     public HttpEventmobiApi(EventmobiConfig config) {
+        this(config, new HttpEventmobiApiOptions());
+    }
+
+    public HttpEventmobiApi(EventmobiConfig config, HttpEventmobiApiOptions options) {
         this.config = config;
+        this.options = options;
+        this.listener = options.getListener();
+        this.captureDir = options.getCaptureDir();
+        this.digests = options.getDigestStore();
+        this.prefetchExecutor = options.getPrefetchExecutor();
     }
 
     @Override
     public Fetcher<EmEventResponse> getEventFetcher() {
-        final Streamer streamer = new HttpGetStreamer(config, config.getEventApiUrl() + ".json");
-        return new InterceptingEventFetcher(streamer, new GsonParser<>(EmEventResponse.class));
+        final Streamer streamer = newStreamer("event", config.getEventApiUrl() + ".json");
+        return new InterceptingEventFetcher(streamer, new GsonParser<>(EmEventResponse.class, listener, "event"));
     }
 
     @Override
     public Fetcher<EmAgendaSectionResponse> getAgendaSectionFetcher() {
-        final Streamer streamer = new HttpGetStreamer(config, sectionsByType.get("agenda").getUrl() + ".json");
-        return new StreamingFetcher<>(streamer, new GsonSectionResponseParser<>(EmAgendaSectionResponse.class));
+        final Parser<EmAgendaSectionResponse> parser =
+            new GsonSectionResponseParser<>(EmAgendaSectionResponse.class, listener, "agenda");
+        return new SectionFetcher<>("agenda", parser);
     }
 
     @Override
     public Fetcher<EmSpeakersSectionResponse> getSpeakersSectionFetcher() {
-        final Streamer streamer = new HttpGetStreamer(config, sectionsByType.get("speakers").getUrl() + ".json");
-        return new StreamingFetcher<>(streamer, new GsonSectionResponseParser<>(EmSpeakersSectionResponse.class));
+        final Parser<EmSpeakersSectionResponse> parser =
+            new GsonSectionResponseParser<>(EmSpeakersSectionResponse.class, listener, "speakers");
+        return new SectionFetcher<>("speakers", parser);
     }
 
     @Override
     public Fetcher<EmAttendeesSectionResponse> getAttendeesSectionFetcher() {
-        final Streamer streamer = new HttpGetStreamer(config, sectionsByType.get("attendees").getUrl() + ".json");
-        return new StreamingFetcher<>(streamer, new GsonSectionResponseParser<>(EmAttendeesSectionResponse.class));
+        final Parser<EmAttendeesSectionResponse> parser =
+            new GsonSectionResponseParser<>(EmAttendeesSectionResponse.class, listener, "attendees");
+        return new SectionFetcher<>("attendees", parser);
+    }
+
+    @Override
+    public Fetcher<EmAttendeesSectionResponse> getAttendeesSectionFetcher(ItemSink<? super EmAttendeeItem> sink) {
+        return new SectionFetcher<>("attendees", new GsonStreamingSectionResponseParser<>(
+            EmAttendeesSectionResponse.class, EmAttendeeItem.class, sink, listener, "attendees"));
     }
 
     @Override
     public Fetcher<EmMapsSectionResponse> getMapsSectionFetcher() {
-        final Streamer streamer = new HttpGetStreamer(config, sectionsByType.get("maps").getUrl() + ".json");
-        return new StreamingFetcher<>(streamer, new GsonSectionResponseParser<>(EmMapsSectionResponse.class));
+        final Parser<EmMapsSectionResponse> parser =
+            new GsonSectionResponseParser<>(EmMapsSectionResponse.class, listener, "maps");
+        return new SectionFetcher<>("maps", parser);
     }
 
     @Override
     public Fetcher<EmCompaniesSectionResponse> getCompaniesSectionFetcher() {
-        final Streamer streamer = new HttpGetStreamer(config, sectionsByType.get("companies").getUrl() + ".json");
-        return new StreamingFetcher<>(streamer, new GsonSectionResponseParser<>(EmCompaniesSectionResponse.class));
+        final Parser<EmCompaniesSectionResponse> parser =
+            new GsonSectionResponseParser<>(EmCompaniesSectionResponse.class, listener, "companies");
+        return new SectionFetcher<>("companies", parser);
     }
 
+    /**
+     * Discards sections prefetched but never fetched.  The api can still be
+     * used afterward.
+     */
+    @Override
+    public void close() {
+        for (final String type : REQUIRED_SECTION_TYPES) {
+            final PrefetchingStreamer streamer = prefetchedByType.remove(type);
+            if (streamer != null) {
+                streamer.discard();
+            }
+        }
+    }
+
+    /**
+     * @return the URL of the given type of section, fetching the event to
+     *     find it if that hasn't been done yet
+     */
+    private String getSectionUrl(final String type) throws FetchException {
+        String url = sectionUrlsByType.get(type);
+        if (url == null) {
+            // Callers racing here share one event fetch
+            synchronized (eventLock) {
+                url = sectionUrlsByType.get(type);
+                if (url == null) {
+                    getEventFetcher().fetch();
+                    url = sectionUrlsByType.get(type);
+                }
+            }
+        }
+        if (url == null) {
+            throw new FetchException(type + " section type not found in event response");
+        }
+        return url;
+    }
+
+    private void startPrefetches() {
+        for (final String type : REQUIRED_SECTION_TYPES) {
+            final PrefetchingStreamer streamer =
+                new PrefetchingStreamer(newStreamer(type, sectionUrlsByType.get(type) + ".json"));
+            final PrefetchingStreamer previous = prefetchedByType.put(type, streamer);
+            if (previous != null) {
+                previous.discard();
+            }
+            streamer.start(prefetchExecutor);
+        }
+    }
+
+    /**
+     * Eventmobi JSON compresses very well, so always ask for it compressed
+     * and decompress on the way in.  Recordings are made before
+     * decompression, so they hold exactly what was received.
+     */
+    private Streamer newStreamer(final String name, final String url) {
+        Streamer streamer = new HttpGetStreamer(config, url, name, options);
+        if (captureDir != null) {
+            streamer = new RecordingStreamer(streamer, new File(captureDir, FileEventmobiApi.fileNameFor(name)));
+        }
+        return new DecompressingStreamer(streamer);
+    }
+
+    private <T> Fetcher<T> newFetcher(final String name, final Streamer streamer, final Parser<T> parser) {
+        return new StreamingFetcher<>(streamer, parser, listener, name, digests);
+    }
+
+
+    /**
+     * Fetches a section by type, using the prefetched download if there's
+     * one waiting.  The URL isn't looked up until the fetch happens.
+     */
+    private class SectionFetcher<T> implements Fetcher<T> {
+        private final String type;
+        private final Parser<T> parser;
+
+        public SectionFetcher(String type, Parser<T> parser) {
+            this.type = type;
+            this.parser = parser;
+        }
+
+        @Override
+        public T fetch() throws FetchException {
+            Streamer streamer = prefetchedByType.remove(type);
+            if (streamer == null) {
+                streamer = newStreamer(type, getSectionUrl(type) + ".json");
+            }
+            return newFetcher(type, streamer, parser).fetch();
+        }
+    }
 
     /**
      * Special Fetcher that checks to see if the required sections are
@@ -92,24 +236,26 @@ public class HttpEventmobiApi implements EventmobiApi {
      */
     private class InterceptingEventFetcher extends StreamingFetcher<EmEventResponse> {
         public InterceptingEventFetcher(Streamer streamer, GsonParser<EmEventResponse> parser) {
-            super(streamer, parser);
+            super(streamer, parser, listener, "event");
         }
 
         @Override
         public EmEventResponse fetch() throws FetchException {
             final EmEventResponse response = super.fetch();
             for (final EmSection section : response.getResponse().getSections()) {
-                sectionsByType.put(section.getType(), section);
+                sectionUrlsByType.put(section.getType(), section.getUrl());
             }
 
-            final List<String> required =
-                Arrays.asList("agenda", "speakers", "companies", "attendees", "maps", "companies");
-            for (final String type : required) {
-                if (!sectionsByType.containsKey(type)) {
+            for (final String type : REQUIRED_SECTION_TYPES) {
+                if (!sectionUrlsByType.containsKey(type)) {
                     throw new FetchException(type + " section type not found in event response");
                 }
             }
 
+            if (prefetchExecutor != null) {
+                startPrefetches();
+            }
+
             return response;
         }
     }
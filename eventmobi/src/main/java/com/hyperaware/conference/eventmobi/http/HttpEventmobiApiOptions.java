@@ -0,0 +1,102 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.eventmobi.http;
+
+import com.hyperaware.conference.mechanics.DigestStore;
+import com.hyperaware.conference.mechanics.FetchListener;
+
+import java.io.File;
+import java.util.concurrent.Executor;
+
+/**
+ * Optional collaborators for an HttpEventmobiApi.  Everything but the
+ * transport defaults to off.
+ */
+
+public class HttpEventmobiApiOptions {
+
+    // Connection settings and limits, normally shared by every api talking
+    // to the same Eventmobi host
+    private HttpTransport transport = HttpTransport.getDefault();
+    // If not null, used to make conditional requests and to answer them
+    // when the content hasn't changed
+    private HttpResponseCache cache;
+    // If not null, receives timings and byte counts for each fetch, named
+    // after the section ("event" for the event)
+    private FetchListener listener;
+    // If not null, the exact bytes of every response are recorded there, in
+    // the layout read by FileEventmobiApi
+    private File captureDir;
+    // If not null, section fetchers return null for content whose digest
+    // is committed there (see StreamingFetcher)
+    private DigestStore digestStore;
+    // If not null, runs speculative downloads of every section, started
+    // when the event response arrives
+    private Executor prefetchExecutor;
+
+    public HttpTransport getTransport() {
+        return transport;
+    }
+
+    public void setTransport(HttpTransport transport) {
+        if (transport == null) {
+            throw new IllegalArgumentException("transport must not be null");
+        }
+        this.transport = transport;
+    }
+
+    public HttpResponseCache getCache() {
+        return cache;
+    }
+
+    public void setCache(HttpResponseCache cache) {
+        this.cache = cache;
+    }
+
+    public FetchListener getListener() {
+        return listener;
+    }
+
+    public void setListener(FetchListener listener) {
+        this.listener = listener;
+    }
+
+    public File getCaptureDir() {
+        return captureDir;
+    }
+
+    public void setCaptureDir(File captureDir) {
+        this.captureDir = captureDir;
+    }
+
+    public DigestStore getDigestStore() {
+        return digestStore;
+    }
+
+    public void setDigestStore(DigestStore digestStore) {
+        this.digestStore = digestStore;
+    }
+
+    public Executor getPrefetchExecutor() {
+        return prefetchExecutor;
+    }
+
+    public void setPrefetchExecutor(Executor prefetchExecutor) {
+        this.prefetchExecutor = prefetchExecutor;
+    }
+
+}
@@ -17,10 +17,14 @@
 package com.hyperaware.conference.eventmobi.http;
 
 import com.hyperaware.conference.eventmobi.EventmobiConfig;
+import com.hyperaware.conference.mechanics.FetchListener;
 import com.hyperaware.conference.mechanics.Streamer;
 
+import org.apache.commons.io.input.CountingInputStream;
+
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
 
@@ -28,24 +32,125 @@ import java.net.URLConnection;
  * A Streamer that knows how to make requests of Eventmobi for event data.
  * In uses a standard Java URLConnection and adds an API key to the HTTP
  * request.
+ *
+ * If given an HttpResponseCache, requests are made conditional on the
+ * validators of the cached response, and a 304 Not Modified is answered
+ * with the cached body.  Fresh responses that carry validators are written
+ * to the cache as they are streamed.
+ *
+ * If made with HttpEventmobiApiOptions, it accepts compressed content: it
+ * advertises gzip and deflate and returns the body exactly as it was sent,
+ * so it should be wrapped in a DecompressingStreamer.
+ *
+ * Connections are opened through an HttpTransport, which applies timeouts
+ * and limits the number of concurrent requests to the host.
+ *
+ * If given a FetchListener, it reports time spent queued, connecting and
+ * waiting for the response headers, and the number of body bytes received
+ * from the network (before decompression) once the stream is closed.
  */
 
 public class HttpGetStreamer implements Streamer {
 
     private final EventmobiConfig config;
     private final String url;
+    private final HttpTransport transport;
+    private final HttpResponseCache cache;
+    private final boolean acceptCompressed;
+    private final FetchListener listener;
+    private final String name;
 
     public HttpGetStreamer(final EventmobiConfig config, final String url) {
         this.config = config;
         this.url = url;
+        this.transport = HttpTransport.getDefault();
+        this.cache = null;
+        this.acceptCompressed = false;
+        this.listener = null;
+        this.name = null;
+    }
+
+    /**
+     * Makes requests through the options' transport, cache and listener,
+     * and accepts compressed content.
+     *
+     * @param name identifies this request to the listener
+     */
+    public HttpGetStreamer(
+        final EventmobiConfig config, final String url, final String name, final HttpEventmobiApiOptions options) {
+        this.config = config;
+        this.url = url;
+        this.transport = options.getTransport();
+        this.cache = options.getCache();
+        this.acceptCompressed = true;
+        this.listener = options.getListener();
+        this.name = name;
     }
 
     @Override
     public InputStream stream() throws IOException {
-        final URL u = new URL(url);
-        final URLConnection conn = u.openConnection();
+        final URLConnection conn = transport.open(new URL(url));
         conn.addRequestProperty("X-API-KEY", config.getApiKey());
-        return conn.getInputStream();
+        if (acceptCompressed) {
+            conn.addRequestProperty("Accept-Encoding", "gzip, deflate");
+        }
+
+        final HttpResponseCache.Entry cached = cache != null ? cache.get(url) : null;
+        if (cached != null) {
+            if (cached.getEtag() != null) {
+                conn.addRequestProperty("If-None-Match", cached.getEtag());
+            }
+            if (cached.getLastModified() != null) {
+                conn.addRequestProperty("If-Modified-Since", cached.getLastModified());
+            }
+        }
+
+        final HttpTransport.Exchange exchange = transport.execute(conn);
+        if (listener != null) {
+            listener.onTiming(name, FetchListener.STAGE_QUEUE, exchange.getQueueNanos());
+            listener.onTiming(name, FetchListener.STAGE_CONNECT, exchange.getConnectNanos());
+            listener.onTiming(name, FetchListener.STAGE_FIRST_BYTE, exchange.getFirstByteNanos());
+        }
+        if (cached != null && exchange.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            // Closing the (empty) body lets the connection be reused
+            exchange.getInputStream().close();
+            return cached.openBody();
+        }
+
+        final InputStream is = countWireBytes(exchange.getInputStream());
+        if (cache == null) {
+            return is;
+        }
+        final String etag = conn.getHeaderField("ETag");
+        final String lastModified = conn.getHeaderField("Last-Modified");
+        if (etag != null || lastModified != null) {
+            return cache.put(url, etag, lastModified, is);
+        }
+        else {
+            return is;
+        }
+    }
+
+    private InputStream countWireBytes(final InputStream is) {
+        if (listener == null) {
+            return is;
+        }
+        return new CountingInputStream(is) {
+            private boolean reported;
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                }
+                finally {
+                    if (!reported) {
+                        reported = true;
+                        listener.onBytes(name, FetchListener.BYTES_WIRE, getByteCount());
+                    }
+                }
+            }
+        };
     }
 
 }
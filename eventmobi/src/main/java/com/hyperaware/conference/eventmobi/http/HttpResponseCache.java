@@ -0,0 +1,178 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.eventmobi.http;
+
+import com.hyperaware.conference.mechanics.SpoolingInputStream;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+
+/**
+ * A small on-disk cache of HTTP response bodies along with the validators
+ * (ETag and Last-Modified) the server sent for them, so that subsequent
+ * requests can be made conditional.  Each URL gets a body file and a
+ * properties file named after a hash of the URL.  There is no eviction,
+ * since Eventmobi only has a handful of URLs per event.
+ *
+ * The two files can't be replaced together, so the properties file is
+ * removed before the body is replaced, and it records the body's length.
+ * An entry whose properties file is missing or doesn't match its body is
+ * a miss, so a crash part way through a commit never pairs a new body
+ * with the old validators.
+ */
+
+public class HttpResponseCache {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final String BODY_SUFFIX = ".body";
+    private static final String META_SUFFIX = ".meta";
+    private static final String ETAG_PROP = "etag";
+    private static final String LAST_MODIFIED_PROP = "last_modified";
+    private static final String URL_PROP = "url";
+    private static final String LENGTH_PROP = "length";
+
+    private final File dir;
+
+    public HttpResponseCache(final File dir) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Can't create cache directory " + dir);
+        }
+        this.dir = dir;
+    }
+
+    public File getDirectory() {
+        return dir;
+    }
+
+    /**
+     * @return the cached entry for the url, or null if there is none
+     */
+    public Entry get(final String url) throws IOException {
+        final String key = keyFor(url);
+        final File body = new File(dir, key + BODY_SUFFIX);
+        final File meta = new File(dir, key + META_SUFFIX);
+        if (!body.isFile() || !meta.isFile()) {
+            return null;
+        }
+
+        final Properties props = new Properties();
+        try (InputStream is = new FileInputStream(meta)) {
+            props.load(is);
+        }
+        if (!url.equals(props.getProperty(URL_PROP))) {
+            return null;
+        }
+        if (!String.valueOf(body.length()).equals(props.getProperty(LENGTH_PROP))) {
+            return null;
+        }
+        return new Entry(body, props.getProperty(ETAG_PROP), props.getProperty(LAST_MODIFIED_PROP));
+    }
+
+    /**
+     * Wraps a response body so that it's written to the cache as it's read.
+     * The entry is committed only if the body is read to the end before the
+     * returned stream is closed, so a failed or abandoned download never
+     * replaces a good entry.
+     */
+    public InputStream put(final String url, final String etag, final String lastModified, final InputStream body)
+        throws IOException {
+        final String key = keyFor(url);
+        final File temp = File.createTempFile(key, ".tmp", dir);
+        return new SpoolingInputStream(body, temp) {
+            @Override
+            protected void commit(File spool) throws IOException {
+                HttpResponseCache.this.commit(key, url, etag, lastModified, spool);
+            }
+        };
+    }
+
+    private void commit(String key, String url, String etag, String lastModified, File temp) throws IOException {
+        final Properties props = new Properties();
+        props.setProperty(URL_PROP, url);
+        props.setProperty(LENGTH_PROP, String.valueOf(temp.length()));
+        if (etag != null) {
+            props.setProperty(ETAG_PROP, etag);
+        }
+        if (lastModified != null) {
+            props.setProperty(LAST_MODIFIED_PROP, lastModified);
+        }
+
+        final File metaTemp = File.createTempFile(key, ".tmp", dir);
+        try (OutputStream os = new FileOutputStream(metaTemp)) {
+            props.store(os, null);
+        }
+
+        final File meta = new File(dir, key + META_SUFFIX);
+        Files.deleteIfExists(meta.toPath());
+        Files.move(temp.toPath(), new File(dir, key + BODY_SUFFIX).toPath(),
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.move(metaTemp.toPath(), meta.toPath(),
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String keyFor(final String url) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-1").digest(url.getBytes(UTF8));
+            final StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (final byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+                sb.append(Character.forDigit(b & 0xf, 16));
+            }
+            return sb.toString();
+        }
+        catch (NoSuchAlgorithmException e) {
+            // Every JVM is required to have SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static class Entry {
+        private final File body;
+        private final String etag;
+        private final String lastModified;
+
+        private Entry(File body, String etag, String lastModified) {
+            this.body = body;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        public InputStream openBody() throws IOException {
+            return new FileInputStream(body);
+        }
+    }
+
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.eventmobi.http;
+
+import com.hyperaware.conference.mechanics.HttpStatusException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared settings and limits for all HTTP requests made to Eventmobi.
+ * Connections get connect and read timeouts so that a stuck server can't
+ * hang a fetch forever, and the number of concurrent requests to any one
+ * host is capped.  A request waiting for one of its host's slots waits up
+ * to the queue timeout, or for as long as it takes if that's 0.  A slot is
+ * held for a whole download, so that wait has nothing to do with how long
+ * connecting takes.
+ *
+ * Connection reuse comes from the JDK's HttpURLConnection keep-alive
+ * cache, which pools idle connections (up to the http.maxConnections
+ * system property, default 5, per destination).  A connection only goes
+ * back to that pool once its response has been consumed and closed, so
+ * streams handed out here release their host permit on close, and error
+ * responses are drained before being reported.
+ */
+
+public class HttpTransport {
+
+    public static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 15 * 1000;
+    public static final int DEFAULT_READ_TIMEOUT_MILLIS = 60 * 1000;
+    public static final int DEFAULT_QUEUE_TIMEOUT_MILLIS = 0;
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 5;
+
+    private static final HttpTransport DEFAULT = new HttpTransport();
+
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    private final int queueTimeoutMillis;
+    private final int maxConnectionsPerHost;
+    private final ConcurrentMap<String, Semaphore> permitsByHost = new ConcurrentHashMap<>();
+
+    /**
+     * @return a transport with default settings, shared by everything that
+     *     doesn't provide its own
+     */
+    public static HttpTransport getDefault() {
+        return DEFAULT;
+    }
+
+    public HttpTransport() {
+        this(DEFAULT_CONNECT_TIMEOUT_MILLIS, DEFAULT_READ_TIMEOUT_MILLIS, DEFAULT_MAX_CONNECTIONS_PER_HOST);
+    }
+
+    public HttpTransport(int connectTimeoutMillis, int readTimeoutMillis, int maxConnectionsPerHost) {
+        this(connectTimeoutMillis, readTimeoutMillis, DEFAULT_QUEUE_TIMEOUT_MILLIS, maxConnectionsPerHost);
+    }
+
+    /**
+     * @param queueTimeoutMillis how long to wait for a free slot for the
+     *     host, or 0 to wait as long as it takes
+     */
+    public HttpTransport(
+        int connectTimeoutMillis,
+        int readTimeoutMillis,
+        int queueTimeoutMillis,
+        int maxConnectionsPerHost) {
+        if (connectTimeoutMillis < 0 || readTimeoutMillis < 0 || queueTimeoutMillis < 0) {
+            throw new IllegalArgumentException("timeouts must not be negative");
+        }
+        if (maxConnectionsPerHost < 1) {
+            throw new IllegalArgumentException("maxConnectionsPerHost must be at least 1");
+        }
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+    }
+
+    public int getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public int getReadTimeoutMillis() {
+        return readTimeoutMillis;
+    }
+
+    public int getQueueTimeoutMillis() {
+        return queueTimeoutMillis;
+    }
+
+    public int getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+
+    /**
+     * Creates a connection to the url with this transport's timeouts.  It's
+     * not connected yet, so request properties can still be added.
+     */
+    public URLConnection open(final URL url) throws IOException {
+        final URLConnection conn = url.openConnection();
+        conn.setConnectTimeout(connectTimeoutMillis);
+        conn.setReadTimeout(readTimeoutMillis);
+        conn.setUseCaches(false);
+        return conn;
+    }
+
+    /**
+     * Waits for a free slot for the connection's host, then sends the
+     * request and returns the response code.  Once this returns, the slot
+     * is held until the stream returned by getInputStream is closed.
+     */
+    public Exchange execute(final URLConnection conn) throws IOException {
+        final long queueStart = System.nanoTime();
+        final Semaphore permits = permitsFor(conn.getURL().getHost());
+        try {
+            if (queueTimeoutMillis == 0) {
+                permits.acquire();
+            }
+            else if (!permits.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new IOException("Timed out waiting for a connection to " + conn.getURL().getHost());
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for a connection to " + conn.getURL().getHost(), e);
+        }
+
+        try {
+            final long connectStart = System.nanoTime();
+            conn.connect();
+            final long requestStart = System.nanoTime();
+            final int code = conn instanceof HttpURLConnection ? ((HttpURLConnection) conn).getResponseCode() : 200;
+            final long end = System.nanoTime();
+            return new Exchange(
+                conn, code, permits, connectStart - queueStart, requestStart - connectStart, end - requestStart);
+        }
+        catch (IOException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private Semaphore permitsFor(final String host) {
+        Semaphore permits = permitsByHost.get(host);
+        if (permits == null) {
+            final Semaphore created = new Semaphore(maxConnectionsPerHost);
+            permits = permitsByHost.putIfAbsent(host, created);
+            if (permits == null) {
+                permits = created;
+            }
+        }
+        return permits;
+    }
+
+    /**
+     * A request that has been sent, holding a connection slot for its host.
+     * Either get the body with getInputStream, or call release.
+     */
+    public static class Exchange {
+        private final URLConnection conn;
+        private final int responseCode;
+        private final Semaphore permits;
+        private final long queueNanos;
+        private final long connectNanos;
+        private final long firstByteNanos;
+        private boolean released;
+
+        private Exchange(
+            URLConnection conn,
+            int responseCode,
+            Semaphore permits,
+            long queueNanos,
+            long connectNanos,
+            long firstByteNanos) {
+            this.conn = conn;
+            this.responseCode = responseCode;
+            this.permits = permits;
+            this.queueNanos = queueNanos;
+            this.connectNanos = connectNanos;
+            this.firstByteNanos = firstByteNanos;
+        }
+
+        public URLConnection getConnection() {
+            return conn;
+        }
+
+        public int getResponseCode() {
+            return responseCode;
+        }
+
+        /**
+         * @return time spent waiting for a connection slot for the host
+         */
+        public long getQueueNanos() {
+            return queueNanos;
+        }
+
+        /**
+         * @return time spent connecting, which is close to zero when a
+         *     kept-alive connection was reused
+         */
+        public long getConnectNanos() {
+            return connectNanos;
+        }
+
+        /**
+         * @return time from sending the request to receiving the response
+         *     headers
+         */
+        public long getFirstByteNanos() {
+            return firstByteNanos;
+        }
+
+        /**
+         * @return the response body, which releases this exchange when closed
+         * @throws IOException if the response was an error, in which case
+         *     the exchange has already been released; an HttpStatusException
+         *     for an error status
+         */
+        public InputStream getInputStream() throws IOException {
+            final InputStream is;
+            try {
+                is = conn.getInputStream();
+            }
+            catch (IOException | RuntimeException e) {
+                drainErrorStream();
+                release();
+                if (responseCode >= 400) {
+                    throw new HttpStatusException(
+                        responseCode, conn.getURL() + " returned HTTP " + responseCode, e);
+                }
+                throw e;
+            }
+
+            return new FilterInputStream(is) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    }
+                    finally {
+                        release();
+                    }
+                }
+            };
+        }
+
+        /**
+         * Frees the slot without reading the response body.  The connection
+         * then isn't kept for reuse, so to abandon a body and keep the
+         * connection, read it to the end and close it instead.
+         */
+        public void release() {
+            synchronized (this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+            }
+            permits.release();
+        }
+
+        private void drainErrorStream() {
+            if (!(conn instanceof HttpURLConnection)) {
+                return;
+            }
+            final InputStream es = ((HttpURLConnection) conn).getErrorStream();
+            if (es == null) {
+                return;
+            }
+            try {
+                final byte[] buffer = new byte[4096];
+                while (es.read(buffer) >= 0) {
+                    // discard
+                }
+            }
+            catch (IOException e) {
+                // The connection just won't be reused
+            }
+            finally {
+                try {
+                    es.close();
+                }
+                catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+}
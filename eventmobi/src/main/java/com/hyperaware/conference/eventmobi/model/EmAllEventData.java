@@ -16,34 +16,77 @@
 
 package com.hyperaware.conference.eventmobi.model;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * A snapshot of everything fetched from Eventmobi for an event, along with
+ * indexes over it.  See EventDataLoader for how one is made.  The maps and
+ * lists here are unmodifiable, and the items in them are shared between
+ * the raw sections and the indexes, so they must not be modified either.
+ */
+
 public class EmAllEventData {
 
     //
     // Raw data
     //
 
-    public EmEvent event;
-    public EmSection<EmAgendaItem> agendaSection;
-    public EmSection<EmSpeakerItem> speakersSection;
-    public EmSection<EmMapItem> mapsSection;
-    public EmSection<EmCompanyItem> companiesSection;
-    public EmSection<EmAttendeeItem> attendeesSection;
+    public final EmEvent event;
+    public final EmSection<EmAgendaItem> agendaSection;
+    public final EmSection<EmSpeakerItem> speakersSection;
+    public final EmSection<EmMapItem> mapsSection;
+    public final EmSection<EmCompanyItem> companiesSection;
+    public final EmSection<EmAttendeeItem> attendeesSection;
 
     //
     // Cooked data
     //
 
-    public Map<String, EmAgendaItem> agendaItemsById;
-    public Map<String, EmSpeakerItem> speakerItemsById;
-    public Map<String, EmAttendeeItem> attendeeItemsById;
-    public Map<String, EmCompanyItem> companyItemsById;
+    public final Map<String, EmAgendaItem> agendaItemsById;
+    public final Map<String, EmSpeakerItem> speakerItemsById;
+    public final Map<String, EmAttendeeItem> attendeeItemsById;
+    public final Map<String, EmCompanyItem> companyItemsById;
+
+    public final List<EmSpeakerItem> sortedSpeakers;
+    public final List<EmAttendeeItem> sortedAttendees;
+
+    public final Map<String, List<EmAgendaItem>> speakersAgendaItems;
 
-    public List<EmSpeakerItem> sortedSpeakers;
-    public List<EmAttendeeItem> sortedAttendees;
+    public EmAllEventData(
+        EmEvent event,
+        EmSection<EmAgendaItem> agendaSection,
+        EmSection<EmSpeakerItem> speakersSection,
+        EmSection<EmMapItem> mapsSection,
+        EmSection<EmCompanyItem> companiesSection,
+        EmSection<EmAttendeeItem> attendeesSection,
+        Map<String, EmAgendaItem> agendaItemsById,
+        Map<String, EmSpeakerItem> speakerItemsById,
+        Map<String, EmAttendeeItem> attendeeItemsById,
+        Map<String, EmCompanyItem> companyItemsById,
+        List<EmSpeakerItem> sortedSpeakers,
+        List<EmAttendeeItem> sortedAttendees,
+        Map<String, List<EmAgendaItem>> speakersAgendaItems) {
+        this.event = event;
+        this.agendaSection = agendaSection;
+        this.speakersSection = speakersSection;
+        this.mapsSection = mapsSection;
+        this.companiesSection = companiesSection;
+        this.attendeesSection = attendeesSection;
+        this.agendaItemsById = Collections.unmodifiableMap(agendaItemsById);
+        this.speakerItemsById = Collections.unmodifiableMap(speakerItemsById);
+        this.attendeeItemsById = Collections.unmodifiableMap(attendeeItemsById);
+        this.companyItemsById = Collections.unmodifiableMap(companyItemsById);
+        this.sortedSpeakers = Collections.unmodifiableList(sortedSpeakers);
+        this.sortedAttendees = Collections.unmodifiableList(sortedAttendees);
 
-    public Map<String, List<EmAgendaItem>> speakersAgendaItems;
+        final HashMap<String, List<EmAgendaItem>> agendaItems = new HashMap<>(speakersAgendaItems.size());
+        for (final Map.Entry<String, List<EmAgendaItem>> entry : speakersAgendaItems.entrySet()) {
+            agendaItems.put(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+        }
+        this.speakersAgendaItems = Collections.unmodifiableMap(agendaItems);
+    }
 
 }
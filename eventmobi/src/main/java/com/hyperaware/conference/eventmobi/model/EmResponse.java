@@ -16,9 +16,13 @@
 
 package com.hyperaware.conference.eventmobi.model;
 
-public abstract class EmResponse {
+import com.hyperaware.conference.mechanics.Digested;
+
+public abstract class EmResponse implements Digested {
 
     private String status;
+    // Not part of the response, see StreamingFetcher
+    private transient String contentDigest;
 
     public String getStatus() {
         return status;
@@ -28,4 +32,14 @@ public abstract class EmResponse {
         this.status = status;
     }
 
+    @Override
+    public String getContentDigest() {
+        return contentDigest;
+    }
+
+    @Override
+    public void setContentDigest(String contentDigest) {
+        this.contentDigest = contentDigest;
+    }
+
 }
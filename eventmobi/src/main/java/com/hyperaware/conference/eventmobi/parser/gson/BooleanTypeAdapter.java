@@ -0,0 +1,59 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.eventmobi.parser.gson;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Eventmobi serializes booleans as integer strings!  Yuck!  This reads
+ * "1" (or 1) as true and anything else as false, and writes them back out
+ * the same way.  Real JSON booleans are accepted as well.
+ */
+
+public class BooleanTypeAdapter extends TypeAdapter<Boolean> {
+
+    @Override
+    public Boolean read(JsonReader in) throws IOException {
+        final JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        else if (token == JsonToken.BOOLEAN) {
+            return in.nextBoolean();
+        }
+        else {
+            return "1".equals(in.nextString());
+        }
+    }
+
+    @Override
+    public void write(JsonWriter out, Boolean value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+        }
+        else {
+            out.value(value ? "1" : "0");
+        }
+    }
+
+}
@@ -0,0 +1,759 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.eventmobi.parser.gson;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.hyperaware.conference.eventmobi.model.EmAgendaItem;
+import com.hyperaware.conference.eventmobi.model.EmAgendaSectionResponse;
+import com.hyperaware.conference.eventmobi.model.EmAttendeeItem;
+import com.hyperaware.conference.eventmobi.model.EmAttendeesSectionResponse;
+import com.hyperaware.conference.eventmobi.model.EmCompaniesSectionResponse;
+import com.hyperaware.conference.eventmobi.model.EmCompanyItem;
+import com.hyperaware.conference.eventmobi.model.EmEvent;
+import com.hyperaware.conference.eventmobi.model.EmEventResponse;
+import com.hyperaware.conference.eventmobi.model.EmItem;
+import com.hyperaware.conference.eventmobi.model.EmMapItem;
+import com.hyperaware.conference.eventmobi.model.EmMapsSectionResponse;
+import com.hyperaware.conference.eventmobi.model.EmPersonItem;
+import com.hyperaware.conference.eventmobi.model.EmSection;
+import com.hyperaware.conference.eventmobi.model.EmSectionResponse;
+import com.hyperaware.conference.eventmobi.model.EmSpeakerItem;
+import com.hyperaware.conference.eventmobi.model.EmSpeakersSectionResponse;
+
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hand-written TypeAdapters for every class in the Eventmobi model, so
+ * that gson doesn't have to bind fields reflectively.  Field names follow
+ * the @SerializedName annotations on the model classes.  Unknown fields
+ * are skipped, and null fields are left unset (and not written).
+ */
+
+public class EmTypeAdapterFactory implements TypeAdapterFactory {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        final Class<? super T> raw = type.getRawType();
+        final TypeAdapter<?> adapter;
+
+        if (raw == EmAgendaItem.class) {
+            adapter = new AgendaItemAdapter();
+        }
+        else if (raw == EmSpeakerItem.class) {
+            adapter = new SpeakerItemAdapter();
+        }
+        else if (raw == EmAttendeeItem.class) {
+            adapter = new AttendeeItemAdapter();
+        }
+        else if (raw == EmCompanyItem.class) {
+            adapter = new CompanyItemAdapter();
+        }
+        else if (raw == EmMapItem.class) {
+            adapter = new MapItemAdapter(gson.getAdapter(Boolean.class));
+        }
+        else if (raw == EmSection.class) {
+            adapter = new SectionAdapter<>(itemAdapter(gson, type.getType()));
+        }
+        else if (raw == EmEvent.class) {
+            adapter = new EventAdapter();
+        }
+        else if (raw == EmEventResponse.class) {
+            adapter = new EventResponseAdapter(gson.getAdapter(EmEvent.class));
+        }
+        else if (raw == EmAgendaSectionResponse.class) {
+            adapter = new SectionResponseAdapter<EmAgendaItem, EmAgendaSectionResponse>(
+                gson.getAdapter(EmAgendaItem.class)) {
+                @Override
+                protected EmAgendaSectionResponse newResponse() {
+                    return new EmAgendaSectionResponse();
+                }
+            };
+        }
+        else if (raw == EmSpeakersSectionResponse.class) {
+            adapter = new SectionResponseAdapter<EmSpeakerItem, EmSpeakersSectionResponse>(
+                gson.getAdapter(EmSpeakerItem.class)) {
+                @Override
+                protected EmSpeakersSectionResponse newResponse() {
+                    return new EmSpeakersSectionResponse();
+                }
+            };
+        }
+        else if (raw == EmAttendeesSectionResponse.class) {
+            adapter = new SectionResponseAdapter<EmAttendeeItem, EmAttendeesSectionResponse>(
+                gson.getAdapter(EmAttendeeItem.class)) {
+                @Override
+                protected EmAttendeesSectionResponse newResponse() {
+                    return new EmAttendeesSectionResponse();
+                }
+            };
+        }
+        else if (raw == EmMapsSectionResponse.class) {
+            adapter = new SectionResponseAdapter<EmMapItem, EmMapsSectionResponse>(
+                gson.getAdapter(EmMapItem.class)) {
+                @Override
+                protected EmMapsSectionResponse newResponse() {
+                    return new EmMapsSectionResponse();
+                }
+            };
+        }
+        else if (raw == EmCompaniesSectionResponse.class) {
+            adapter = new SectionResponseAdapter<EmCompanyItem, EmCompaniesSectionResponse>(
+                gson.getAdapter(EmCompanyItem.class)) {
+                @Override
+                protected EmCompaniesSectionResponse newResponse() {
+                    return new EmCompaniesSectionResponse();
+                }
+            };
+        }
+        else {
+            return null;
+        }
+
+        return (TypeAdapter<T>) adapter.nullSafe();
+    }
+
+    /**
+     * Finds the adapter for the items of an EmSection<T>, or null if the
+     * item type isn't known (e.g. the raw sections listed in an EmEvent),
+     * in which case items are skipped.
+     */
+    @SuppressWarnings("unchecked")
+    private static TypeAdapter<EmItem> itemAdapter(final Gson gson, final Type sectionType) {
+        if (sectionType instanceof ParameterizedType) {
+            final Type itemType = ((ParameterizedType) sectionType).getActualTypeArguments()[0];
+            if (itemType instanceof Class && EmItem.class.isAssignableFrom((Class<?>) itemType)) {
+                return (TypeAdapter<EmItem>) gson.getAdapter((Class<?>) itemType);
+            }
+        }
+        return null;
+    }
+
+    //
+    // Responses
+    //
+
+    private static class EventResponseAdapter extends TypeAdapter<EmEventResponse> {
+        private final TypeAdapter<EmEvent> eventAdapter;
+
+        public EventResponseAdapter(TypeAdapter<EmEvent> eventAdapter) {
+            this.eventAdapter = eventAdapter;
+        }
+
+        @Override
+        public EmEventResponse read(JsonReader in) throws IOException {
+            final EmEventResponse response = new EmEventResponse();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                case "status":
+                    response.setStatus(nextString(in));
+                    break;
+                case "response":
+                    response.setResponse(eventAdapter.read(in));
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+                }
+            }
+            in.endObject();
+            return response;
+        }
+
+        @Override
+        public void write(JsonWriter out, EmEventResponse response) throws IOException {
+            out.beginObject();
+            writeString(out, "status", response.getStatus());
+            if (response.getResponse() != null) {
+                out.name("response");
+                eventAdapter.write(out, response.getResponse());
+            }
+            out.endObject();
+        }
+    }
+
+    private static abstract class SectionResponseAdapter<T extends EmItem, R extends EmSectionResponse<T>>
+        extends TypeAdapter<R> {
+
+        private final TypeAdapter<EmSection<T>> sectionAdapter;
+
+        public SectionResponseAdapter(TypeAdapter<T> itemAdapter) {
+            this.sectionAdapter = new SectionAdapter<>(itemAdapter).nullSafe();
+        }
+
+        protected abstract R newResponse();
+
+        @Override
+        public R read(JsonReader in) throws IOException {
+            final R response = newResponse();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                case "status":
+                    response.setStatus(nextString(in));
+                    break;
+                case "response":
+                    response.setSection(sectionAdapter.read(in));
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+                }
+            }
+            in.endObject();
+            return response;
+        }
+
+        @Override
+        public void write(JsonWriter out, R response) throws IOException {
+            out.beginObject();
+            writeString(out, "status", response.getStatus());
+            if (response.getSection() != null) {
+                out.name("response");
+                sectionAdapter.write(out, response.getSection());
+            }
+            out.endObject();
+        }
+    }
+
+    //
+    // Event and sections
+    //
+
+    private static class EventAdapter extends TypeAdapter<EmEvent> {
+        // EmEvent only lists sections by their raw type, and they don't
+        // carry items.
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private final TypeAdapter<EmSection> sectionAdapter =
+            (TypeAdapter) new SectionAdapter<EmItem>(null).nullSafe();
+
+        @Override
+        public EmEvent read(JsonReader in) throws IOException {
+            final EmEvent event = new EmEvent();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                case "id":
+                    event.setId(nextString(in));
+                    break;
+                case "event_name":
+                    event.setName(nextString(in));
+                    break;
+                case "event_name_full":
+                    event.setFullName(nextString(in));
+                    break;
+                case "location_name":
+                    event.setLocationName(nextString(in));
+                    break;
+                case "location_address":
+                    event.setLocationAddress(nextString(in));
+                    break;
+                case "event_website":
+                    event.setWebsite(nextString(in));
+                    break;
+                case "timezone_name":
+                    event.setTimezoneName(nextString(in));
+                    break;
+                case "event_description":
+                    event.setDescription(nextString(in));
+                    break;
+                case "sections":
+                    event.setSections(readList(in, sectionAdapter));
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+                }
+            }
+            in.endObject();
+            return event;
+        }
+
+        @Override
+        public void write(JsonWriter out, EmEvent event) throws IOException {
+            out.beginObject();
+            writeString(out, "id", event.getId());
+            writeString(out, "event_name", event.getName());
+            writeString(out, "event_name_full", event.getFullName());
+            writeString(out, "location_name", event.getLocationName());
+            writeString(out, "location_address", event.getLocationAddress());
+            writeString(out, "event_website", event.getWebsite());
+            writeString(out, "timezone_name", event.getTimezoneName());
+            writeString(out, "event_description", event.getDescription());
+            writeList(out, "sections", event.getSections(), sectionAdapter);
+            out.endObject();
+        }
+    }
+
+    private static class SectionAdapter<T extends EmItem> extends TypeAdapter<EmSection<T>> {
+        private final TypeAdapter<T> itemAdapter;
+
+        /**
+         * @param itemAdapter adapter for the section's items, or null to
+         *     skip them
+         */
+        public SectionAdapter(TypeAdapter<T> itemAdapter) {
+            this.itemAdapter = itemAdapter;
+        }
+
+        @Override
+        public EmSection<T> read(JsonReader in) throws IOException {
+            final EmSection<T> section = new EmSection<>();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                case "id":
+                    section.setId(nextString(in));
+                    break;
+                case "event_id":
+                    section.setEventId(nextString(in));
+                    break;
+                case "name":
+                    section.setName(nextString(in));
+                    break;
+                case "type":
+                    section.setType(nextString(in));
+                    break;
+                case "url":
+                    section.setUrl(nextString(in));
+                    break;
+                case "items":
+                    if (itemAdapter != null) {
+                        section.setItems(readList(in, itemAdapter));
+                    }
+                    else {
+                        in.skipValue();
+                    }
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+                }
+            }
+            in.endObject();
+            return section;
+        }
+
+        @Override
+        public void write(JsonWriter out, EmSection<T> section) throws IOException {
+            out.beginObject();
+            writeString(out, "id", section.getId());
+            writeString(out, "event_id", section.getEventId());
+            writeString(out, "name", section.getName());
+            writeString(out, "type", section.getType());
+            writeString(out, "url", section.getUrl());
+            if (itemAdapter != null) {
+                writeList(out, "items", section.getItems(), itemAdapter);
+            }
+            out.endObject();
+        }
+    }
+
+    //
+    // Items
+    //
+
+    private static class AgendaItemAdapter extends TypeAdapter<EmAgendaItem> {
+        @Override
+        public EmAgendaItem read(JsonReader in) throws IOException {
+            final EmAgendaItem item = new EmAgendaItem();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                case "id":
+                    item.setId(nextString(in));
+                    break;
+                case "topic":
+                    item.setTopic(nextString(in));
+                    break;
+                case "description":
+                    item.setDescription(nextString(in));
+                    break;
+                case "location":
+                    item.setLocation(nextString(in));
+                    break;
+                case "date_t":
+                    item.setRawDate(nextLong(in, item.getRawDate()));
+                    break;
+                case "start_time_t":
+                    item.setEpochStartTime(nextLong(in, item.getEpochStartTime()));
+                    break;
+                case "end_time_t":
+                    item.setEpochEndTime(nextLong(in, item.getEpochEndTime()));
+                    break;
+                case "group_ids":
+                    item.setGroupIds(nextStringList(in));
+                    break;
+                case "speaker_ids":
+                    item.setSpeakerIds(nextStringList(in));
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+                }
+            }
+            in.endObject();
+            return item;
+        }
+
+        @Override
+        public void write(JsonWriter out, EmAgendaItem item) throws IOException {
+            out.beginObject();
+            writeString(out, "id", item.getId());
+            writeString(out, "topic", item.getTopic());
+            writeString(out, "description", item.getDescription());
+            writeString(out, "location", item.getLocation());
+            out.name("date_t").value(item.getRawDate());
+            out.name("start_time_t").value(item.getEpochStartTime());
+            out.name("end_time_t").value(item.getEpochEndTime());
+            writeStringList(out, "group_ids", item.getGroupIds());
+            writeStringList(out, "speaker_ids", item.getSpeakerIds());
+            out.endObject();
+        }
+    }
+
+    private static class SpeakerItemAdapter extends TypeAdapter<EmSpeakerItem> {
+        @Override
+        public EmSpeakerItem read(JsonReader in) throws IOException {
+            final EmSpeakerItem item = new EmSpeakerItem();
+            in.beginObject();
+            while (in.hasNext()) {
+                final String name = in.nextName();
+                if ("position".equals(name)) {
+                    item.setPosition(nextInt(in, item.getPosition()));
+                }
+                else if (!readPersonField(in, name, item)) {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return item;
+        }
+
+        @Override
+        public void write(JsonWriter out, EmSpeakerItem item) throws IOException {
+            out.beginObject();
+            writePersonFields(out, item);
+            out.name("position").value(item.getPosition());
+            out.endObject();
+        }
+    }
+
+    private static class AttendeeItemAdapter extends TypeAdapter<EmAttendeeItem> {
+        @Override
+        public EmAttendeeItem read(JsonReader in) throws IOException {
+            final EmAttendeeItem item = new EmAttendeeItem();
+            in.beginObject();
+            while (in.hasNext()) {
+                if (!readPersonField(in, in.nextName(), item)) {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return item;
+        }
+
+        @Override
+        public void write(JsonWriter out, EmAttendeeItem item) throws IOException {
+            out.beginObject();
+            writePersonFields(out, item);
+            out.endObject();
+        }
+    }
+
+    private static boolean readPersonField(JsonReader in, String name, EmPersonItem item) throws IOException {
+        switch (name) {
+        case "id":
+            item.setId(nextString(in));
+            return true;
+        case "first_name":
+            item.setName(nextString(in));
+            return true;
+        case "company_name":
+            item.setCompanyName(nextString(in));
+            return true;
+        case "title":
+            item.setTitle(nextString(in));
+            return true;
+        case "image50":
+            item.setImage50(nextString(in));
+            return true;
+        case "image100":
+            item.setImage100(nextString(in));
+            return true;
+        case "about":
+            item.setAbout(nextString(in));
+            return true;
+        case "website":
+            item.setWebsite(nextString(in));
+            return true;
+        case "facebook":
+            item.setFacebook(nextString(in));
+            return true;
+        case "twitter":
+            item.setTwitter(nextString(in));
+            return true;
+        case "linkedin":
+            item.setLinkedin(nextString(in));
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    private static void writePersonFields(JsonWriter out, EmPersonItem item) throws IOException {
+        writeString(out, "id", item.getId());
+        writeString(out, "first_name", item.getName());
+        writeString(out, "company_name", item.getCompanyName());
+        writeString(out, "title", item.getTitle());
+        writeString(out, "image50", item.getImage50());
+        writeString(out, "image100", item.getImage100());
+        writeString(out, "about", item.getAbout());
+        writeString(out, "website", item.getWebsite());
+        writeString(out, "facebook", item.getFacebook());
+        writeString(out, "twitter", item.getTwitter());
+        writeString(out, "linkedin", item.getLinkedin());
+    }
+
+    private static class CompanyItemAdapter extends TypeAdapter<EmCompanyItem> {
+        @Override
+        public EmCompanyItem read(JsonReader in) throws IOException {
+            final EmCompanyItem item = new EmCompanyItem();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                case "id":
+                    item.setId(nextString(in));
+                    break;
+                case "name":
+                    item.setName(nextString(in));
+                    break;
+                case "description":
+                    item.setDescription(nextString(in));
+                    break;
+                case "position":
+                    item.setPosition(nextInt(in, item.getPosition()));
+                    break;
+                case "booth":
+                    item.setBooth(nextString(in));
+                    break;
+                case "location":
+                    item.setLocation(nextString(in));
+                    break;
+                case "logo_large":
+                    item.setLogoLarge(nextString(in));
+                    break;
+                case "logo_large_wide":
+                    item.setLogoLargeWide(nextString(in));
+                    break;
+                case "logo_small":
+                    item.setLogoSmall(nextString(in));
+                    break;
+                case "logo_small_wide":
+                    item.setLogoSmallWide(nextString(in));
+                    break;
+                case "website":
+                    item.setWebsite(nextString(in));
+                    break;
+                case "facebook":
+                    item.setFacebook(nextString(in));
+                    break;
+                case "twitter":
+                    item.setTwitter(nextString(in));
+                    break;
+                case "linkedin":
+                    item.setLinkedin(nextString(in));
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+                }
+            }
+            in.endObject();
+            return item;
+        }
+
+        @Override
+        public void write(JsonWriter out, EmCompanyItem item) throws IOException {
+            out.beginObject();
+            writeString(out, "id", item.getId());
+            writeString(out, "name", item.getName());
+            writeString(out, "description", item.getDescription());
+            out.name("position").value(item.getPosition());
+            writeString(out, "booth", item.getBooth());
+            writeString(out, "location", item.getLocation());
+            writeString(out, "logo_large", item.getLogoLarge());
+            writeString(out, "logo_large_wide", item.getLogoLargeWide());
+            writeString(out, "logo_small", item.getLogoSmall());
+            writeString(out, "logo_small_wide", item.getLogoSmallWide());
+            writeString(out, "website", item.getWebsite());
+            writeString(out, "facebook", item.getFacebook());
+            writeString(out, "twitter", item.getTwitter());
+            writeString(out, "linkedin", item.getLinkedin());
+            out.endObject();
+        }
+    }
+
+    private static class MapItemAdapter extends TypeAdapter<EmMapItem> {
+        private final TypeAdapter<Boolean> booleanAdapter;
+
+        public MapItemAdapter(TypeAdapter<Boolean> booleanAdapter) {
+            this.booleanAdapter = booleanAdapter;
+        }
+
+        @Override
+        public EmMapItem read(JsonReader in) throws IOException {
+            final EmMapItem item = new EmMapItem();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                case "id":
+                    item.setId(nextString(in));
+                    break;
+                case "name":
+                    item.setName(nextString(in));
+                    break;
+                case "filename":
+                    item.setFilename(nextString(in));
+                    break;
+                case "is_google_map":
+                    final Boolean b = booleanAdapter.read(in);
+                    if (b != null) {
+                        item.setIsGoogleMap(b);
+                    }
+                    break;
+                case "google_map_url":
+                    item.setGoogleMapUrl(nextString(in));
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+                }
+            }
+            in.endObject();
+            return item;
+        }
+
+        @Override
+        public void write(JsonWriter out, EmMapItem item) throws IOException {
+            out.beginObject();
+            writeString(out, "id", item.getId());
+            writeString(out, "name", item.getName());
+            writeString(out, "filename", item.getFilename());
+            out.name("is_google_map");
+            booleanAdapter.write(out, item.isGoogleMap());
+            writeString(out, "google_map_url", item.getGoogleMapUrl());
+            out.endObject();
+        }
+    }
+
+    //
+    // Primitives, which follow gson's lenient conventions: numbers may be
+    // given as strings and vice versa.
+    //
+
+    private static String nextString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    private static long nextLong(JsonReader in, long defaultValue) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return defaultValue;
+        }
+        return in.nextLong();
+    }
+
+    private static int nextInt(JsonReader in, int defaultValue) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return defaultValue;
+        }
+        return in.nextInt();
+    }
+
+    private static List<String> nextStringList(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        final ArrayList<String> list = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            list.add(nextString(in));
+        }
+        in.endArray();
+        return list;
+    }
+
+    private static <T> List<T> readList(JsonReader in, TypeAdapter<T> adapter) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        final ArrayList<T> list = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            list.add(adapter.read(in));
+        }
+        in.endArray();
+        return list;
+    }
+
+    private static void writeString(JsonWriter out, String name, String value) throws IOException {
+        if (value != null) {
+            out.name(name).value(value);
+        }
+    }
+
+    private static void writeStringList(JsonWriter out, String name, List<String> values) throws IOException {
+        if (values != null) {
+            out.name(name).beginArray();
+            for (final String value : values) {
+                out.value(value);
+            }
+            out.endArray();
+        }
+    }
+
+    private static <T> void writeList(JsonWriter out, String name, List<T> values, TypeAdapter<T> adapter)
+        throws IOException {
+        if (values != null) {
+            out.name(name).beginArray();
+            for (final T value : values) {
+                adapter.write(out, value);
+            }
+            out.endArray();
+        }
+    }
+
+}
@@ -16,36 +16,50 @@
 
 package com.hyperaware.conference.eventmobi.parser.gson;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.hyperaware.conference.mechanics.FetchListener;
 import com.hyperaware.conference.mechanics.ParseException;
 import com.hyperaware.conference.mechanics.Parser;
+import com.hyperaware.conference.mechanics.TimedInputStream;
 
 import java.io.InputStream;
 import java.io.InputStreamReader;
 
+/**
+ * Parser that binds the whole stream to a single object with the shared
+ * Gson instance.  If given a FetchListener, it reports the time spent
+ * parsing, less any time spent blocked reading a TimedInputStream.
+ */
+
 public class GsonParser<T> implements Parser<T> {
 
     private final Class<T> clazz;
+    private final FetchListener listener;
+    private final String name;
 
     public GsonParser(Class<T> clazz) {
+        this(clazz, null, null);
+    }
+
+    public GsonParser(Class<T> clazz, FetchListener listener, String name) {
         this.clazz = clazz;
+        this.listener = listener;
+        this.name = name;
     }
 
     @Override
     public T parse(InputStream is) throws ParseException {
+        final long start = System.nanoTime();
+        final long readStart = TimedInputStream.readNanosOf(is);
         try {
-            final GsonBuilder gb = new GsonBuilder();
-            // Eventmobi serializes booleans as integer strings!  Yuck!
-            final BooleanDeserializer bs = new BooleanDeserializer();
-            gb.registerTypeAdapter(boolean.class, bs);
-            gb.registerTypeAdapter(Boolean.class, bs);
-            final Gson gson = gb.create();
-            final T response = gson.fromJson(
+            final T response = GsonParserConstants.GSON.fromJson(
                 new InputStreamReader(is, GsonParserConstants.CHARSET),
                 clazz
             );
             if (response != null) {
+                if (listener != null) {
+                    final long readNanos = TimedInputStream.readNanosOf(is) - readStart;
+                    listener.onTiming(name, FetchListener.STAGE_PARSE, System.nanoTime() - start - readNanos);
+                }
                 return response;
             }
             else {
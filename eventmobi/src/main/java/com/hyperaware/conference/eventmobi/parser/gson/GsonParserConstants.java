@@ -16,10 +16,25 @@
 
 package com.hyperaware.conference.eventmobi.parser.gson;
 
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
 import java.nio.charset.Charset;
 
 public class GsonParserConstants {
 
     public static final Charset CHARSET = Charset.forName("UTF-8");
 
+    /**
+     * Gson instances are thread safe and expensive to build, so all parsers
+     * share this one.  It knows how to (de)serialize every class in the
+     * Eventmobi model without reflection.
+     */
+    public static final Gson GSON = new GsonBuilder()
+        // Eventmobi serializes booleans as integer strings!  Yuck!
+        .registerTypeAdapter(boolean.class, new BooleanTypeAdapter())
+        .registerTypeAdapter(Boolean.class, new BooleanTypeAdapter())
+        .registerTypeAdapterFactory(new EmTypeAdapterFactory())
+        .create();
+
 }
@@ -18,6 +18,7 @@ package com.hyperaware.conference.eventmobi.parser.gson;
 
 import com.hyperaware.conference.eventmobi.model.EmItem;
 import com.hyperaware.conference.eventmobi.model.EmSectionResponse;
+import com.hyperaware.conference.mechanics.FetchListener;
 
 /**
  * Generic parser for all kinds of sections.  Since gson can't handle generics
@@ -34,4 +35,8 @@ public class GsonSectionResponseParser<T extends EmItem, R extends EmSectionResp
         super(clazz);
     }
 
+    public GsonSectionResponseParser(Class<R> clazz, FetchListener listener, String name) {
+        super(clazz, listener, name);
+    }
+
 }
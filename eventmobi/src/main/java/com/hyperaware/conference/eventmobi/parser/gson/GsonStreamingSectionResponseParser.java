@@ -0,0 +1,194 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.eventmobi.parser.gson;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.hyperaware.conference.eventmobi.model.EmItem;
+import com.hyperaware.conference.eventmobi.model.EmSection;
+import com.hyperaware.conference.eventmobi.model.EmSectionResponse;
+import com.hyperaware.conference.eventmobi.parser.ItemSink;
+import com.hyperaware.conference.mechanics.FetchListener;
+import com.hyperaware.conference.mechanics.ParseException;
+import com.hyperaware.conference.mechanics.Parser;
+import com.hyperaware.conference.mechanics.TimedInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Collections;
+
+/**
+ * Section parser that walks the response with a JsonReader and hands each
+ * item to an ItemSink as soon as it's decoded, instead of collecting them
+ * all into a list.  The returned response carries the section's metadata
+ * and an empty item list.
+ *
+ * Note that the section's metadata (e.g. event_id) may appear after the
+ * items in the document, so it's only guaranteed to be available once
+ * parsing is complete.
+ *
+ * Like GsonSectionResponseParser, this is a Parser of the specific response
+ * type so that it can be used with StreamingFetcher for that type.
+ *
+ * If given a FetchListener, it reports the time spent in the sink
+ * separately from the time spent parsing, and neither includes time spent
+ * blocked reading a TimedInputStream.
+ *
+ * @param <T> the type of section items
+ * @param <R> the type of response that is expected from the input stream
+ */
+
+public class GsonStreamingSectionResponseParser<T extends EmItem, R extends EmSectionResponse<T>>
+    implements Parser<R> {
+
+    private final Class<R> responseClass;
+    private final ItemSink<? super T> sink;
+    private final TypeAdapter<T> itemAdapter;
+    private final FetchListener listener;
+    private final String name;
+    private long sinkNanos;
+
+    public GsonStreamingSectionResponseParser(Class<R> responseClass, Class<T> itemClass, ItemSink<? super T> sink) {
+        this(responseClass, itemClass, sink, null, null);
+    }
+
+    public GsonStreamingSectionResponseParser(
+        Class<R> responseClass, Class<T> itemClass, ItemSink<? super T> sink, FetchListener listener, String name) {
+        this.responseClass = responseClass;
+        this.sink = sink;
+        this.itemAdapter = GsonParserConstants.GSON.getAdapter(itemClass);
+        this.listener = listener;
+        this.name = name;
+    }
+
+    @Override
+    public R parse(InputStream is) throws ParseException {
+        final long start = System.nanoTime();
+        final long readStart = TimedInputStream.readNanosOf(is);
+        sinkNanos = 0;
+        try {
+            final JsonReader reader = new JsonReader(new InputStreamReader(is, GsonParserConstants.CHARSET));
+            reader.setLenient(true);
+            if (reader.peek() == JsonToken.END_DOCUMENT) {
+                throw new ParseException("Reader at EOF");
+            }
+
+            final R response = responseClass.getDeclaredConstructor().newInstance();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                final String name = reader.nextName();
+                if ("status".equals(name)) {
+                    response.setStatus(nextStringOrNull(reader));
+                }
+                else if ("response".equals(name)) {
+                    response.setSection(readSection(reader));
+                }
+                else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            // Read through to the end like Gson.fromJson does, so that
+            // streams which act on reaching EOF (caching, recording) see it
+            if (reader.peek() != JsonToken.END_DOCUMENT) {
+                throw new ParseException("Unexpected content after response");
+            }
+
+            if (listener != null) {
+                final long readNanos = TimedInputStream.readNanosOf(is) - readStart;
+                listener.onTiming(name, FetchListener.STAGE_PARSE, System.nanoTime() - start - readNanos - sinkNanos);
+                listener.onTiming(name, FetchListener.STAGE_SINK, sinkNanos);
+            }
+            return response;
+        }
+        catch (ParseException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            throw new ParseException(e);
+        }
+    }
+
+    private EmSection<T> readSection(final JsonReader reader) throws IOException, ParseException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+
+        final EmSection<T> section = new EmSection<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            switch (name) {
+            case "id":
+                section.setId(nextStringOrNull(reader));
+                break;
+            case "event_id":
+                section.setEventId(nextStringOrNull(reader));
+                break;
+            case "name":
+                section.setName(nextStringOrNull(reader));
+                break;
+            case "type":
+                section.setType(nextStringOrNull(reader));
+                break;
+            case "url":
+                section.setUrl(nextStringOrNull(reader));
+                break;
+            case "items":
+                readItems(reader);
+                break;
+            default:
+                reader.skipValue();
+                break;
+            }
+        }
+        reader.endObject();
+
+        section.setItems(Collections.<T>emptyList());
+        return section;
+    }
+
+    private void readItems(final JsonReader reader) throws IOException, ParseException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return;
+        }
+
+        reader.beginArray();
+        while (reader.hasNext()) {
+            final T item = itemAdapter.read(reader);
+            if (item != null) {
+                final long start = System.nanoTime();
+                sink.accept(item);
+                sinkNanos += System.nanoTime() - start;
+            }
+        }
+        reader.endArray();
+    }
+
+    private static String nextStringOrNull(final JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+
+}
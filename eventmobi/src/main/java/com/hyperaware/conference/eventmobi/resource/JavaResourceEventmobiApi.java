@@ -20,13 +20,16 @@ import com.hyperaware.conference.mechanics.Fetcher;
 import com.hyperaware.conference.eventmobi.EventmobiApi;
 import com.hyperaware.conference.mechanics.StreamingFetcher;
 import com.hyperaware.conference.eventmobi.model.EmAgendaSectionResponse;
+import com.hyperaware.conference.eventmobi.model.EmAttendeeItem;
 import com.hyperaware.conference.eventmobi.model.EmAttendeesSectionResponse;
 import com.hyperaware.conference.eventmobi.model.EmCompaniesSectionResponse;
 import com.hyperaware.conference.eventmobi.model.EmEventResponse;
 import com.hyperaware.conference.eventmobi.model.EmMapsSectionResponse;
 import com.hyperaware.conference.eventmobi.model.EmSpeakersSectionResponse;
+import com.hyperaware.conference.eventmobi.parser.ItemSink;
 import com.hyperaware.conference.eventmobi.parser.gson.GsonParser;
 import com.hyperaware.conference.eventmobi.parser.gson.GsonSectionResponseParser;
+import com.hyperaware.conference.eventmobi.parser.gson.GsonStreamingSectionResponseParser;
 
 public class JavaResourceEventmobiApi implements EventmobiApi {
 
@@ -74,6 +77,14 @@ public class JavaResourceEventmobiApi implements EventmobiApi {
             new GsonSectionResponseParser<>(EmAttendeesSectionResponse.class));
     }
 
+    @Override
+    public Fetcher<EmAttendeesSectionResponse> getAttendeesSectionFetcher(ItemSink<? super EmAttendeeItem> sink) {
+        return new StreamingFetcher<>(
+            new JavaResourceStreamer(sectionAttendees),
+            new GsonStreamingSectionResponseParser<>(
+                EmAttendeesSectionResponse.class, EmAttendeeItem.class, sink));
+    }
+
     @Override
     public Fetcher<EmMapsSectionResponse> getMapsSectionFetcher() {
         return new StreamingFetcher<>(
@@ -88,4 +99,8 @@ public class JavaResourceEventmobiApi implements EventmobiApi {
             new GsonSectionResponseParser<>(EmCompaniesSectionResponse.class));
     }
 
+    @Override
+    public void close() {
+    }
+
 }
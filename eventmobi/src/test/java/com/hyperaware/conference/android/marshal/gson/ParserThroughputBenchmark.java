@@ -0,0 +1,90 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.android.marshal.gson;
+
+import com.hyperaware.conference.eventmobi.model.EmAgendaSectionResponse;
+import com.hyperaware.conference.eventmobi.model.EmAttendeesSectionResponse;
+import com.hyperaware.conference.eventmobi.model.EmCompaniesSectionResponse;
+import com.hyperaware.conference.eventmobi.model.EmEventResponse;
+import com.hyperaware.conference.eventmobi.model.EmMapsSectionResponse;
+import com.hyperaware.conference.eventmobi.model.EmSpeakersSectionResponse;
+import com.hyperaware.conference.eventmobi.parser.gson.GsonParser;
+import com.hyperaware.conference.eventmobi.parser.gson.GsonSectionResponseParser;
+import com.hyperaware.conference.mechanics.Parser;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Not a unit test.  Measures parse throughput for each of the sample
+ * Eventmobi responses in a directory, which defaults to the stubbed
+ * resources of the app module.  Run from the project root:
+ *
+ * java -cp ... com.hyperaware.conference.android.marshal.gson.ParserThroughputBenchmark [dir]
+ */
+
+public class ParserThroughputBenchmark {
+
+    private static final long WARMUP_NANOS = TimeUnit.SECONDS.toNanos(2);
+    private static final long MEASURE_NANOS = TimeUnit.SECONDS.toNanos(3);
+
+    public static void main(String[] args) throws Exception {
+        final File dir = new File(args.length > 0 ? args[0] : "app/src/stubbed/resources");
+
+        final Map<String, Parser<?>> parsers = new LinkedHashMap<>();
+        parsers.put("event.json", new GsonParser<>(EmEventResponse.class));
+        parsers.put("section_agenda.json", new GsonSectionResponseParser<>(EmAgendaSectionResponse.class));
+        parsers.put("section_speakers.json", new GsonSectionResponseParser<>(EmSpeakersSectionResponse.class));
+        parsers.put("section_attendees.json", new GsonSectionResponseParser<>(EmAttendeesSectionResponse.class));
+        parsers.put("section_maps.json", new GsonSectionResponseParser<>(EmMapsSectionResponse.class));
+        parsers.put("section_companies.json", new GsonSectionResponseParser<>(EmCompaniesSectionResponse.class));
+
+        for (final Map.Entry<String, Parser<?>> entry : parsers.entrySet()) {
+            final File file = new File(dir, entry.getKey());
+            if (!file.isFile()) {
+                System.out.println(entry.getKey() + ": not found, skipping");
+                continue;
+            }
+            final byte[] bytes = FileUtils.readFileToByteArray(file);
+            run(entry.getValue(), bytes, WARMUP_NANOS);
+            final long[] result = run(entry.getValue(), bytes, MEASURE_NANOS);
+            final long count = result[0];
+            final double seconds = result[1] / 1e9;
+            System.out.println(String.format(
+                "%-24s %8d bytes %10.0f parses/s %8.1f MB/s",
+                entry.getKey(), bytes.length, count / seconds, count * bytes.length / seconds / (1024 * 1024)));
+        }
+    }
+
+    private static long[] run(final Parser<?> parser, final byte[] bytes, final long duration) throws Exception {
+        final long start = System.nanoTime();
+        long count = 0;
+        long elapsed;
+        do {
+            parser.parse(new ByteArrayInputStream(bytes));
+            count++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < duration);
+        return new long[] { count, elapsed };
+    }
+
+}
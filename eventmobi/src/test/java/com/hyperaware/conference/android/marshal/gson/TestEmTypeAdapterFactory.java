@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.android.marshal.gson;
+
+import com.hyperaware.conference.eventmobi.model.EmAgendaItem;
+import com.hyperaware.conference.eventmobi.model.EmAgendaSectionResponse;
+import com.hyperaware.conference.eventmobi.model.EmMapItem;
+import com.hyperaware.conference.eventmobi.model.EmMapsSectionResponse;
+import com.hyperaware.conference.eventmobi.parser.gson.GsonParserConstants;
+
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestEmTypeAdapterFactory {
+
+    @Test
+    public void testAgendaRoundTrip() throws Exception {
+        final EmAgendaSectionResponse original = read("/section_agenda.json", EmAgendaSectionResponse.class);
+        final String json = GsonParserConstants.GSON.toJson(original);
+        final EmAgendaSectionResponse copy =
+            GsonParserConstants.GSON.fromJson(json, EmAgendaSectionResponse.class);
+
+        assertEquals(original.getStatus(), copy.getStatus());
+        assertEquals(original.getSection().getId(), copy.getSection().getId());
+        assertEquals(original.getSection().getEventId(), copy.getSection().getEventId());
+
+        final List<EmAgendaItem> originalItems = original.getSection().getItems();
+        final List<EmAgendaItem> copyItems = copy.getSection().getItems();
+        assertEquals(originalItems.size(), copyItems.size());
+        for (int i = 0; i < originalItems.size(); i++) {
+            final EmAgendaItem a = originalItems.get(i);
+            final EmAgendaItem b = copyItems.get(i);
+            assertEquals(a.getId(), b.getId());
+            assertEquals(a.getTopic(), b.getTopic());
+            assertEquals(a.getDescription(), b.getDescription());
+            assertEquals(a.getEpochStartTime(), b.getEpochStartTime());
+            assertEquals(a.getEpochEndTime(), b.getEpochEndTime());
+            assertEquals(a.getSpeakerIds(), b.getSpeakerIds());
+        }
+    }
+
+    @Test
+    public void testMapsBooleanRoundTrip() throws Exception {
+        final EmMapsSectionResponse original = read("/section_maps.json", EmMapsSectionResponse.class);
+        final String json = GsonParserConstants.GSON.toJson(original);
+        assertTrue(json.contains("\"is_google_map\":\"1\""));
+        assertTrue(json.contains("\"is_google_map\":\"0\""));
+
+        final List<EmMapItem> items =
+            GsonParserConstants.GSON.fromJson(json, EmMapsSectionResponse.class).getSection().getItems();
+        assertFalse(items.get(0).isGoogleMap());
+        assertTrue(items.get(1).isGoogleMap());
+    }
+
+    @Test
+    public void testNullsAndUnknownFields() throws Exception {
+        final String json = "{\"id\":12,\"topic\":null,\"bogus\":{\"a\":[1,2]},\"start_time_t\":\"42\"}";
+        final EmAgendaItem item = GsonParserConstants.GSON.fromJson(json, EmAgendaItem.class);
+        assertEquals("12", item.getId());
+        assertNull(item.getTopic());
+        assertEquals(42, item.getEpochStartTime());
+        assertNull(item.getSpeakerIds());
+    }
+
+    private <T> T read(String resource, Class<T> clazz) throws Exception {
+        try (InputStream is = getClass().getResourceAsStream(resource)) {
+            return GsonParserConstants.GSON.fromJson(new InputStreamReader(is, GsonParserConstants.CHARSET), clazz);
+        }
+    }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.eventmobi;
+
+import com.hyperaware.conference.eventmobi.file.FileEventmobiApi;
+import com.hyperaware.conference.eventmobi.model.EmAgendaItem;
+import com.hyperaware.conference.eventmobi.model.EmAllEventData;
+import com.hyperaware.conference.mechanics.FetchException;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+public class TestEventDataLoader {
+
+    private static final String SECTION_FORMAT =
+        "{ \"status\": \"success\", \"response\": { \"id\": %s, \"name\": \"%s\", \"items\": [ %s ] } }";
+
+    private File dir;
+    private ForkJoinPool pool;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = File.createTempFile("capture", "");
+        dir.delete();
+        dir.mkdirs();
+        pool = new ForkJoinPool(2);
+
+        copyResource("/event.json", FileEventmobiApi.EVENT);
+        copyResource("/section_agenda.json", FileEventmobiApi.AGENDA);
+        copyResource("/section_speakers.json", FileEventmobiApi.SPEAKERS);
+        copyResource("/section_maps.json", FileEventmobiApi.MAPS);
+        writeSection(FileEventmobiApi.ATTENDEES, "1", "Attendees",
+            "{ \"id\": \"a2\", \"first_name\": \"Zed\" }, { \"id\": \"a1\", \"first_name\": \"Amy\" }");
+        writeSection(FileEventmobiApi.COMPANIES, "2", "Companies",
+            "{ \"id\": \"c1\", \"name\": \"A Company\" }");
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdown();
+        FileUtils.deleteQuietly(dir);
+    }
+
+    private void copyResource(String resource, String name) throws Exception {
+        final InputStream is = getClass().getResourceAsStream(resource);
+        final FileOutputStream os = new FileOutputStream(new File(dir, FileEventmobiApi.fileNameFor(name)));
+        IOUtils.copy(is, os);
+        is.close();
+        os.close();
+    }
+
+    private void writeSection(String name, String id, String title, String items) throws Exception {
+        final File file = new File(dir, FileEventmobiApi.fileNameFor(name));
+        FileUtils.writeStringToFile(file, String.format(SECTION_FORMAT, id, title, items), "UTF-8");
+    }
+
+    @Test
+    public void testLoad() throws Exception {
+        final EmAllEventData data = new EventDataLoader(new FileEventmobiApi(dir), pool).load();
+
+        assertNotNull(data.event);
+        assertEquals("122369", data.agendaSection.getId());
+        assertEquals(2, data.agendaItemsById.size());
+        assertEquals("Session 630808", data.agendaItemsById.get("630808").getTopic());
+
+        assertEquals(2, data.speakerItemsById.size());
+        assertEquals("2753081", data.sortedSpeakers.get(0).getId());
+        assertEquals("2753082", data.sortedSpeakers.get(1).getId());
+
+        assertEquals(2, data.attendeeItemsById.size());
+        assertEquals("Amy", data.sortedAttendees.get(0).getName());
+        assertEquals("Zed", data.sortedAttendees.get(1).getName());
+
+        assertEquals(1, data.companyItemsById.size());
+        assertEquals("A Company", data.companyItemsById.get("c1").getName());
+        assertNotNull(data.mapsSection);
+
+        final List<EmAgendaItem> sessions = data.speakersAgendaItems.get("2753086");
+        assertEquals(1, sessions.size());
+        assertEquals("630808", sessions.get(0).getId());
+        try {
+            sessions.clear();
+            fail();
+        }
+        catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    @Test
+    public void testAttendeesSortIgnoringCaseAndAccents() throws Exception {
+        writeSection(FileEventmobiApi.ATTENDEES, "1", "Attendees",
+            "{ \"id\": \"a1\", \"first_name\": \"zed\" }, " +
+            "{ \"id\": \"a2\" }, " +
+            "{ \"id\": \"a3\", \"first_name\": \"\u00c9mile\" }, " +
+            "{ \"id\": \"a4\", \"first_name\": \"Amy\" }, " +
+            "{ \"id\": \"a5\", \"first_name\": \"emile\" }");
+        final EmAllEventData data = new EventDataLoader(new FileEventmobiApi(dir), pool).load();
+
+        assertEquals(5, data.sortedAttendees.size());
+        assertEquals("a4", data.sortedAttendees.get(0).getId());
+        assertEquals("a3", data.sortedAttendees.get(1).getId());
+        assertEquals("a5", data.sortedAttendees.get(2).getId());
+        assertEquals("a1", data.sortedAttendees.get(3).getId());
+        assertEquals("a2", data.sortedAttendees.get(4).getId());
+    }
+
+    @Test
+    public void testMissingSectionFails() throws Exception {
+        new File(dir, FileEventmobiApi.fileNameFor(FileEventmobiApi.COMPANIES)).delete();
+        try {
+            new EventDataLoader(new FileEventmobiApi(dir), pool).load();
+            fail();
+        }
+        catch (FetchException expected) {
+        }
+    }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.eventmobi.file;
+
+import com.hyperaware.conference.eventmobi.model.EmMapsSectionResponse;
+import com.hyperaware.conference.eventmobi.parser.gson.GsonSectionResponseParser;
+import com.hyperaware.conference.eventmobi.resource.JavaResourceStreamer;
+import com.hyperaware.conference.mechanics.RecordingStreamer;
+import com.hyperaware.conference.mechanics.StreamingFetcher;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.fail;
+
+public class TestCaptureDirectory {
+
+    private File base;
+
+    @Before
+    public void setUp() throws Exception {
+        base = File.createTempFile("captures", "");
+        base.delete();
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(base);
+    }
+
+    @Test
+    public void testRecordAndReplay() throws Exception {
+        final File first = CaptureDirectory.create(base, "event");
+        final File second = CaptureDirectory.create(base, "event");
+        assertNotEquals(first, second);
+        assertEquals(second, CaptureDirectory.resolve(base));
+        assertEquals(first, CaptureDirectory.resolve(first));
+
+        // Record a fetch into the latest capture, as HttpEventmobiApi would
+        final File file = new File(second, FileEventmobiApi.fileNameFor(FileEventmobiApi.MAPS));
+        final EmMapsSectionResponse recorded = new StreamingFetcher<>(
+            new RecordingStreamer(new JavaResourceStreamer("/section_maps.json"), file),
+            new GsonSectionResponseParser<>(EmMapsSectionResponse.class)).fetch();
+
+        final EmMapsSectionResponse replayed =
+            new FileEventmobiApi(CaptureDirectory.resolve(base)).getMapsSectionFetcher().fetch();
+        assertEquals(recorded.getSection().getId(), replayed.getSection().getId());
+        assertEquals(recorded.getSection().getItems().size(), replayed.getSection().getItems().size());
+    }
+
+    @Test
+    public void testNoCaptures() throws Exception {
+        base.mkdirs();
+        try {
+            CaptureDirectory.resolve(base);
+            fail("Expected IOException");
+        }
+        catch (IOException e) {
+            // expected
+        }
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.eventmobi.file;
+
+import com.hyperaware.conference.eventmobi.model.EmAgendaSectionResponse;
+import com.hyperaware.conference.eventmobi.model.EmEventResponse;
+import com.hyperaware.conference.mechanics.FetchListener;
+import com.hyperaware.conference.mechanics.MetricsRegistry;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestFileEventmobiApi {
+
+    private File dir;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = File.createTempFile("capture", "");
+        dir.delete();
+        dir.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(dir);
+    }
+
+    private void copyResource(String resource, File to, boolean gzip) throws Exception {
+        final InputStream is = getClass().getResourceAsStream(resource);
+        OutputStream os = new FileOutputStream(to);
+        if (gzip) {
+            os = new GZIPOutputStream(os);
+        }
+        IOUtils.copy(is, os);
+        is.close();
+        os.close();
+    }
+
+    @Test
+    public void test() throws Exception {
+        copyResource("/event.json", new File(dir, FileEventmobiApi.fileNameFor(FileEventmobiApi.EVENT)), false);
+        copyResource("/section_agenda.json", new File(dir, FileEventmobiApi.fileNameFor(FileEventmobiApi.AGENDA)), true);
+
+        final MetricsRegistry metrics = new MetricsRegistry();
+        final FileEventmobiApi api = new FileEventmobiApi(dir, metrics);
+
+        // Sections don't need the event first
+        final EmAgendaSectionResponse agenda = api.getAgendaSectionFetcher().fetch();
+        assertEquals("122369", agenda.getSection().getId());
+        assertEquals(2, agenda.getSection().getItems().size());
+
+        final EmEventResponse event = api.getEventFetcher().fetch();
+        assertEquals("success", event.getStatus());
+
+        final long eventBytes = new File(dir, "event.json").length();
+        assertEquals(eventBytes, metrics.getBytes(FileEventmobiApi.EVENT, FetchListener.BYTES_BODY));
+        assertEquals(1, metrics.getHistogram(FileEventmobiApi.AGENDA, FetchListener.STAGE_PARSE).getCount());
+    }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.eventmobi.file;
+
+import com.hyperaware.conference.eventmobi.model.EmAgendaItem;
+import com.hyperaware.conference.eventmobi.model.EmAgendaSectionResponse;
+import com.hyperaware.conference.eventmobi.model.EmEvent;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestSyntheticEventGenerator {
+
+    private File dir;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = File.createTempFile("synthetic", "");
+        dir.delete();
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(dir);
+    }
+
+    @Test
+    public void testGeneratedEventParses() throws Exception {
+        final SyntheticEventGenerator generator = new SyntheticEventGenerator(30, 10, 50, 5, 2, 1);
+        generator.generate(dir);
+        final FileEventmobiApi api = new FileEventmobiApi(dir);
+
+        final EmEvent event = api.getEventFetcher().fetch().getResponse();
+        assertEquals(SyntheticEventGenerator.EVENT_ID, event.getId());
+        assertEquals(SyntheticEventGenerator.TIMEZONE_NAME, event.getTimezoneName());
+        assertEquals(5, event.getSections().size());
+
+        final EmAgendaSectionResponse agenda = api.getAgendaSectionFetcher().fetch();
+        assertEquals(30, agenda.getSection().getItems().size());
+        for (final EmAgendaItem item : agenda.getSection().getItems()) {
+            assertTrue(item.getEpochEndTime() > item.getEpochStartTime());
+        }
+        assertEquals(10, api.getSpeakersSectionFetcher().fetch().getSection().getItems().size());
+        assertEquals(50, api.getAttendeesSectionFetcher().fetch().getSection().getItems().size());
+        assertEquals(5, api.getCompaniesSectionFetcher().fetch().getSection().getItems().size());
+        assertEquals(2, api.getMapsSectionFetcher().fetch().getSection().getItems().size());
+    }
+
+    @Test
+    public void testRepeatable() throws Exception {
+        final File other = new File(dir, "other");
+        SyntheticEventGenerator.scaled(0.1).generate(dir);
+        SyntheticEventGenerator.scaled(0.1).generate(other);
+        final String name = FileEventmobiApi.fileNameFor(FileEventmobiApi.ATTENDEES);
+        assertArrayEquals(
+            FileUtils.readFileToByteArray(new File(dir, name)),
+            FileUtils.readFileToByteArray(new File(other, name)));
+    }
+
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.eventmobi.http;
+
+import com.hyperaware.conference.eventmobi.EventmobiConfig;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestHttpEventmobiApi {
+
+    private static final String[] TYPES = { "agenda", "speakers", "companies", "attendees", "maps" };
+    private static final String SECTION =
+        "{ \"status\": \"success\", \"response\": { \"id\": 1, \"name\": \"Section\", \"items\": [ ] } }";
+
+    // Prefetches run on the calling thread, so they're done when the event
+    // fetch returns
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private HttpServer server;
+    private final ConcurrentHashMap<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+    private HttpEventmobiApi api;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                final String path = exchange.getRequestURI().getPath();
+                requests.putIfAbsent(path, new AtomicInteger());
+                requests.get(path).incrementAndGet();
+                final byte[] body = (path.equals("/event.json") ? eventJson() : SECTION).getBytes("UTF-8");
+                exchange.sendResponseHeaders(200, body.length);
+                final OutputStream os = exchange.getResponseBody();
+                os.write(body);
+                os.close();
+            }
+        });
+        server.start();
+
+        final HttpEventmobiApiOptions options = new HttpEventmobiApiOptions();
+        options.setPrefetchExecutor(DIRECT);
+        api = new HttpEventmobiApi(new Config(baseUrl() + "/event"), options);
+    }
+
+    @After
+    public void tearDown() {
+        api.close();
+        server.stop(0);
+    }
+
+    private String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private String eventJson() {
+        final StringBuilder sections = new StringBuilder();
+        for (final String type : TYPES) {
+            if (sections.length() > 0) {
+                sections.append(", ");
+            }
+            sections.append(String.format(
+                "{ \"id\": 1, \"type\": \"%s\", \"url\": \"%s/%s\" }", type, baseUrl(), type));
+        }
+        return "{ \"status\": \"success\", \"response\": { \"id\": \"1\", \"sections\": [ " + sections + " ] } }";
+    }
+
+    private int requestCount(String path) {
+        final AtomicInteger count = requests.get(path);
+        return count != null ? count.get() : 0;
+    }
+
+    private static Set<String> prefetchFiles() {
+        final File tmp = new File(System.getProperty("java.io.tmpdir"));
+        final String[] names = tmp.list(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.startsWith("prefetch") && name.endsWith(".tmp");
+            }
+        });
+        return new HashSet<>(Arrays.asList(names));
+    }
+
+    @Test
+    public void testSectionFetchUsesPrefetch() throws Exception {
+        api.getEventFetcher().fetch();
+        assertEquals(1, requestCount("/agenda.json"));
+
+        api.getAgendaSectionFetcher().fetch();
+        assertEquals(1, requestCount("/agenda.json"));
+    }
+
+    @Test
+    public void testCloseDiscardsUnusedPrefetches() throws Exception {
+        final Set<String> before = prefetchFiles();
+        api.getEventFetcher().fetch();
+        api.getAgendaSectionFetcher().fetch();
+
+        final Set<String> waiting = prefetchFiles();
+        waiting.removeAll(before);
+        assertEquals(TYPES.length - 1, waiting.size());
+
+        api.close();
+        final Set<String> left = prefetchFiles();
+        left.retainAll(waiting);
+        assertTrue(left.toString(), left.isEmpty());
+
+        // Nothing is waiting, so the next fetch downloads again
+        api.getSpeakersSectionFetcher().fetch();
+        assertEquals(2, requestCount("/speakers.json"));
+    }
+
+    private static class Config implements EventmobiConfig {
+        private final String eventApiUrl;
+
+        public Config(String eventApiUrl) {
+            this.eventApiUrl = eventApiUrl;
+        }
+
+        @Override
+        public String getApiKey() {
+            return "key";
+        }
+
+        @Override
+        public String getEventName() {
+            return "event";
+        }
+
+        @Override
+        public String getEventApiUrl() {
+            return eventApiUrl;
+        }
+
+        @Override
+        public String getPersonImageUrl(String event_id, String image) {
+            return null;
+        }
+
+        @Override
+        public String getMapImageUrl(String event_id, String image) {
+            return null;
+        }
+
+        @Override
+        public String getCompanyImageUrl(String event_id, String image) {
+            return null;
+        }
+    }
+
+}
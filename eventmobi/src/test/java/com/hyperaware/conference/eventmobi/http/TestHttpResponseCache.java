@@ -0,0 +1,175 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.eventmobi.http;
+
+import com.hyperaware.conference.eventmobi.parser.gson.GsonParser;
+import com.hyperaware.conference.mechanics.DecompressingStreamer;
+import com.hyperaware.conference.mechanics.StreamingFetcher;
+import com.hyperaware.conference.mechanics.Streamer;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class TestHttpResponseCache {
+
+    private static final String URL = "https://example.com/sections/attendees.json";
+    private static final String ETAG = "\"v1\"";
+
+    private static final String JSON;
+    static {
+        final StringBuilder sb = new StringBuilder("{\"items\":[");
+        for (int i = 0; i < 1000; i++) {
+            sb.append(i > 0 ? "," : "").append("{\"id\":\"").append(i).append("\",\"name\":\"Someone\"}");
+        }
+        JSON = sb.append("]}").toString();
+    }
+
+    private File dir;
+    private HttpResponseCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = File.createTempFile("cache", "");
+        dir.delete();
+        cache = new HttpResponseCache(dir);
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(dir);
+    }
+
+    @Test
+    public void testCachesPlainBody() throws Exception {
+        assertCachedAfterParse(JSON.getBytes("UTF-8"));
+    }
+
+    @Test
+    public void testCachesGzipBody() throws Exception {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        write(new GZIPOutputStream(baos));
+        assertCachedAfterParse(baos.toByteArray());
+    }
+
+    @Test
+    public void testCachesDeflateBody() throws Exception {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        write(new DeflaterOutputStream(baos));
+        assertCachedAfterParse(baos.toByteArray());
+    }
+
+    @Test
+    public void testCachesGzipBodyReadToEnd() throws Exception {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        write(new GZIPOutputStream(baos));
+        final byte[] body = baos.toByteArray();
+
+        final InputStream is = new DecompressingStreamer(new PutStreamer(body)).stream();
+        assertEquals(JSON, IOUtils.toString(is, "UTF-8"));
+        is.close();
+        assertCachedBody(body);
+    }
+
+    @Test
+    public void testDiscardsPartialPlainBody() throws Exception {
+        final InputStream is = new DecompressingStreamer(new PutStreamer(JSON.getBytes("UTF-8"))).stream();
+        is.read();
+        is.close();
+        assertNull(cache.get(URL));
+    }
+
+    private void assertCachedAfterParse(final byte[] body) throws Exception {
+        final Items result = new StreamingFetcher<>(
+            new DecompressingStreamer(new PutStreamer(body)), new GsonParser<>(Items.class)).fetch();
+        assertEquals(1000, result.items.size());
+        assertCachedBody(body);
+    }
+
+    private void assertCachedBody(final byte[] body) throws IOException {
+        final HttpResponseCache.Entry entry = cache.get(URL);
+        assertNotNull(entry);
+        assertEquals(ETAG, entry.getEtag());
+        // The body is cached as it was received, before decompression
+        try (InputStream is = entry.openBody()) {
+            assertArrayEquals(body, IOUtils.toByteArray(is));
+        }
+    }
+
+    @Test
+    public void testMismatchedBodyIsMiss() throws Exception {
+        assertCachedAfterParse(JSON.getBytes("UTF-8"));
+
+        // As left by a crash after the body was replaced, but before the
+        // validators were
+        final File[] bodies = dir.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(".body");
+            }
+        });
+        assertEquals(1, bodies.length);
+        FileUtils.writeStringToFile(bodies[0], "{\"items\":[]}", "UTF-8");
+        assertNull(cache.get(URL));
+    }
+
+    private static void write(final OutputStream os) throws IOException {
+        os.write(JSON.getBytes("UTF-8"));
+        os.close();
+    }
+
+    private static class Items {
+        private List<Map<String, String>> items;
+    }
+
+    /**
+     * Streams a response body through the cache, as HttpGetStreamer does
+     * for a fresh response.
+     */
+    private class PutStreamer implements Streamer {
+        private final byte[] body;
+
+        public PutStreamer(byte[] body) {
+            this.body = body;
+        }
+
+        @Override
+        public InputStream stream() throws IOException {
+            return cache.put(URL, ETAG, null, new ByteArrayInputStream(body));
+        }
+    }
+
+}
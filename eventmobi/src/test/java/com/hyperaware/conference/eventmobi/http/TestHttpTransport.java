@@ -0,0 +1,156 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperaware.conference.eventmobi.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestHttpTransport {
+
+    private HttpServer server;
+    private final CountDownLatch unstall = new CountDownLatch(1);
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/ok", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                final byte[] body = "{}".getBytes("UTF-8");
+                exchange.sendResponseHeaders(200, body.length);
+                final OutputStream os = exchange.getResponseBody();
+                os.write(body);
+                os.close();
+            }
+        });
+        server.createContext("/stall", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    unstall.await(10, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                exchange.sendResponseHeaders(204, -1);
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        unstall.countDown();
+        server.stop(0);
+    }
+
+    private URL url(String path) throws IOException {
+        return new URL("http://127.0.0.1:" + server.getAddress().getPort() + path);
+    }
+
+    @Test
+    public void testReadTimeout() throws Exception {
+        final HttpTransport transport = new HttpTransport(1000, 200, 1);
+        try {
+            transport.execute(transport.open(url("/stall")));
+            fail("Expected a read timeout");
+        }
+        catch (SocketTimeoutException e) {
+            // expected
+        }
+
+        // The failed request must not keep holding the host's only slot
+        final HttpTransport.Exchange exchange = transport.execute(transport.open(url("/ok")));
+        assertEquals(200, exchange.getResponseCode());
+        exchange.getInputStream().close();
+    }
+
+    @Test
+    public void testMaxConnectionsPerHost() throws Exception {
+        final HttpTransport transport = new HttpTransport(1000, 1000, 200, 1);
+        final HttpTransport.Exchange first = transport.execute(transport.open(url("/ok")));
+        final InputStream is = first.getInputStream();
+
+        try {
+            transport.execute(transport.open(url("/ok")));
+            fail("Expected to time out waiting for a connection");
+        }
+        catch (IOException e) {
+            assertTrue(e.getMessage().startsWith("Timed out waiting"));
+        }
+
+        is.close();
+        final HttpTransport.Exchange second = transport.execute(transport.open(url("/ok")));
+        assertEquals(200, second.getResponseCode());
+        second.getInputStream().close();
+    }
+
+    @Test
+    public void testWaitsForSlotWithoutQueueTimeout() throws Exception {
+        // No connect timeout either, which mustn't mean not waiting
+        final HttpTransport transport = new HttpTransport(0, 1000, 0, 1);
+        final HttpTransport.Exchange first = transport.execute(transport.open(url("/ok")));
+        final InputStream is = first.getInputStream();
+
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<Object> result = new AtomicReference<>();
+        final Thread waiter = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    final HttpTransport.Exchange second = transport.execute(transport.open(url("/ok")));
+                    result.set(second.getResponseCode());
+                    second.getInputStream().close();
+                }
+                catch (IOException e) {
+                    result.set(e);
+                }
+                done.countDown();
+            }
+        };
+        waiter.start();
+        assertFalse(done.await(300, TimeUnit.MILLISECONDS));
+
+        is.close();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(200, result.get());
+    }
+
+}